@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.engine;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.sireum.hamr.inspector.common.Filter;
+import org.sireum.hamr.inspector.common.Msg;
+import org.sireum.hamr.inspector.services.MsgService;
+import org.sireum.hamr.inspector.services.Session;
+import org.sireum.hooks.TimeBarriers;
+import org.sireum.hooks.TimeUtils;
+import org.springframework.data.domain.Range;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.util.Objects;
+
+/**
+ * Shares one live pass of each {@link Filter} over each {@link Session} between every consumer of
+ * {@link #live(Session, Filter)}.
+ *
+ * The live filtered stream of a (session, filter) pair is started the first time it is requested. Only its newest
+ * {@link #LIVE_TAIL_SIZE} msgs are kept for later subscribers, so memory does not grow with the session. Once every
+ * consumer has cancelled, the pipeline and its tail are released.
+ *
+ * Only the live pass is shared. Filters are stateful and cannot be resumed part way through a session, and no filtered
+ * msgs older than the live tail are kept, so everything which reads them runs a pass of its own: each
+ * {@link #page(Session, Filter, long, long)} re-runs the filter over the stored session up to the end of the page (so
+ * reading a whole session page by page is quadratic in its length), each {@link #filtered(Session, Filter)} runs one
+ * pass for the msgs before the live tail, and reports and exports filter their own replays with
+ * {@link #applyFilter(Flux, Filter)}.
+ */
+@Slf4j
+@Controller
+public class FilterPipelineService {
+
+    /**
+     * The number of the newest live filtered msgs replayed to each new subscriber of a pipeline.
+     */
+    public static final int LIVE_TAIL_SIZE = 2048;
+
+    private final MsgService msgService;
+
+    private final SnapshotReplayService replays;
+
+    private final LoadingCache<Tuple2<Session, Filter>, Flux<Tuple2<Long, Msg>>> PIPELINE_CACHE =
+            Caffeine.newBuilder().weakValues().build(this::createPipeline);
+
+    public FilterPipelineService(MsgService msgService, SnapshotReplayService replays) {
+        this.msgService = msgService;
+        this.replays = replays;
+    }
+
+    /**
+     * @param session the session whose live msgs should be filtered
+     * @param filter the filter to apply
+     * @return the shared, live, filtered msgs of the session with their index in the filtered stream. New subscribers
+     *         start with (up to) the newest {@link #LIVE_TAIL_SIZE} msgs, so the first index they see need not be 0.
+     */
+    @NotNull
+    public Flux<Tuple2<Long, Msg>> live(@NotNull Session session, @NotNull Filter filter) {
+        return Objects.requireNonNull(PIPELINE_CACHE.get(Tuples.of(session, filter)));
+    }
+
+    /**
+     * @param session the session whose live msgs should be filtered
+     * @param filter the filter to apply
+     * @return every filtered msg of the session, from its start: msgs older than the shared live tail are read with
+     *         {@link #page(Session, Filter, long, long)}, followed by the live msgs
+     */
+    @NotNull
+    public Flux<Msg> filtered(@NotNull Session session, @NotNull Filter filter) {
+        return live(session, filter).switchOnFirst((first, indexedMsgs) -> {
+            final Flux<Msg> msgs = indexedMsgs.map(Tuple2::getT2);
+            return first.hasValue()
+                    ? page(session, filter, 0, Objects.requireNonNull(first.get()).getT1()).concatWith(msgs)
+                    : msgs;
+        });
+    }
+
+    /**
+     * Reads filtered msgs [from, to) back from a {@link MsgSnapshot} of the session, taken when the page is subscribed
+     * to, so a page never mixes in msgs which arrived while it was being read. Filters are stateful, so the filter is
+     * re-run from the session's start, but only until the page is complete.
+     *
+     * @param session the session whose msgs should be filtered
+     * @param filter the filter to apply
+     * @param from the index (in the filtered stream) of the first msg of the page
+     * @param to the index after the last msg of the page, which should already have been seen live
+     * @return the page's msgs, which completes once the page is full (or the snapshot ends)
+     */
+    @NotNull
+    public Flux<Msg> page(@NotNull Session session, @NotNull Filter filter, long from, long to) {
+        if (to <= from) {
+            return Flux.empty();
+        }
+        return applyFilter(replays.replay(session), filter).skip(from).take(to - from);
+    }
+
+    /**
+     * Applies a filter to a stream of msgs in virtual time. The filter runs once per subscription to the returned flux,
+     * so callers which have several consumers should share the result.
+     *
+     * @param msgs the msgs to filter
+     * @param filter the filter to apply
+     * @return the filtered msgs
+     */
+    @NotNull
+    public static Flux<Msg> applyFilter(@NotNull Flux<Msg> msgs, @NotNull Filter filter) {
+        return msgs
+                .map(msg -> TimeUtils.attachTimestamp(msg.timestamp(), msg))
+                .publishOn(Schedulers.elastic())
+                .transform(TimeBarriers::ENTER_VIRTUAL_TIME)
+                .transformDeferred(it -> it.publish(lockStep ->
+                        filter.filter(org.sireum.hamr.inspector.stream.Flux.from(lockStep))))
+                .transform(TimeBarriers::EXIT_VIRTUAL_TIME);
+    }
+
+    @NotNull
+    private Flux<Tuple2<Long, Msg>> createPipeline(@NotNull Tuple2<Session, Filter> sessionFilter) {
+        final Session session = sessionFilter.getT1();
+        final Filter filter = sessionFilter.getT2();
+
+        return applyFilter(msgService.live(session, Range.unbounded()), filter)
+                .index() // before the replay, so late subscribers still see each msg's index from the start
+                .doOnSubscribe(s -> log.debug("Starting filter {} on session {}", filter, session.getName()))
+                .doOnCancel(() -> log.debug("Stopping filter {} on session {}", filter, session.getName()))
+                .replay(LIVE_TAIL_SIZE)
+                .refCount();
+    }
+
+}
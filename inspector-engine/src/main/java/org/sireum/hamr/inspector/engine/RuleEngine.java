@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.engine;
+
+import org.jetbrains.annotations.NotNull;
+import org.sireum.hamr.inspector.common.Msg;
+import org.sireum.hamr.inspector.common.Rule;
+import org.sireum.hamr.inspector.services.RuleStatus;
+import org.sireum.hamr.inspector.services.Session;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.util.List;
+
+/**
+ * Evaluates {@link Rule}s against {@link Session}s, either in this jvm ({@link RuleProcessorService}) or in a separate
+ * engine process ({@link org.sireum.hamr.inspector.engine.remote.RemoteRuleEngine}).
+ */
+public interface RuleEngine {
+
+    /**
+     * @param sessionRule the session and rule to evaluate
+     * @return A {@link Mono} which emits the {@link RuleResult} once the rule completes or fails
+     */
+    @NotNull
+    Mono<RuleResult> evaluate(@NotNull Tuple2<Session, Rule> sessionRule);
+
+    /**
+     * @param sessionRule the session and rule to evaluate
+     * @return A {@link Flux} which immediately emits {@link RuleStatus#RUNNING} and then the final status
+     */
+    @NotNull
+    default Flux<RuleStatus> getRuleStatusUpdates(@NotNull Tuple2<Session, Rule> sessionRule) {
+        return evaluate(sessionRule).map(RuleResult::getStatus).flux().startWith(RuleStatus.RUNNING);
+    }
+
+    /**
+     * @param sessionRule the session and rule which should be applied to find the stop time
+     * @return A {@link Mono} which emits the time of the last msg seen by the rule, or completes empty if none was seen
+     */
+    @NotNull
+    default Mono<Long> getRuleStopTime(@NotNull Tuple2<Session, Rule> sessionRule) {
+        return evaluate(sessionRule).flatMap(result -> Mono.justOrEmpty(result.getStopTime()));
+    }
+
+    @NotNull
+    default Mono<List<Msg>> getRuleLastMsgs(@NotNull Tuple2<Session, Rule> sessionRule) {
+        return evaluate(sessionRule).map(RuleResult::getLastMsgs);
+    }
+
+    @NotNull
+    default Mono<Throwable> getErrorCause(@NotNull Tuple2<Session, Rule> sessionRule) {
+        return evaluate(sessionRule).flatMap(result -> Mono.justOrEmpty(result.getCause()));
+    }
+
+}
@@ -25,86 +25,90 @@
 
 package org.sireum.hamr.inspector.engine;
 
-import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
-import javafx.application.Platform;
-import javafx.beans.property.SimpleLongProperty;
-import javafx.beans.property.SimpleObjectProperty;
-import javafx.beans.value.ObservableLongValue;
-import javafx.beans.value.ObservableObjectValue;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 import org.sireum.hamr.inspector.common.ArtUtils;
 import org.sireum.hamr.inspector.common.Msg;
 import org.sireum.hamr.inspector.common.Rule;
-import org.sireum.hamr.inspector.gui.ThreadedOn;
 import org.sireum.hamr.inspector.services.MsgService;
 import org.sireum.hamr.inspector.services.RuleStatus;
 import org.sireum.hamr.inspector.services.Session;
 import org.sireum.hamr.inspector.services.SessionService;
 import org.sireum.hooks.TimeBarriers;
 import org.sireum.hooks.TimeUtils;
+import org.springframework.core.env.Environment;
 import org.springframework.data.domain.Range;
 import org.springframework.stereotype.Controller;
-import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Signal;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 import reactor.util.function.Tuple2;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 
+/**
+ * Evaluates {@link Rule}s against {@link Session}s.
+ *
+ * This is the in-process {@link RuleEngine}. It has no dependency on a JavaFX toolkit. Everything is exposed as
+ * {@link Flux}/{@link Mono} so the engine can be embedded in headless jobs. The gui adapts these streams to observables in
+ * org.sireum.hamr.inspector.gui.RuleProcessorObservables.
+ *
+ * Every evaluation runs its rule on a fixed pool of "inspector.rules.workers" rule workers. An evaluation of a live
+ * session never completes, but it only holds a worker while it has msgs to process, so any number of evaluations can
+ * be in flight without starving each other and without running more rules at once than there are workers.
+ */
 @Slf4j
 @Controller
-public class RuleProcessorService {
+public class RuleProcessorService implements RuleEngine {
 
     private final MsgService msgService;
     private final SessionService sessionService;
     private final ArtUtils artUtils;
+    private final Environment environment;
 
-    public RuleProcessorService(MsgService msgService, SessionService sessionService, ArtUtils artUtils) {
+    public RuleProcessorService(MsgService msgService, SessionService sessionService, ArtUtils artUtils,
+                                Environment environment) {
         this.msgService = msgService;
         this.sessionService = sessionService;
         this.artUtils = artUtils;
+        this.environment = environment;
     }
 
+    static final String WORKERS_PROPERTY = "inspector.rules.workers";
+
     private static final int HISTORY_SIZE = 10;
 
-    private LoadingCache<Tuple2<Session, Rule>, ObservableObjectValue<RuleStatus>> CACHE;
+    private LoadingCache<Tuple2<Session, Rule>, Mono<RuleResult>> RESULT_CACHE;
 
-    @ThreadedOn(threadName = "fx")
-    private TimeCache TIME_CACHE = new TimeCache();
-    private LastMsgCache LAST_MSG_CACHE = new LastMsgCache();
-    private ThrowableCache ERROR_CACHE = new ThrowableCache();
+    private Scheduler workers = null;
 
     @PostConstruct
     private void postConstruct() {
-        CACHE = Caffeine.newBuilder().build((Tuple2<Session, Rule> sessionRule) -> {
+        final int defaultWorkers = Math.max(2, Runtime.getRuntime().availableProcessors());
+        workers = Schedulers.newParallel("rule-worker",
+                Math.max(1, environment.getProperty(WORKERS_PROPERTY, Integer.class, defaultWorkers)), true);
+
+        RESULT_CACHE = Caffeine.newBuilder().build((Tuple2<Session, Rule> sessionRule) -> {
             final Session session = sessionRule.getT1();
             final Rule rule = sessionRule.getT2();
 
-            final Function<Flux<? extends Signal<?>>, Mono<RuleStatus>> HANDLE_LAST_SIGNAL =
+            final Function<Flux<? extends Signal<?>>, Mono<Signal<?>>> LAST_SIGNAL =
                     (Flux<? extends Signal<?>> flux) -> flux
                             .takeLast(1)
                             .single()
-                            .flatMap(signal -> {
-                                switch (signal.getType()) {
-                                    case ON_COMPLETE:
-                                        return Mono.just(RuleStatus.SUCCESS);
-                                    case ON_ERROR:
-                                        ERROR_CACHE.setIfAbsent(sessionRule, Objects.requireNonNull(signal.getThrowable()));
-                                        return Mono.just(RuleStatus.FAILURE);
-                                    default:
-                                        return Mono.error(new IllegalStateException("expected last signal complete or failure"));
-                                }
-                            });
+                            .map(signal -> (Signal<?>) signal);
 
-            final Mono<RuleStatus> resultMono = msgService.live(session, Range.unbounded())
+            final Mono<RuleResult> resultMono = msgService.live(session, Range.unbounded())
+                    .publishOn(workers)
                     .publish(msgFlux -> {
 
                         // technically can count past -- but impossible to know since rule is a black box anyways
@@ -112,7 +116,7 @@ public class RuleProcessorService {
                         //  filter or manual per-rule tracker can be used if this is needed)
                         final LongAdder count = new LongAdder();
 
-                        final Mono<RuleStatus> ruleStatusMono = HANDLE_LAST_SIGNAL.apply(msgFlux
+                        final Mono<Signal<?>> lastSignalMono = LAST_SIGNAL.apply(msgFlux
                             .map(msg -> TimeUtils.attachTimestamp(msg.timestamp(), msg))
                             .transform(TimeBarriers::ENTER_VIRTUAL_TIME)
                             .transformDeferred(flux -> flux.doOnNext(msg -> count.increment())
@@ -121,155 +125,49 @@ public class RuleProcessorService {
                                 .transform(TimeBarriers::EXIT_VIRTUAL_TIME);
 
                         final Mono<List<Msg>> lastMsgMono = msgFlux
-                                .takeUntilOther(ruleStatusMono)
-                                .takeLast(10)
+                                .takeUntilOther(lastSignalMono)
+                                .takeLast(HISTORY_SIZE)
                                 .collectList();
 
-                        return Flux.zip(ruleStatusMono, lastMsgMono);
+                        return Flux.zip(lastSignalMono, lastMsgMono);
                     })
                     .single()
-                    .doOnNext(t -> Platform.runLater(() -> {
-                        final List<Msg> msgs = t.getT2();
-                        LAST_MSG_CACHE.setCachedTime(sessionRule, msgs);
-                        if (!msgs.isEmpty()) {
-                            TIME_CACHE.setCachedTime(sessionRule, msgs.get(msgs.size() - 1).timestamp());
-                        }
-                    }))
-                    .map(Tuple2::getT1);
-
-            /*
-             * Local variable is necessary because compiler cannot find symbol resultMono if directly returned.
-             */
-            @SuppressWarnings("UnnecessaryLocalVariable")
-            final var resultProperty = new SimpleObjectProperty<>(RuleStatus.RUNNING) {
-                @SuppressWarnings("unused")
-                final Disposable d = resultMono.subscribe(result -> {
-                    log.info("rule {} session {} completed with status {}, invoking propertyUpdate later...",
-                            rule.name(), session.getName(), result);
-                    Platform.runLater(() -> {
-                        log.info("javafx property has been updated to reflect rule {} session {} status of {}",
-                                rule.name(), session.getName(), result);
-                        this.setValue(result);
-                    });
-                });
-            };
+                    .flatMap(t -> toResult(t.getT1(), t.getT2()))
+                    .doOnNext(result -> log.info("rule {} session {} completed with status {}",
+                            rule.name(), session.getName(), result.getStatus()));
 
-            return resultProperty;
+            // cached so that every subscriber (the gui, the watch service, etc) shares one evaluation
+            return resultMono.cache();
         });
     }
 
+    @PreDestroy
+    private void preDestroy() {
+        workers.dispose();
+    }
+
     @NotNull
-    public ObservableObjectValue<RuleStatus> getRuleStatusObservable(@NotNull Tuple2<Session, Rule> sessionRule) {
-        return Objects.requireNonNull(CACHE.get(sessionRule));
+    private static Mono<RuleResult> toResult(@NotNull Signal<?> lastSignal, @NotNull List<Msg> lastMsgs) {
+        switch (lastSignal.getType()) {
+            case ON_COMPLETE:
+                return Mono.just(RuleResult.of(RuleStatus.SUCCESS, lastMsgs, null));
+            case ON_ERROR:
+                return Mono.just(RuleResult.of(RuleStatus.FAILURE, lastMsgs, Objects.requireNonNull(lastSignal.getThrowable())));
+            default:
+                return Mono.error(new IllegalStateException("expected last signal complete or failure"));
+        }
     }
 
     /**
+     * Returns the (cached) evaluation of a rule against a session. The first call for a given sessionRule starts the
+     * evaluation, later calls share its result.
      *
-     * @param sessionRule the session and rule which should be applied to find the stop time
-     * @return An {@link ObservableLongValue} initially containing null and then updated to match the time
+     * @param sessionRule the session and rule to evaluate
+     * @return A {@link Mono} which emits the {@link RuleResult} once the rule completes or fails
      */
     @NotNull
-    public ObservableLongValue getRuleStopTimeObservable(@NotNull Tuple2<Session, Rule> sessionRule) {
-        return TIME_CACHE.getCachedTime(sessionRule);
-    }
-
-    @NotNull
-    public ObservableObjectValue<List<Msg>> getRuleLastMsgObservable(@NotNull Tuple2<Session, Rule> sessionRule) {
-        return LAST_MSG_CACHE.getCachedLastMsg(sessionRule);
-    }
-
-    @NotNull
-    public ObservableObjectValue<Throwable> getErrorCause(@NotNull Tuple2<Session, Rule> sessionRule) {
-        return ERROR_CACHE.get(sessionRule);
-    }
-
-    // todo generify caches
-    static class TimeCache {
-        private Cache<Tuple2<Session, Rule>, SimpleLongProperty> TIME_CACHE = Caffeine.newBuilder().build();
-
-        @NotNull
-        synchronized ObservableLongValue getCachedTime(Tuple2<Session, Rule> tuple) {
-            final ObservableLongValue time = TIME_CACHE.getIfPresent(tuple);
-
-            if (time == null) {
-                final SimpleLongProperty nullTime = new SimpleLongProperty();
-                TIME_CACHE.put(tuple, nullTime);
-                return nullTime;
-            }
-
-            return time;
-        }
-
-        synchronized void setCachedTime(Tuple2<Session, Rule> tuple, long time) {
-            final SimpleLongProperty timeObs = TIME_CACHE.getIfPresent(tuple);
-
-            if (timeObs != null) {
-                timeObs.set(time);
-            } else {
-                TIME_CACHE.put(tuple, new SimpleLongProperty(time));
-            }
-        }
-    }
-
-    static class LastMsgCache {
-        private Cache<Tuple2<Session, Rule>, SimpleObjectProperty<List<Msg>>> LAST_MSG_CACHE = Caffeine.newBuilder().build();
-
-        @NotNull
-        synchronized ObservableObjectValue<List<Msg>> getCachedLastMsg(Tuple2<Session, Rule> tuple) {
-            final ObservableObjectValue<List<Msg>> msg = LAST_MSG_CACHE.getIfPresent(tuple);
-
-            if (msg == null) {
-                final SimpleObjectProperty<List<Msg>> nullMsg = new SimpleObjectProperty<>();
-                LAST_MSG_CACHE.put(tuple, nullMsg);
-                return nullMsg;
-            }
-
-            return msg;
-        }
-
-        synchronized void setCachedTime(Tuple2<Session, Rule> tuple, List<Msg> msg) {
-            final SimpleObjectProperty<List<Msg>> msgObs = LAST_MSG_CACHE.getIfPresent(tuple);
-
-            if (msgObs != null) {
-                msgObs.set(msg);
-            } else {
-                LAST_MSG_CACHE.put(tuple, new SimpleObjectProperty<>(msg));
-            }
-        }
-    }
-
-    static class ThrowableCache {
-        private Cache<Tuple2<Session, Rule>, SimpleObjectProperty<Throwable>> THROWABLE_CACHE = Caffeine.newBuilder().build();
-
-        @NotNull
-        synchronized ObservableObjectValue<Throwable> get(Tuple2<Session, Rule> tuple) {
-            final ObservableObjectValue<Throwable> throwable = THROWABLE_CACHE.getIfPresent(tuple);
-
-            if (throwable == null) {
-                final SimpleObjectProperty<Throwable> nullThrowable = new SimpleObjectProperty<>();
-                THROWABLE_CACHE.put(tuple, nullThrowable);
-                return nullThrowable;
-            }
-
-            return throwable;
-        }
-
-        synchronized void setCachedItem(Tuple2<Session, Rule> tuple, Throwable throwable) {
-            final SimpleObjectProperty<Throwable> throwableObs = THROWABLE_CACHE.getIfPresent(tuple);
-
-            if (throwableObs != null) {
-                throwableObs.set(throwable);
-            } else {
-                THROWABLE_CACHE.put(tuple, new SimpleObjectProperty<>(throwable));
-            }
-        }
-
-        synchronized void setIfAbsent(Tuple2<Session, Rule> tuple, Throwable throwable) {
-            final SimpleObjectProperty<Throwable> throwableObs = THROWABLE_CACHE.getIfPresent(tuple);
-
-            if (throwableObs == null) {
-                THROWABLE_CACHE.put(tuple, new SimpleObjectProperty<>(throwable));
-            }
-        }
+    @Override
+    public Mono<RuleResult> evaluate(@NotNull Tuple2<Session, Rule> sessionRule) {
+        return Objects.requireNonNull(RESULT_CACHE.get(sessionRule));
     }
 }
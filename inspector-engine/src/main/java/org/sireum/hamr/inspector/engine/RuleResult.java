@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.engine;
+
+import lombok.Value;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.sireum.hamr.inspector.common.Msg;
+import org.sireum.hamr.inspector.services.RuleStatus;
+
+import java.util.List;
+
+/**
+ * The outcome of evaluating a {@link org.sireum.hamr.inspector.common.Rule} against a
+ * {@link org.sireum.hamr.inspector.services.Session}, as reported by {@link RuleProcessorService}.
+ */
+@Value(staticConstructor = "of")
+public class RuleResult {
+
+    /**
+     * Either {@link RuleStatus#SUCCESS} or {@link RuleStatus#FAILURE}. Results are only produced once a rule stops.
+     */
+    @NotNull RuleStatus status;
+
+    /**
+     * The last few {@link Msg}s seen by the rule before it stopped (the failure context if the rule failed).
+     */
+    @NotNull List<Msg> lastMsgs;
+
+    /**
+     * The cause of a {@link RuleStatus#FAILURE}, or null if the rule succeeded.
+     */
+    @Nullable Throwable cause;
+
+    /**
+     * @return the timestamp of the last {@link Msg} seen by the rule, or null if the rule saw no msgs.
+     */
+    @Nullable
+    public Long getStopTime() {
+        return lastMsgs.isEmpty() ? null : lastMsgs.get(lastMsgs.size() - 1).timestamp();
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.engine;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.sireum.hamr.inspector.common.Rule;
+import org.sireum.hamr.inspector.services.RuleStatus;
+import org.sireum.hamr.inspector.services.Session;
+import org.sireum.hamr.inspector.services.SessionService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Controller;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuples;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Watch mode: queues the evaluation of every {@link Rule} against every new or updated {@link Session} so that
+ * results are (usually) ready before anyone opens a RulesTab.
+ *
+ * Session updates are debounced per session, and each (session, rule) pair is only ever started once. Evaluations of
+ * live sessions do not complete until their session does, so none of them wait for a free slot here; the rule work
+ * itself is bounded by the engine's pool of rule workers (see {@link RuleProcessorService}). Evaluations are shared
+ * with the rest of the app through the {@link RuleEngine}, so a rule that has already been evaluated against a session
+ * is never evaluated twice.
+ *
+ * Watch mode is off by default. It can be enabled on startup with the property "inspector.rules.watch=true" or
+ * toggled at runtime through {@link #start()} and {@link #stop()}.
+ */
+@Slf4j
+@Controller
+public class RuleWatchService {
+
+    static final String WATCH_PROPERTY = "inspector.rules.watch";
+    static final String DEBOUNCE_PROPERTY = "inspector.rules.watch.debounce-ms";
+
+    private static final long DEFAULT_DEBOUNCE_MS = 2000L;
+
+    private final SessionService sessionService;
+    private final RuleEngine ruleEngine;
+    private final List<Rule> rules;
+    private final Environment environment;
+
+    private final AtomicReference<Disposable> subscription = new AtomicReference<>(null);
+
+    private Duration debounce = Duration.ofMillis(DEFAULT_DEBOUNCE_MS);
+
+    public RuleWatchService(SessionService sessionService,
+                            RuleEngine ruleEngine,
+                            @Qualifier("rules") List<Rule> rules,
+                            Environment environment) {
+        this.sessionService = sessionService;
+        this.ruleEngine = ruleEngine;
+        this.rules = rules;
+        this.environment = environment;
+    }
+
+    @PostConstruct
+    private void postConstruct() {
+        debounce = Duration.ofMillis(Math.max(0L, environment.getProperty(DEBOUNCE_PROPERTY, Long.class, DEFAULT_DEBOUNCE_MS)));
+
+        if (environment.getProperty(WATCH_PROPERTY, Boolean.class, false)) {
+            start();
+        }
+    }
+
+    @PreDestroy
+    private void preDestroy() {
+        stop();
+    }
+
+    public boolean isWatching() {
+        final Disposable disposable = subscription.get();
+        return disposable != null && !disposable.isDisposed();
+    }
+
+    /**
+     * Starts watching sessions. Does nothing if already watching.
+     */
+    public void start() {
+        subscription.updateAndGet(disposable -> {
+            if (disposable != null && !disposable.isDisposed()) {
+                return disposable;
+            }
+            log.info("starting rule watch mode with debounce {}", debounce);
+            return watch();
+        });
+    }
+
+    /**
+     * Stops watching sessions. Evaluations which have already started are not cancelled because their results are
+     * shared with the {@link RuleEngine}.
+     */
+    public void stop() {
+        subscription.updateAndGet(disposable -> {
+            if (disposable != null && !disposable.isDisposed()) {
+                log.info("stopping rule watch mode");
+                disposable.dispose();
+            }
+            return null;
+        });
+    }
+
+    private Disposable watch() {
+        return SessionUpdates.debounced(sessionService, debounce)
+                // every rule is paired with a session the first time it is seen. Sessions are only remembered while
+                // something else (such as the engine's cached results) still holds them, so the set does not grow
+                // with every session ever watched, and a forgotten session is only paired again if it is updated
+                .distinct(session -> session, () -> Collections.newSetFromMap(new WeakHashMap<>()))
+                .concatMap(session -> Flux.fromIterable(rules).map(rule -> Tuples.of(session, rule)))
+                // unbounded because live evaluations never complete, the engine bounds the work instead
+                .flatMap(sessionRule -> ruleEngine.evaluate(sessionRule)
+                        .map(RuleResult::getStatus)
+                        .doOnNext(status -> logResult(sessionRule.getT1(), sessionRule.getT2(), status))
+                        .onErrorResume(throwable -> {
+                            log.warn("watch mode was unable to evaluate rule {} on session {}",
+                                    sessionRule.getT2().name(), sessionRule.getT1().getName(), throwable);
+                            return Mono.empty();
+                        }), Integer.MAX_VALUE)
+                .subscribe(
+                        status -> {},
+                        throwable -> log.error("rule watch mode stopped due to an error", throwable));
+    }
+
+    private static void logResult(@NotNull Session session, @NotNull Rule rule, @NotNull RuleStatus status) {
+        log.debug("watch mode evaluated rule {} on session {} with status {}", rule.name(), session.getName(), status);
+    }
+
+}
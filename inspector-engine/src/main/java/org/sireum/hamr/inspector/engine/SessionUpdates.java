@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.engine;
+
+import lombok.experimental.UtilityClass;
+import org.jetbrains.annotations.NotNull;
+import org.sireum.hamr.inspector.services.Session;
+import org.sireum.hamr.inspector.services.SessionService;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+@UtilityClass
+public final class SessionUpdates {
+
+    /**
+     * Emits every existing {@link Session} and then every new or updated {@link Session}. Updates are debounced per
+     * session, so a session which is receiving a burst of status updates is only emitted once per quiet period.
+     *
+     * @param sessionService the service providing sessions and their live status updates
+     * @param debounce the quiet period that must pass before an updated session is re-emitted
+     * @return a never-ending {@link Flux} of sessions
+     */
+    @NotNull
+    public static Flux<Session> debounced(@NotNull SessionService sessionService, @NotNull Duration debounce) {
+        final Flux<Session> existingSessions = sessionService.sessions();
+
+        final Flux<Session> updatedSessions = sessionService.liveStatusUpdates()
+                .flatMap(statusFlux -> statusFlux.map(status -> statusFlux.key()).startWith(statusFlux.key()),
+                        Integer.MAX_VALUE);
+
+        return Flux.concat(existingSessions, updatedSessions)
+                // debounce per session (groups are never cancelled, so each must be consumed)
+                .groupBy(Function.identity())
+                .flatMap(updates -> updates.sampleTimeout(session -> Mono.delay(debounce)), Integer.MAX_VALUE);
+    }
+
+}
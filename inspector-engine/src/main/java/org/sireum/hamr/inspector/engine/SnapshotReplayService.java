@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.engine;
+
+import org.jetbrains.annotations.NotNull;
+import org.sireum.hamr.inspector.common.Msg;
+import org.sireum.hamr.inspector.services.MsgService;
+import org.sireum.hamr.inspector.services.Session;
+import org.springframework.data.domain.Range;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Replays sessions up to a high-water mark which is fixed once, when a {@link MsgSnapshot} is taken.
+ *
+ * Every replay of a snapshot sees exactly the same msgs, no matter how many arrived since, so results computed from a
+ * snapshot can be keyed by its high-water mark. Replays request msgs from the {@link MsgService} in batches of
+ * {@link #BATCH_SIZE} rather than reactor's small default prefetch.
+ *
+ * The {@link MsgService} (from inspector-services) can only count a session and replay it from its start, so a snapshot
+ * is still a count followed by a replay cut off at that count, and a replay starting part way through a session still
+ * skips every msg before it. Reading one consistent prefix is the only thing this service adds on top of it.
+ */
+@Controller
+public class SnapshotReplayService {
+
+    public static final int BATCH_SIZE = 1024;
+
+    private final MsgService msgService;
+
+    public SnapshotReplayService(MsgService msgService) {
+        this.msgService = msgService;
+    }
+
+    /**
+     * @return a snapshot of the session's current msgs
+     */
+    @NotNull
+    public Mono<MsgSnapshot> snapshot(@NotNull Session session) {
+        return msgService.count(session).map(count -> new MsgSnapshot(session, count));
+    }
+
+    /**
+     * @return the msgs of the snapshot, in order
+     */
+    @NotNull
+    public Flux<Msg> replay(@NotNull MsgSnapshot snapshot) {
+        return window(msgService.replay(snapshot.getSession(), Range.unbounded()), 0, snapshot.getHighWaterMark());
+    }
+
+    /**
+     * Takes a snapshot of the session when subscribed to, then replays it.
+     *
+     * @return the msgs the session had when the returned flux was subscribed to
+     */
+    @NotNull
+    public Flux<Msg> replay(@NotNull Session session) {
+        return snapshot(session).flatMapMany(this::replay);
+    }
+
+    /**
+     * @param msgs msgs replayed from the {@link MsgService}
+     * @param from the index of the first msg of the window
+     * @param to the index after the last msg of the window, usually a high-water mark read once beforehand
+     * @return msgs [from, to) of msgs, requested from the {@link MsgService} in batches of {@link #BATCH_SIZE}
+     */
+    @NotNull
+    private static <T> Flux<T> window(@NotNull Flux<T> msgs, long from, long to) {
+        if (to <= from) {
+            return Flux.empty();
+        }
+        return msgs.limitRate(BATCH_SIZE).skip(from).take(to - from);
+    }
+
+}
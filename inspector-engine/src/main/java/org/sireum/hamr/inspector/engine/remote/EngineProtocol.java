@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.engine.remote;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.experimental.UtilityClass;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.jetbrains.annotations.NotNull;
+import org.sireum.hamr.inspector.common.Msg;
+import org.sireum.hamr.inspector.engine.RuleResult;
+
+/**
+ * The line protocol spoken between an {@link EngineServer} and a {@link RemoteRuleEngine}.
+ *
+ * Every request and response is a single line of json. Requests carry a client-chosen "id" which is echoed back in the
+ * matching response, so a client may have many requests in flight on one connection and responses may arrive in any
+ * order.
+ *
+ * <pre>
+ *   request:  {"id": 1, "op": "evaluate", "session": "session name", "rule": "rule name"}
+ *   response: {"id": 1, "status": "FAILURE", "lastMsgs": [41, 42, 43], "cause": "...", "trace": "..."}
+ *   error:    {"id": 1, "error": "unknown rule ..."}
+ * </pre>
+ *
+ * Msgs cannot be serialized, so results carry the sequence numbers of their last msgs. Clients resolve these against
+ * their own MsgService.
+ */
+@UtilityClass
+public final class EngineProtocol {
+
+    public static final int DEFAULT_PORT = 7341;
+
+    static final String ID = "id";
+    static final String OP = "op";
+    static final String SESSION = "session";
+    static final String RULE = "rule";
+    static final String STATUS = "status";
+    static final String LAST_MSGS = "lastMsgs";
+    static final String CAUSE = "cause";
+    static final String TRACE = "trace";
+    static final String ERROR = "error";
+
+    static final String OP_EVALUATE = "evaluate";
+
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @NotNull
+    static ObjectNode evaluateRequest(long id, @NotNull String session, @NotNull String rule) {
+        return MAPPER.createObjectNode()
+                .put(ID, id)
+                .put(OP, OP_EVALUATE)
+                .put(SESSION, session)
+                .put(RULE, rule);
+    }
+
+    @NotNull
+    static ObjectNode resultResponse(long id, @NotNull RuleResult result) {
+        final ObjectNode response = MAPPER.createObjectNode()
+                .put(ID, id)
+                .put(STATUS, result.getStatus().name());
+
+        final ArrayNode lastMsgs = response.putArray(LAST_MSGS);
+        for (Msg msg : result.getLastMsgs()) {
+            lastMsgs.add(msg.sequence());
+        }
+
+        final Throwable cause = result.getCause();
+        if (cause != null) {
+            response.put(CAUSE, cause.toString());
+            response.put(TRACE, ExceptionUtils.getStackTrace(cause));
+        }
+        return response;
+    }
+
+    @NotNull
+    static ObjectNode errorResponse(long id, @NotNull String error) {
+        return MAPPER.createObjectNode().put(ID, id).put(ERROR, error);
+    }
+
+    static boolean isError(@NotNull JsonNode response) {
+        return response.hasNonNull(ERROR);
+    }
+
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.engine.remote;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.sireum.hamr.inspector.common.Rule;
+import org.sireum.hamr.inspector.engine.RuleEngine;
+import org.sireum.hamr.inspector.services.Session;
+import org.sireum.hamr.inspector.services.SessionService;
+import org.springframework.core.env.Environment;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuples;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Serves a {@link RuleEngine} to {@link RemoteRuleEngine} clients over tcp using the {@link EngineProtocol}.
+ *
+ * Binds to the loopback address unless inspector.engine.bind says otherwise, so that exposing the engine to other
+ * machines is always an explicit choice.
+ *
+ * Only serves rule evaluation, see {@link RemoteRuleEngine} for what still runs in the client's jvm.
+ */
+@Slf4j
+public final class EngineServer implements Closeable {
+
+    private final RuleEngine ruleEngine;
+    private final SessionService sessionService;
+    private final Map<String, Rule> rulesByName;
+
+    private final InetSocketAddress address;
+
+    private final ExecutorService connectionExecutor = Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable, "engine-server");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile ServerSocket serverSocket = null;
+
+    public EngineServer(@NotNull RuleEngine ruleEngine,
+                        @NotNull SessionService sessionService,
+                        @NotNull List<Rule> rules,
+                        @NotNull InetSocketAddress address) {
+        this.ruleEngine = ruleEngine;
+        this.sessionService = sessionService;
+        this.rulesByName = rules.stream().collect(Collectors.toUnmodifiableMap(Rule::name, Function.identity()));
+        this.address = address;
+    }
+
+    @NotNull
+    public static EngineServer fromEnvironment(@NotNull RuleEngine ruleEngine,
+                                               @NotNull SessionService sessionService,
+                                               @NotNull List<Rule> rules,
+                                               @NotNull Environment environment) throws IOException {
+        final String bind = environment.getProperty("inspector.engine.bind", "localhost");
+        final int port = environment.getProperty("inspector.engine.port", Integer.class, EngineProtocol.DEFAULT_PORT);
+        return new EngineServer(ruleEngine, sessionService, rules,
+                new InetSocketAddress(InetAddress.getByName(bind), port));
+    }
+
+    public synchronized void start() throws IOException {
+        if (serverSocket != null) {
+            return;
+        }
+
+        serverSocket = new ServerSocket();
+        serverSocket.bind(address);
+        log.info("Rule engine listening on {}", serverSocket.getLocalSocketAddress());
+
+        final ServerSocket acceptingSocket = serverSocket;
+        connectionExecutor.execute(() -> {
+            while (!acceptingSocket.isClosed()) {
+                try {
+                    final Socket socket = acceptingSocket.accept();
+                    connectionExecutor.execute(() -> serve(socket));
+                } catch (IOException e) {
+                    if (!acceptingSocket.isClosed()) {
+                        log.error("Failed to accept engine client.", e);
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public synchronized void close() {
+        if (serverSocket != null) {
+            try {
+                serverSocket.close();
+            } catch (IOException e) {
+                log.warn("Failed to close engine server socket.", e);
+            }
+            serverSocket = null;
+        }
+        connectionExecutor.shutdownNow();
+    }
+
+    private void serve(@NotNull Socket socket) {
+        log.info("Engine client connected from {}", socket.getRemoteSocketAddress());
+
+        // evaluations still running when the client disconnects are cancelled
+        final Disposable.Composite inFlight = Disposables.composite();
+
+        try (socket;
+             BufferedReader reader = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer writer = new BufferedWriter(
+                     new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    handle(EngineProtocol.MAPPER.readTree(line), writer, inFlight);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Engine client {} disconnected with error.", socket.getRemoteSocketAddress(), e);
+        } finally {
+            inFlight.dispose();
+        }
+
+        log.info("Engine client disconnected from {}", socket.getRemoteSocketAddress());
+    }
+
+    private void handle(@NotNull JsonNode request, @NotNull Writer writer, @NotNull Disposable.Composite inFlight) {
+        final long id = request.path(EngineProtocol.ID).asLong();
+        final String op = request.path(EngineProtocol.OP).asText();
+
+        if (!EngineProtocol.OP_EVALUATE.equals(op)) {
+            respond(writer, EngineProtocol.errorResponse(id, "unknown op " + op));
+            return;
+        }
+
+        final String sessionName = request.path(EngineProtocol.SESSION).asText();
+        final Rule rule = rulesByName.get(request.path(EngineProtocol.RULE).asText());
+        if (rule == null) {
+            respond(writer, EngineProtocol.errorResponse(id, "unknown rule " + request.path(EngineProtocol.RULE)));
+            return;
+        }
+
+        // removed from inFlight once done, so a long lived connection only holds its unfinished evaluations
+        final Disposable.Swap evaluation = Disposables.swap();
+        inFlight.add(evaluation);
+        evaluation.update(sessionService.sessions()
+                .filter(session -> session.getName().equals(sessionName))
+                .next()
+                .switchIfEmpty(Mono.error(
+                        () -> new IllegalArgumentException("unknown session " + sessionName)))
+                .flatMap((Session session) -> ruleEngine.evaluate(Tuples.of(session, rule)))
+                .doFinally(signal -> inFlight.remove(evaluation))
+                .subscribe(
+                        result -> respond(writer, EngineProtocol.resultResponse(id, result)),
+                        error -> respond(writer, EngineProtocol.errorResponse(id, error.toString()))));
+    }
+
+    private static void respond(@NotNull Writer writer, @NotNull ObjectNode response) {
+        // responses are written from whichever thread completed the evaluation
+        synchronized (writer) {
+            try {
+                writer.write(EngineProtocol.MAPPER.writeValueAsString(response));
+                writer.write('\n');
+                writer.flush();
+            } catch (IOException e) {
+                log.debug("Dropping response for disconnected engine client.", e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.engine.remote;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.sireum.hamr.inspector.common.Msg;
+import org.sireum.hamr.inspector.common.Rule;
+import org.sireum.hamr.inspector.engine.RuleEngine;
+import org.sireum.hamr.inspector.engine.RuleResult;
+import org.sireum.hamr.inspector.engine.SnapshotReplayService;
+import org.sireum.hamr.inspector.services.RuleStatus;
+import org.sireum.hamr.inspector.services.Session;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.util.function.Tuple2;
+
+import javax.annotation.PreDestroy;
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link RuleEngine} which delegates evaluation to an {@link EngineServer} running in another jvm, keeping heavy rule
+ * evaluation off of the gui's heap and cpu.
+ *
+ * This only partly moves the inspector's heavy work out of process. Only the rule evaluations requested through a
+ * {@link RuleEngine} (the rules tab, watch mode) run remotely. Report generation evaluates every rule against every
+ * session and is at least as expensive, but it does not go through a RuleEngine and still runs in the gui's jvm, as do
+ * filter pipelines and msg paging. Headless reports should be run with the report cli rather than from a gui with a
+ * remote engine.
+ *
+ * Msgs never cross the wire, so the last msgs of each result are looked up again in this process by replaying the
+ * session up to the newest of them. Lookups for the same session share one replay: while a replay is running, every
+ * lookup which arrives joins the next one, so a burst of failures costs one replay rather than one each.
+ *
+ * Enabled by setting inspector.engine.remote to the server's host:port (e.g. localhost:7341). When enabled it takes
+ * precedence over the in-process {@link org.sireum.hamr.inspector.engine.RuleProcessorService}.
+ */
+@Slf4j
+@Primary
+@Controller
+@ConditionalOnProperty(name = "inspector.engine.remote")
+public class RemoteRuleEngine implements RuleEngine {
+
+    private final SnapshotReplayService replays;
+
+    private final String host;
+    private final int port;
+
+    private final AtomicLong nextId = new AtomicLong();
+    private final Map<Long, MonoSink<JsonNode>> pending = new ConcurrentHashMap<>();
+
+    private final LoadingCache<Tuple2<Session, Rule>, Mono<RuleResult>> RESULT_CACHE =
+            Caffeine.newBuilder().build(this::createResult);
+
+    // the newest lookup of each session's msgs, guarded by itself
+    private final Map<Session, MsgLookup> lookups = new HashMap<>();
+
+    @Nullable
+    private Socket socket = null;
+
+    @Nullable
+    private Writer writer = null;
+
+    public RemoteRuleEngine(SnapshotReplayService replays, Environment environment) {
+        this.replays = replays;
+
+        final String remote = Objects.requireNonNull(environment.getProperty("inspector.engine.remote"));
+        final int separator = remote.lastIndexOf(':');
+        this.host = separator < 0 ? remote : remote.substring(0, separator);
+        this.port = separator < 0 ? EngineProtocol.DEFAULT_PORT : Integer.parseInt(remote.substring(separator + 1));
+    }
+
+    @NotNull
+    @Override
+    public Mono<RuleResult> evaluate(@NotNull Tuple2<Session, Rule> sessionRule) {
+        return RESULT_CACHE.get(sessionRule);
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        disconnect(new IOException("remote rule engine closed"));
+    }
+
+    @NotNull
+    private Mono<RuleResult> createResult(@NotNull Tuple2<Session, Rule> sessionRule) {
+        final Session session = sessionRule.getT1();
+        final Rule rule = sessionRule.getT2();
+
+        return Mono.<JsonNode>create(sink -> {
+            final long id = nextId.incrementAndGet();
+            pending.put(id, sink);
+            sink.onDispose(() -> pending.remove(id));
+            send(EngineProtocol.evaluateRequest(id, session.getName(), rule.name()).toString());
+        })
+                .flatMap(response -> toResult(session, response))
+                .doOnError(error -> {
+                    // connection failures should not be cached forever, so allow the next caller to retry
+                    log.error("Remote evaluation of {} @ {} failed.", rule.name(), session.getName(), error);
+                    RESULT_CACHE.invalidate(sessionRule);
+                })
+                .cache();
+    }
+
+    @NotNull
+    private Mono<RuleResult> toResult(@NotNull Session session, @NotNull JsonNode response) {
+        if (EngineProtocol.isError(response)) {
+            return Mono.error(new RemoteRuleException(response.get(EngineProtocol.ERROR).asText(), null));
+        }
+
+        final RuleStatus status = RuleStatus.valueOf(response.get(EngineProtocol.STATUS).asText());
+
+        final Throwable cause = response.hasNonNull(EngineProtocol.CAUSE)
+                ? new RemoteRuleException(response.get(EngineProtocol.CAUSE).asText(),
+                        response.path(EngineProtocol.TRACE).asText(null))
+                : null;
+
+        final Set<Long> sequences = new HashSet<>();
+        response.path(EngineProtocol.LAST_MSGS).forEach(sequence -> sequences.add(sequence.asLong()));
+
+        if (sequences.isEmpty()) {
+            return Mono.just(RuleResult.of(status, List.of(), cause));
+        }
+
+        // msgs never cross the wire, so look up the ones the engine reported in this process's msg service
+        return lookup(session, sequences).map(found -> {
+            final List<Msg> lastMsgs = new ArrayList<>(sequences.size());
+            for (Msg msg : found) {
+                if (sequences.contains(msg.sequence())) {
+                    lastMsgs.add(msg);
+                }
+            }
+            return RuleResult.of(status, List.copyOf(lastMsgs), cause);
+        });
+    }
+
+    /**
+     * @return the msgs of the session with the given sequence numbers, along with those of other lookups which share
+     *         the same replay, in session order
+     */
+    @NotNull
+    private Mono<List<Msg>> lookup(@NotNull Session session, @NotNull Set<Long> sequences) {
+        synchronized (lookups) {
+            MsgLookup lookup = lookups.get(session);
+            if (lookup == null || lookup.started) {
+                lookup = new MsgLookup(session, lookup);
+                lookups.put(session, lookup);
+            }
+            lookup.sequences.addAll(sequences);
+            return lookup.found;
+        }
+    }
+
+    /**
+     * The sequence numbers wanted from one replay of a session. A session is only replayed by one lookup at a time, so
+     * the next lookup collects sequences until the previous one finishes, then replays the session once for all of
+     * them.
+     */
+    private final class MsgLookup {
+
+        // both guarded by lookups
+        private final Set<Long> sequences = new HashSet<>();
+        private boolean started = false;
+
+        private final Mono<List<Msg>> found;
+
+        private MsgLookup(@NotNull Session session, @Nullable MsgLookup previous) {
+            final Mono<?> previousDone = previous == null
+                    ? Mono.empty()
+                    : previous.found.onErrorResume(throwable -> Mono.empty());
+
+            this.found = previousDone
+                    .then(Mono.defer(() -> {
+                        final Set<Long> wanted;
+                        synchronized (lookups) {
+                            started = true;
+                            wanted = Set.copyOf(sequences);
+                        }
+                        final long maxSequence = Collections.max(wanted);
+                        return replays.replay(session)
+                                .takeUntil(msg -> msg.sequence() >= maxSequence)
+                                .filter(msg -> wanted.contains(msg.sequence()))
+                                .collectList();
+                    }))
+                    .doFinally(signal -> {
+                        synchronized (lookups) {
+                            lookups.remove(session, this); // unless a newer lookup already took its place
+                        }
+                    })
+                    .cache();
+        }
+    }
+
+    private synchronized void send(@NotNull String request) {
+        try {
+            if (writer == null) {
+                connect();
+            }
+            writer.write(request);
+            writer.write('\n');
+            writer.flush();
+        } catch (IOException e) {
+            // fails every pending request, including this one
+            disconnect(e);
+        }
+    }
+
+    private void connect() throws IOException {
+        final Socket socket = new Socket(host, port);
+        final BufferedReader reader = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+
+        this.socket = socket;
+        this.writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        log.info("Connected to remote rule engine at {}:{}", host, port);
+
+        final Thread readerThread = new Thread(() -> read(socket, reader), "remote-rule-engine");
+        readerThread.setDaemon(true);
+        readerThread.start();
+    }
+
+    private void read(@NotNull Socket socket, @NotNull BufferedReader reader) {
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final JsonNode response = EngineProtocol.MAPPER.readTree(line);
+                final MonoSink<JsonNode> sink = pending.remove(response.path(EngineProtocol.ID).asLong());
+                if (sink != null) {
+                    sink.success(response);
+                }
+            }
+            onReaderStopped(socket, new EOFException("remote rule engine closed the connection"));
+        } catch (IOException e) {
+            onReaderStopped(socket, e);
+        }
+    }
+
+    private synchronized void onReaderStopped(@NotNull Socket socket, @NotNull IOException cause) {
+        // a newer connection may already have replaced the one this reader was attached to
+        if (this.socket == socket) {
+            disconnect(cause);
+        }
+    }
+
+    private void disconnect(@NotNull IOException cause) {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                log.warn("Failed to close remote rule engine connection.", e);
+            }
+        }
+        socket = null;
+        writer = null;
+
+        final List<MonoSink<JsonNode>> failed = new ArrayList<>(pending.values());
+        pending.clear();
+        failed.forEach(sink -> sink.error(cause));
+    }
+
+}
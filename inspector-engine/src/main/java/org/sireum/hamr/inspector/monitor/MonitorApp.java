@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.monitor;
+
+import lombok.extern.slf4j.Slf4j;
+import org.sireum.hamr.inspector.common.Filter;
+import org.sireum.hamr.inspector.common.Injection;
+import org.sireum.hamr.inspector.common.InspectionBlueprint;
+import org.sireum.hamr.inspector.common.Rule;
+import org.sireum.hamr.inspector.engine.remote.EngineServer;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextClosedEvent;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Headless counterpart of org.sireum.hamr.inspector.gui.App. Runs the rule engine against every live session without
+ * a JavaFX toolkit, writing verdicts to a rotating JSON-lines file (see {@link VerdictLog}).
+ */
+@Slf4j
+public final class MonitorApp {
+
+    // set by InspectorMonitorLauncher before run()
+    static volatile InspectionBlueprint inspectionBlueprint = null;
+    static volatile Set<Filter> filters = null;
+    static volatile Set<Rule> rules = null;
+    static volatile Set<Injection> injections = null;
+    static volatile String[] args = null;
+
+    private MonitorApp() {
+    }
+
+    public static void configure(InspectionBlueprint inspectionBlueprint,
+                                 Set<Filter> filters,
+                                 Set<Rule> rules,
+                                 Set<Injection> injections,
+                                 String[] args) {
+        MonitorApp.inspectionBlueprint = inspectionBlueprint;
+        MonitorApp.filters = filters;
+        MonitorApp.rules = rules;
+        MonitorApp.injections = injections;
+        MonitorApp.args = args;
+    }
+
+    /**
+     * Starts the monitor and blocks until its spring context is closed (for example by a shutdown hook).
+     */
+    public static void run() throws InterruptedException {
+        final CountDownLatch closed = new CountDownLatch(1);
+        final ConfigurableApplicationContext applicationContext =
+                createContext(closed, MonitorDiscovery.MONITOR_PROFILE);
+
+        applicationContext.getBean(RuleMonitor.class).start();
+
+        // reactor threads are daemon threads, so keep the jvm alive until the context is closed
+        closed.await();
+        log.info("Monitor stopped.");
+    }
+
+    /**
+     * Serves the rule engine to remote guis (see {@link EngineServer}) and blocks until the spring context is closed.
+     */
+    public static void serve() throws InterruptedException, IOException {
+        final CountDownLatch closed = new CountDownLatch(1);
+        final ConfigurableApplicationContext applicationContext = createContext(closed, MonitorDiscovery.SERVE_PROFILE);
+
+        applicationContext.getBean(EngineServer.class).start();
+
+        closed.await();
+        log.info("Engine server stopped.");
+    }
+
+    private static ConfigurableApplicationContext createContext(CountDownLatch closed, String modeProfile) {
+        Objects.requireNonNull(inspectionBlueprint, "inspectionBlueprint must be set before launching");
+        Objects.requireNonNull(filters, "filters must be set before launching");
+        Objects.requireNonNull(rules, "rules must be set before launching");
+        Objects.requireNonNull(injections, "injections must be set before launching");
+        Objects.requireNonNull(args, "Args must be set before launching");
+        log.info("Initializing headless spring context...");
+
+        return new SpringApplicationBuilder(MonitorDiscovery.class)
+                .headless(true)
+                .web(WebApplicationType.NONE)
+                .profiles(MonitorDiscovery.PROFILE, modeProfile)
+                .registerShutdownHook(true)
+                .listeners(new ApplicationListener<ContextClosedEvent>() {
+                    @Override
+                    public void onApplicationEvent(ContextClosedEvent event) {
+                        closed.countDown();
+                    }
+                })
+                .run(args);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.monitor;
+
+import lombok.extern.slf4j.Slf4j;
+import org.sireum.hamr.inspector.common.*;
+import org.sireum.hamr.inspector.engine.RuleProcessorService;
+import org.sireum.hamr.inspector.engine.remote.EngineServer;
+import org.sireum.hamr.inspector.services.SessionService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.aop.AopAutoConfiguration;
+import org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.ConfigurationPropertiesAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.MessageSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.freemarker.FreeMarkerAutoConfiguration;
+import org.springframework.boot.autoconfigure.info.ProjectInfoAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.autoconfigure.task.TaskSchedulingAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Headless counterpart of org.sireum.hamr.inspector.gui.AppDiscovery.
+ *
+ * Only scans the common and services packages. The engine's {@link RuleProcessorService} is imported directly so that
+ * none of the gui's JavaFX beans (which also live under org.sireum.hamr.inspector) are created.
+ *
+ * The {@link Profile} keeps the gui's catch-all component scan from picking this configuration up. Each mode adds a
+ * profile of its own, so monitoring ({@link #MONITOR_PROFILE}) never starts an engine server and serving
+ * ({@link #SERVE_PROFILE}) never creates the rule monitor, its verdict log or its MBean.
+ */
+@Slf4j
+@Profile(MonitorDiscovery.PROFILE)
+@SpringBootConfiguration
+@EnableAutoConfiguration(exclude = {
+        TaskExecutionAutoConfiguration.class,
+        CacheAutoConfiguration.class,
+        ProjectInfoAutoConfiguration.class,
+        AopAutoConfiguration.class,
+        PropertyPlaceholderAutoConfiguration.class,
+        TaskSchedulingAutoConfiguration.class,
+        MessageSourceAutoConfiguration.class,
+        JacksonAutoConfiguration.class,
+        ConfigurationPropertiesAutoConfiguration.class,
+        FreeMarkerAutoConfiguration.class,
+})
+@ComponentScan(basePackages = {
+        "org.sireum.hamr.inspector.common",
+        "org.sireum.hamr.inspector.services",
+})
+@Import(RuleProcessorService.class)
+public class MonitorDiscovery {
+
+    public static final String PROFILE = "monitor";
+
+    /**
+     * Added by {@link MonitorApp#run()}, for the beans which record verdicts.
+     */
+    public static final String MONITOR_PROFILE = "monitor-verdicts";
+
+    /**
+     * Added by {@link MonitorApp#serve()}, for the beans which serve the engine to remote guis.
+     */
+    public static final String SERVE_PROFILE = "monitor-serve";
+
+    @Bean(name = "inspectionBlueprint")
+    public InspectionBlueprint inspectionBlueprint() {
+        return Objects.requireNonNull(MonitorApp.inspectionBlueprint);
+    }
+
+    @Bean(name = "artUtils")
+    public ArtUtils artUtils(@Qualifier("inspectionBlueprint") InspectionBlueprint inspectionBlueprint) {
+        return ArtUtils.create(inspectionBlueprint);
+    }
+
+    @Bean(name = "filters")
+    public List<Filter> filters() {
+        return List.copyOf(Objects.requireNonNull(MonitorApp.filters));
+    }
+
+    @Bean(name = "rules")
+    public List<Rule> rules() {
+        return List.copyOf(Objects.requireNonNull(MonitorApp.rules));
+    }
+
+    @Bean(name = "injections")
+    public List<Injection> injections() {
+        return List.copyOf(Objects.requireNonNull(MonitorApp.injections));
+    }
+
+    @Bean
+    @Profile(MONITOR_PROFILE)
+    public MonitorStats monitorStats() {
+        return new MonitorStats();
+    }
+
+    @Bean
+    @Profile(MONITOR_PROFILE)
+    public VerdictLog verdictLog(Environment environment, ArtUtils artUtils) {
+        return VerdictLog.fromEnvironment(environment, artUtils);
+    }
+
+    @Bean
+    @Profile(MONITOR_PROFILE)
+    public RuleMonitor ruleMonitor(SessionService sessionService,
+                                   RuleProcessorService ruleProcessorService,
+                                   @Qualifier("rules") List<Rule> rules,
+                                   VerdictLog verdictLog,
+                                   MonitorStats monitorStats,
+                                   Environment environment) {
+        return new RuleMonitor(sessionService, ruleProcessorService, rules, verdictLog, monitorStats, environment);
+    }
+
+    @Bean
+    @Profile(SERVE_PROFILE)
+    public EngineServer engineServer(RuleProcessorService ruleProcessorService,
+                                     SessionService sessionService,
+                                     @Qualifier("rules") List<Rule> rules,
+                                     Environment environment) throws IOException {
+        return EngineServer.fromEnvironment(ruleProcessorService, sessionService, rules, environment);
+    }
+
+}
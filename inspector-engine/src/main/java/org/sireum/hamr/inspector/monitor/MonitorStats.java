@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.monitor;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput counters of the {@link RuleMonitor}. Registered as the MBean "org.sireum.hamr.inspector:type=RuleMonitor"
+ * and periodically logged by the monitor.
+ */
+@Slf4j
+public final class MonitorStats implements MonitorStatsMBean {
+
+    static final String OBJECT_NAME = "org.sireum.hamr.inspector:type=RuleMonitor";
+
+    private final long startNanos = System.nanoTime();
+
+    private final LongAdder sessionsSeen = new LongAdder();
+    private final LongAdder evaluationsStarted = new LongAdder();
+    private final LongAdder evaluationsSucceeded = new LongAdder();
+    private final LongAdder evaluationsFailed = new LongAdder();
+    private final LongAdder evaluationErrors = new LongAdder();
+    private final LongAdder eventsWritten = new LongAdder();
+
+    private ObjectName registeredName = null;
+
+    MonitorStats() {
+        try {
+            final ObjectName name = new ObjectName(OBJECT_NAME);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            registeredName = name;
+        } catch (JMException e) {
+            log.warn("unable to register monitor stats mbean {}", OBJECT_NAME, e);
+        }
+    }
+
+    void sessionSeen() {
+        sessionsSeen.increment();
+    }
+
+    void evaluationStarted() {
+        evaluationsStarted.increment();
+    }
+
+    void evaluationSucceeded() {
+        evaluationsSucceeded.increment();
+    }
+
+    void evaluationFailed() {
+        evaluationsFailed.increment();
+    }
+
+    void evaluationError() {
+        evaluationErrors.increment();
+    }
+
+    void eventWritten() {
+        eventsWritten.increment();
+    }
+
+    @Override
+    public long getSessionsSeen() {
+        return sessionsSeen.sum();
+    }
+
+    @Override
+    public long getEvaluationsStarted() {
+        return evaluationsStarted.sum();
+    }
+
+    @Override
+    public long getEvaluationsInFlight() {
+        return getEvaluationsStarted() - getEvaluationsSucceeded() - getEvaluationsFailed() - getEvaluationErrors();
+    }
+
+    @Override
+    public long getEvaluationsSucceeded() {
+        return evaluationsSucceeded.sum();
+    }
+
+    @Override
+    public long getEvaluationsFailed() {
+        return evaluationsFailed.sum();
+    }
+
+    @Override
+    public long getEvaluationErrors() {
+        return evaluationErrors.sum();
+    }
+
+    @Override
+    public long getEventsWritten() {
+        return eventsWritten.sum();
+    }
+
+    @Override
+    public double getEvaluationsPerSecond() {
+        final double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        final long finished = getEvaluationsSucceeded() + getEvaluationsFailed() + getEvaluationErrors();
+        return seconds <= 0.0 ? 0.0 : finished / seconds;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("sessions=%d started=%d inFlight=%d succeeded=%d failed=%d errors=%d events=%d (%.2f evaluations/s)",
+                getSessionsSeen(), getEvaluationsStarted(), getEvaluationsInFlight(), getEvaluationsSucceeded(),
+                getEvaluationsFailed(), getEvaluationErrors(), getEventsWritten(), getEvaluationsPerSecond());
+    }
+
+    public void close() {
+        if (registeredName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+            } catch (JMException e) {
+                log.debug("unable to unregister monitor stats mbean {}", OBJECT_NAME, e);
+            }
+            registeredName = null;
+        }
+    }
+}
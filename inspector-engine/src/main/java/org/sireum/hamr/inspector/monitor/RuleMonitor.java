@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.monitor;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.sireum.hamr.inspector.common.Rule;
+import org.sireum.hamr.inspector.engine.RuleProcessorService;
+import org.sireum.hamr.inspector.engine.RuleResult;
+import org.sireum.hamr.inspector.engine.SessionUpdates;
+import org.sireum.hamr.inspector.services.RuleStatus;
+import org.sireum.hamr.inspector.services.Session;
+import org.sireum.hamr.inspector.services.SessionService;
+import org.springframework.core.env.Environment;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Continuously evaluates every {@link Rule} against every live {@link Session} and appends each verdict to a
+ * {@link VerdictLog}. Each (session, rule) verdict is recorded once, no matter how often its session is updated. The
+ * rules themselves run on the engine's pool of "inspector.rules.workers" rule workers.
+ */
+@Slf4j
+public final class RuleMonitor {
+
+    static final String DEBOUNCE_PROPERTY = "inspector.monitor.debounce-ms";
+    static final String STATS_INTERVAL_PROPERTY = "inspector.monitor.stats-interval-s";
+
+    private final SessionService sessionService;
+    private final RuleProcessorService ruleProcessorService;
+    private final List<Rule> rules;
+    private final VerdictLog verdictLog;
+    private final MonitorStats stats;
+
+    private final Duration debounce;
+    private final Duration statsInterval;
+
+    private final AtomicReference<Disposable> subscription = new AtomicReference<>(null);
+
+    RuleMonitor(SessionService sessionService,
+                RuleProcessorService ruleProcessorService,
+                List<Rule> rules,
+                VerdictLog verdictLog,
+                MonitorStats stats,
+                Environment environment) {
+        this.sessionService = sessionService;
+        this.ruleProcessorService = ruleProcessorService;
+        this.rules = rules;
+        this.verdictLog = verdictLog;
+        this.stats = stats;
+
+        this.debounce = Duration.ofMillis(environment.getProperty(DEBOUNCE_PROPERTY, Long.class, 2000L));
+        this.statsInterval = Duration.ofSeconds(Math.max(1L, environment.getProperty(STATS_INTERVAL_PROPERTY, Long.class, 30L)));
+    }
+
+    public void start() {
+        subscription.updateAndGet(disposable -> {
+            if (disposable != null && !disposable.isDisposed()) {
+                return disposable;
+            }
+            log.info("starting rule monitor for {} rules", rules.size());
+            return Flux.merge(monitor(), logStats()).subscribe(
+                    ignored -> {},
+                    throwable -> log.error("rule monitor stopped due to an error", throwable));
+        });
+    }
+
+    public void close() {
+        subscription.updateAndGet(disposable -> {
+            if (disposable != null && !disposable.isDisposed()) {
+                disposable.dispose();
+            }
+            return null;
+        });
+        stats.close();
+        log.info("rule monitor closed: {}", stats);
+    }
+
+    private Flux<?> monitor() {
+        return SessionUpdates.debounced(sessionService, debounce)
+                .doOnNext(session -> stats.sessionSeen())
+                // updates of a session would re-emit every pair. Sessions are only remembered while the engine's
+                // cached verdicts still hold them, so a daemon running for weeks does not keep every pair it has seen
+                .distinct(session -> session, () -> Collections.newSetFromMap(new WeakHashMap<>()))
+                .concatMap(session -> Flux.fromIterable(rules).map(rule -> Tuples.of(session, rule)))
+                // unbounded because live evaluations never complete, the engine bounds the work instead
+                .flatMap(this::evaluate, Integer.MAX_VALUE);
+    }
+
+    private Mono<RuleResult> evaluate(@NotNull Tuple2<Session, Rule> sessionRule) {
+        final Session session = sessionRule.getT1();
+        final Rule rule = sessionRule.getT2();
+        return ruleProcessorService.evaluate(sessionRule)
+                .doOnSubscribe(subscription -> stats.evaluationStarted())
+                .doOnNext(result -> {
+                    if (result.getStatus() == RuleStatus.SUCCESS) {
+                        stats.evaluationSucceeded();
+                    } else {
+                        stats.evaluationFailed();
+                    }
+                    verdictLog.appendVerdict(session, rule, result);
+                    stats.eventWritten();
+                })
+                .onErrorResume(throwable -> {
+                    log.warn("monitor was unable to evaluate rule {} on session {}", rule.name(), session.getName(), throwable);
+                    stats.evaluationError();
+                    try {
+                        verdictLog.appendError(session, rule, throwable);
+                        stats.eventWritten();
+                    } catch (RuntimeException e) {
+                        // the log failing to record an error must not stop the monitor of every other pair as well
+                        log.error("monitor was unable to log the error of rule {} on session {}",
+                                rule.name(), session.getName(), e);
+                    }
+                    return Mono.empty();
+                });
+    }
+
+    private Flux<?> logStats() {
+        return Flux.interval(statsInterval, statsInterval).doOnNext(tick -> log.info("rule monitor: {}", stats));
+    }
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.monitor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.sireum.hamr.inspector.common.ArtUtils;
+import org.sireum.hamr.inspector.common.Msg;
+import org.sireum.hamr.inspector.common.Rule;
+import org.sireum.hamr.inspector.engine.RuleResult;
+import org.sireum.hamr.inspector.services.Session;
+import org.springframework.core.env.Environment;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Appends rule verdicts (and the failure context of failed rules) to a JSON-lines file. Each line is one json object.
+ *
+ * Once the active file grows past its size limit it is renamed with a zero-padded epoch millis suffix (so names sort
+ * chronologically) and a new file is started. Only the newest rotated files are kept.
+ */
+@Slf4j
+public final class VerdictLog {
+
+    static final String DIRECTORY_PROPERTY = "inspector.monitor.output";
+    static final String MAX_FILE_BYTES_PROPERTY = "inspector.monitor.max-file-bytes";
+    static final String MAX_FILES_PROPERTY = "inspector.monitor.max-files";
+
+    private static final String ACTIVE_FILE_NAME = "verdicts.jsonl";
+    private static final String ROTATED_FILE_PREFIX = "verdicts-";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final ArtUtils artUtils;
+    private final Path directory;
+    private final long maxFileBytes;
+    private final int maxFiles;
+
+    private BufferedWriter writer = null;
+    private long bytesWritten = 0L;
+
+    VerdictLog(@NotNull ArtUtils artUtils, @NotNull Path directory, long maxFileBytes, int maxFiles) {
+        this.artUtils = artUtils;
+        this.directory = directory;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = Math.max(1, maxFiles);
+    }
+
+    static VerdictLog fromEnvironment(@NotNull Environment environment, @NotNull ArtUtils artUtils) {
+        final Path directory = Path.of(environment.getProperty(DIRECTORY_PROPERTY, "inspector-monitor"));
+        final long maxFileBytes = environment.getProperty(MAX_FILE_BYTES_PROPERTY, Long.class, 64L * 1024L * 1024L);
+        final int maxFiles = environment.getProperty(MAX_FILES_PROPERTY, Integer.class, 10);
+        return new VerdictLog(artUtils, directory, maxFileBytes, maxFiles);
+    }
+
+    public synchronized void appendVerdict(@NotNull Session session, @NotNull Rule rule, @NotNull RuleResult result) {
+        final Map<String, Object> event = new LinkedHashMap<>();
+        event.put("type", "verdict");
+        event.put("time", Instant.now().toString());
+        event.put("session", session.getName());
+        event.put("rule", rule.name());
+        event.put("status", result.getStatus().toString());
+        event.put("stopTime", result.getStopTime());
+        if (result.getCause() != null) {
+            event.put("cause", result.getCause().toString());
+            event.put("failureContext", result.getLastMsgs().stream().map(this::toJson).collect(Collectors.toList()));
+        }
+        append(event);
+    }
+
+    public synchronized void appendError(@NotNull Session session, @NotNull Rule rule, @NotNull Throwable throwable) {
+        final Map<String, Object> event = new LinkedHashMap<>();
+        event.put("type", "error");
+        event.put("time", Instant.now().toString());
+        event.put("session", session.getName());
+        event.put("rule", rule.name());
+        event.put("cause", throwable.toString());
+        append(event);
+    }
+
+    @NotNull
+    private Map<String, Object> toJson(@NotNull Msg msg) {
+        final Map<String, Object> json = new LinkedHashMap<>();
+        json.put("sequence", msg.sequence());
+        json.put("timestamp", msg.timestamp());
+        json.put("src", artUtils.prettyPrint(msg.src()));
+        json.put("dst", artUtils.prettyPrint(msg.dst()));
+        json.put("data", msg.data().toString());
+        return json;
+    }
+
+    private void append(@NotNull Map<String, Object> event) {
+        try {
+            final String line = mapper.writeValueAsString(event) + System.lineSeparator();
+            if (writer == null || bytesWritten >= maxFileBytes) {
+                rotate();
+            }
+            writer.write(line);
+            writer.flush();
+            bytesWritten += line.getBytes(StandardCharsets.UTF_8).length;
+        } catch (IOException e) {
+            throw new UncheckedIOException("unable to append to verdict log in " + directory, e);
+        }
+    }
+
+    private void rotate() throws IOException {
+        Files.createDirectories(directory);
+        final Path active = directory.resolve(ACTIVE_FILE_NAME);
+
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+
+        if (Files.exists(active) && Files.size(active) >= maxFileBytes) {
+            final String suffix = String.format(Locale.ROOT, "%019d", System.currentTimeMillis());
+            final Path rotated = directory.resolve(ROTATED_FILE_PREFIX + suffix + ".jsonl");
+            Files.move(active, rotated, StandardCopyOption.ATOMIC_MOVE);
+            log.info("rotated verdict log to {}", rotated);
+            deleteOldestRotatedFiles();
+        }
+
+        writer = Files.newBufferedWriter(active, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        bytesWritten = Files.size(active);
+    }
+
+    private void deleteOldestRotatedFiles() throws IOException {
+        final List<Path> rotated;
+        try (Stream<Path> files = Files.list(directory)) {
+            rotated = files
+                    .filter(path -> path.getFileName().toString().startsWith(ROTATED_FILE_PREFIX))
+                    .sorted() // the fixed width epoch millis suffix sorts chronologically
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+        // the active file counts towards maxFiles
+        while (rotated.size() > maxFiles - 1) {
+            final Path oldest = rotated.remove(0);
+            Files.deleteIfExists(oldest);
+            log.info("deleted old verdict log {}", oldest);
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+}
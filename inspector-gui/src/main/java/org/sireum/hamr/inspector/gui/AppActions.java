@@ -36,12 +36,14 @@ import org.sireum.hamr.inspector.common.ArtUtils;
 import org.sireum.hamr.inspector.common.Filter;
 import org.sireum.hamr.inspector.common.Injection;
 import org.sireum.hamr.inspector.common.Rule;
+import org.sireum.hamr.inspector.engine.RuleWatchService;
 import org.sireum.hamr.inspector.engine.ServiceBeans;
 import org.sireum.hamr.inspector.gui.modules.arch.ArchTab;
 import org.sireum.hamr.inspector.gui.modules.console.ConsoleTab;
 import org.sireum.hamr.inspector.gui.modules.msc.MscTab;
 import org.sireum.hamr.inspector.gui.modules.rules.RulesTab;
 import org.sireum.hamr.inspector.gui.tasks.reports.GenerateTestReportTask;
+import org.sireum.hamr.inspector.gui.tasks.reports.ReportSettings;
 import org.sireum.hamr.inspector.gui.tasks.reports.RuleTestJob;
 import org.sireum.hamr.inspector.services.InjectionService;
 import org.sireum.hamr.inspector.services.MsgService;
@@ -50,13 +52,10 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
-import reactor.core.publisher.Flux;
+import org.springframework.core.env.Environment;
 import reactor.core.scheduler.Schedulers;
-import scala.collection.JavaConverters;
 
-import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
 import java.util.Optional;
 
 @Lazy
@@ -74,6 +73,8 @@ public class AppActions {
 
     private final ServiceBeans serviceBeans;
 
+    private final RuleWatchService ruleWatchService;
+
     private final ObservableList<Session> sessions;
 
     private final ObservableList<Rule> rules;
@@ -81,6 +82,8 @@ public class AppActions {
 
     private final ObservableList<Injection> injections;
 
+    private final Environment environment;
+
     public AppActions(AppLoader appLoader,
                       MsgService msgService,
                       InjectionService injectionService,
@@ -89,7 +92,9 @@ public class AppActions {
                       @Qualifier("filters") ObservableList<Filter> filters,
                       @Qualifier("injections") ObservableList<Injection> injections,
                       ServiceBeans serviceBeans,
-                      ArtUtils artUtils) {
+                      RuleWatchService ruleWatchService,
+                      ArtUtils artUtils,
+                      Environment environment) {
         this.msgService = msgService;
         this.injectionService = injectionService;
         this.sessions = sessions;
@@ -98,7 +103,9 @@ public class AppActions {
         this.filters = filters;
         this.injections = injections;
         this.serviceBeans = serviceBeans;
+        this.ruleWatchService = ruleWatchService;
         this.artUtils = artUtils;
+        this.environment = environment;
     }
 
     @Lazy @Bean(name = "refreshSessionsAction")
@@ -109,6 +116,23 @@ public class AppActions {
         });
     }
 
+    @Lazy @Bean(name = "watchSessionsAction")
+    public Action watchSessionsAction() {
+        final Action action = new Action("Watch Sessions");
+        action.setLongText("Evaluate all rules on new and updated sessions in the background");
+        action.setSelected(ruleWatchService.isWatching());
+        action.selectedProperty().addListener((observable, wasSelected, isSelected) -> {
+            if (isSelected) {
+                log.info("Enabling rule watch mode.");
+                ruleWatchService.start();
+            } else {
+                log.info("Disabling rule watch mode.");
+                ruleWatchService.stop();
+            }
+        });
+        return action;
+    }
+
     @Lazy @Bean(name = "runInjectionAction")
     public Action runInjectionAction() {
         return new Action("Run Injection", event -> {
@@ -151,18 +175,10 @@ public class AppActions {
     @Lazy @Bean(name = "generateTestReportAction")
     public Action generateTestReportAction() {
         return new Action("Generate Test Report", event -> {
-            final Flux<RuleTestJob> loneTestCases = Flux.fromIterable(rules)
-                    .flatMap(rule -> Flux.fromIterable(sessions).map(session -> new RuleTestJob(rule, session)));
-
-            final Flux<RuleTestJob> pairedCases = Flux.fromIterable(filters)
-                    .flatMapIterable(filter -> JavaConverters.asJavaCollection(filter.rules()))
-                    .flatMap(rule -> Flux.fromIterable(sessions).map(session -> new RuleTestJob(rule, session)));
-
-            final List<RuleTestJob> testCases = Objects.requireNonNullElseGet(
-                        Flux.concat(loneTestCases, pairedCases).collectList().block(),
-                        Collections::emptyList);
+            final List<RuleTestJob> testCases = RuleTestJob.matrix(rules, filters, sessions);
 
-            final var task = new GenerateTestReportTask(testCases, msgService, artUtils);
+            final var task = new GenerateTestReportTask(testCases, msgService, artUtils,
+                    ReportSettings.fromEnvironment(environment));
 
             Notifications.create()
                     .title("Generate Test Report Task Created")
@@ -31,6 +31,7 @@ import javafx.beans.binding.NumberBinding;
 import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.Node;
+import javafx.scene.control.CheckMenuItem;
 import javafx.scene.control.MenuItem;
 import javafx.scene.control.Tab;
 import lombok.Getter;
@@ -87,6 +88,10 @@ public class AppNode {
     @Qualifier("runInjectionAction")
     private Action runInjectionAction;
 
+    @Autowired
+    @Qualifier("watchSessionsAction")
+    private Action watchSessionsAction;
+
     @FXML
     public DockablePane rootTabPane;
 
@@ -111,6 +116,9 @@ public class AppNode {
     @FXML
     public MenuItem runInjectionMenuItem;
 
+    @FXML
+    public CheckMenuItem watchSessionsMenuItem;
+
     @FXML
     public TaskProgressView<Task<?>> taskProgressView;
 
@@ -134,6 +142,7 @@ public class AppNode {
         // todo hide add unstable / "beta" warning?
         ActionUtils.configureMenuItem(generateTestReportAction, generateReportMenuItem);
         ActionUtils.configureMenuItem(runInjectionAction, runInjectionMenuItem);
+        ActionUtils.configureMenuItem(watchSessionsAction, watchSessionsMenuItem);
     }
 
     private void initTaskProgressView() {
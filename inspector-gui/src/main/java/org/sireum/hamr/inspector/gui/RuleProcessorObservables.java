@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import javafx.application.Platform;
+import javafx.beans.property.SimpleLongProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.value.ObservableLongValue;
+import javafx.beans.value.ObservableObjectValue;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.sireum.hamr.inspector.common.Msg;
+import org.sireum.hamr.inspector.common.Rule;
+import org.sireum.hamr.inspector.engine.RuleEngine;
+import org.sireum.hamr.inspector.engine.RuleResult;
+import org.sireum.hamr.inspector.services.RuleStatus;
+import org.sireum.hamr.inspector.services.Session;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.util.function.Tuple2;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Adapts the reactive {@link RuleEngine} to JavaFX observables. All observables are updated on the fx thread.
+ */
+@Slf4j
+@Component
+public class RuleProcessorObservables {
+
+    private final RuleEngine ruleEngine;
+
+    @ThreadedOn(threadName = "fx")
+    private final LoadingCache<Tuple2<Session, Rule>, ObservableResult> CACHE;
+
+    public RuleProcessorObservables(RuleEngine ruleEngine) {
+        this.ruleEngine = ruleEngine;
+        this.CACHE = Caffeine.newBuilder().build(ObservableResult::new);
+    }
+
+    @NotNull
+    public ObservableObjectValue<RuleStatus> getRuleStatusObservable(@NotNull Tuple2<Session, Rule> sessionRule) {
+        return get(sessionRule).status;
+    }
+
+    /**
+     *
+     * @param sessionRule the session and rule which should be applied to find the stop time
+     * @return An {@link ObservableLongValue} initially containing null and then updated to match the time
+     */
+    @NotNull
+    public ObservableLongValue getRuleStopTimeObservable(@NotNull Tuple2<Session, Rule> sessionRule) {
+        return get(sessionRule).stopTime;
+    }
+
+    @NotNull
+    public ObservableObjectValue<List<Msg>> getRuleLastMsgObservable(@NotNull Tuple2<Session, Rule> sessionRule) {
+        return get(sessionRule).lastMsgs;
+    }
+
+    @NotNull
+    public ObservableObjectValue<Throwable> getErrorCause(@NotNull Tuple2<Session, Rule> sessionRule) {
+        return get(sessionRule).cause;
+    }
+
+    @NotNull
+    private ObservableResult get(@NotNull Tuple2<Session, Rule> sessionRule) {
+        return Objects.requireNonNull(CACHE.get(sessionRule));
+    }
+
+    /**
+     * Holds the observables of one sessionRule. They are created together and updated together (later) on the fx thread
+     * once the engine reports a result.
+     */
+    private final class ObservableResult {
+
+        final SimpleObjectProperty<RuleStatus> status = new SimpleObjectProperty<>(RuleStatus.RUNNING);
+        final SimpleLongProperty stopTime = new SimpleLongProperty();
+        final SimpleObjectProperty<List<Msg>> lastMsgs = new SimpleObjectProperty<>();
+        final SimpleObjectProperty<Throwable> cause = new SimpleObjectProperty<>();
+
+        @SuppressWarnings({"unused", "FieldCanBeLocal"})
+        private final Disposable subscription;
+
+        ObservableResult(Tuple2<Session, Rule> sessionRule) {
+            final Session session = sessionRule.getT1();
+            final Rule rule = sessionRule.getT2();
+
+            subscription = ruleEngine.evaluate(sessionRule).subscribe(result -> {
+                log.info("rule {} session {} completed with status {}, invoking propertyUpdate later...",
+                        rule.name(), session.getName(), result.getStatus());
+                Platform.runLater(() -> {
+                    log.info("javafx property has been updated to reflect rule {} session {} status of {}",
+                            rule.name(), session.getName(), result.getStatus());
+                    update(result);
+                });
+            });
+        }
+
+        private void update(RuleResult result) {
+            lastMsgs.set(result.getLastMsgs());
+            final Long time = result.getStopTime();
+            if (time != null) {
+                stopTime.set(time);
+            }
+            cause.set(result.getCause());
+            status.set(result.getStatus());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.collections;
+
+import java.util.Arrays;
+
+/**
+ * A Fenwick (binary indexed) tree of the number of rows each run takes, which grows as runs are appended.
+ */
+final class RowTree {
+
+    private long[] tree;
+    private long[] values;
+    private int size = 0;
+    private long total = 0;
+
+    RowTree(int capacity) {
+        tree = new long[capacity + 1];
+        values = new long[capacity];
+    }
+
+    long total() {
+        return total;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void append(long value) {
+        if (size == values.length) {
+            grow();
+        }
+        size++;
+        add(size - 1, value);
+    }
+
+    void add(int i, long delta) {
+        values[i] += delta;
+        total += delta;
+        for (int j = i + 1; j < tree.length; j += j & -j) {
+            tree[j] += delta;
+        }
+    }
+
+    /**
+     * @return the sum of the values before i
+     */
+    long prefixSum(int i) {
+        long sum = 0;
+        for (int j = i; j > 0; j -= j & -j) {
+            sum += tree[j];
+        }
+        return sum;
+    }
+
+    /**
+     * @return the i whose range of [prefixSum(i), prefixSum(i + 1)) holds the target
+     */
+    int indexOf(long target) {
+        int i = 0;
+        long remaining = target;
+        for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+            final int next = i + step;
+            if (next < tree.length && tree[next] <= remaining) {
+                i = next;
+                remaining -= tree[next];
+            }
+        }
+        return Math.min(i, size - 1);
+    }
+
+    // rebuilds the tree at twice the capacity in linear time
+    private void grow() {
+        values = Arrays.copyOf(values, values.length * 2);
+        tree = new long[values.length + 1];
+        for (int i = 1; i <= size; i++) {
+            tree[i] += values[i - 1];
+            final int parent = i + (i & -i);
+            if (parent < tree.length) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+}
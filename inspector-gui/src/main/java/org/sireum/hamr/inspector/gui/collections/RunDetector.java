@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.collections;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Finds runs of consecutive msgs sent from the same src port to the same dst port in a single pass, as msgs are
+ * appended in order. Only the start index and first and last timestamps of each run are kept, never the msgs.
+ *
+ * Runs carry on across calls to {@link #append(Object, Object, long)}, so they are the same no matter how the msgs
+ * were chunked when they arrived.
+ */
+final class RunDetector {
+
+    // the index of each run's first msg, and the timestamps of its first and last msgs
+    private long[] starts;
+    private long[] firstTimestamps;
+    private long[] lastTimestamps;
+    private int runCount = 0;
+    private long msgCount = 0;
+
+    // the ports of the last msg seen, which the next msg must match to continue its run
+    @Nullable
+    private Object lastSrc = null;
+    @Nullable
+    private Object lastDst = null;
+
+    RunDetector(int initialCapacity) {
+        starts = new long[initialCapacity];
+        firstTimestamps = new long[initialCapacity];
+        lastTimestamps = new long[initialCapacity];
+    }
+
+    /**
+     * Appends the next msg, whose index is {@link #msgCount()}.
+     *
+     * @return true if the msg started a new run, false if it continued the last run
+     */
+    boolean append(@NotNull Object src, @NotNull Object dst, long timestamp) {
+        return append(src, dst, 1, timestamp, timestamp);
+    }
+
+    /**
+     * Appends the next count msgs, which were all sent from src to dst, so a chunk can be merged into runs before it
+     * reaches the thread which owns this detector.
+     *
+     * @return true if the msgs started a new run, false if they continued the last run
+     */
+    boolean append(@NotNull Object src, @NotNull Object dst, long count, long firstTimestamp, long lastTimestamp) {
+        final boolean isNewRun = runCount == 0 || !src.equals(lastSrc) || !dst.equals(lastDst);
+        if (isNewRun) {
+            if (runCount == starts.length) {
+                final int capacity = starts.length * 2;
+                starts = Arrays.copyOf(starts, capacity);
+                firstTimestamps = Arrays.copyOf(firstTimestamps, capacity);
+                lastTimestamps = Arrays.copyOf(lastTimestamps, capacity);
+            }
+            starts[runCount] = msgCount;
+            firstTimestamps[runCount] = firstTimestamp;
+            runCount++;
+            lastSrc = src;
+            lastDst = dst;
+        }
+        lastTimestamps[runCount - 1] = lastTimestamp;
+        msgCount += count;
+        return isNewRun;
+    }
+
+    int runCount() {
+        return runCount;
+    }
+
+    long msgCount() {
+        return msgCount;
+    }
+
+    long startOf(int run) {
+        return starts[run];
+    }
+
+    long countOf(int run) {
+        return (run + 1 < runCount ? starts[run + 1] : msgCount) - starts[run];
+    }
+
+    long firstTimestampOf(int run) {
+        return firstTimestamps[run];
+    }
+
+    long lastTimestampOf(int run) {
+        return lastTimestamps[run];
+    }
+
+    /**
+     * @return the run holding the msg at index, or -1 if there are no runs yet
+     */
+    int runOf(long index) {
+        final int run = Arrays.binarySearch(starts, 0, runCount, index);
+        return run >= 0 ? run : -run - 2; // otherwise the run starting before index
+    }
+
+}
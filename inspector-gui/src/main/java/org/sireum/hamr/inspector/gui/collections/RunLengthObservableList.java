@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.collections;
+
+import impl.org.controlsfx.collections.ReadOnlyUnbackedObservableList;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyLongProperty;
+import javafx.beans.property.ReadOnlyLongWrapper;
+import javafx.collections.ListChangeListener;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.sireum.hamr.inspector.common.Msg;
+import org.sireum.hamr.inspector.gui.ThreadedOn;
+import reactor.core.Disposable;
+
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A view of an {@link UnbackedLinearAccessObservableList} where each run of consecutive {@link Msg}s sent from the same
+ * src port to the same dst port is collapsed into a single row (showing the run's first {@link Msg}). Any run can be
+ * expanded back into one row per {@link Msg} with {@link #toggle(int)}.
+ *
+ * Runs are found in a single pass over the backing list's {@link Msg}s, streamed from its first {@link Msg} off the fx
+ * thread, so the backing list is never read back to find them. Each chunk is merged into runs before it is handed to
+ * the fx thread, where a {@link RunDetector} keeps only the start index and first and last timestamps of each run,
+ * never the {@link Msg}s themselves. The rows of each run are kept in a {@link RowTree}, so mapping between rows and
+ * runs, expanding and collapsing all take O(log runs).
+ *
+ * Whenever the head row of a run changes (because the run grew or was toggled) its msg stays the same, so it is not a
+ * list change. It is announced through {@link #headChangesProperty()} instead, so only the cells showing that row have
+ * to redraw rather than the whole table.
+ */
+@ThreadedOn(threadName = "fx")
+public class RunLengthObservableList extends ReadOnlyUnbackedObservableList<Msg> implements Disposable {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final int MAX_CHUNK_SIZE = 1024;
+    private static final Duration MAX_CHUNK_REFRESH = Duration.ofMillis(100);
+
+    @NotNull
+    private final UnbackedLinearAccessObservableList msgs;
+
+    private final RunDetector runs = new RunDetector(INITIAL_CAPACITY);
+    private final BitSet expanded = new BitSet();
+    private final RowTree rows = new RowTree(INITIAL_CAPACITY);
+
+    private final ReadOnlyLongWrapper headChanges = new ReadOnlyLongWrapper(this, "headChanges", 0L);
+    private int changedHead = -1;
+
+    // chunks whose msgs the backing list has not counted yet
+    private final ArrayDeque<RunChunk> pending = new ArrayDeque<>();
+
+    private final ListChangeListener<Msg> msgsChangeListener = change -> appendPending();
+
+    private final Disposable runFinder;
+
+    public RunLengthObservableList(@NotNull UnbackedLinearAccessObservableList msgs) {
+        this.msgs = msgs;
+        msgs.addListener(msgsChangeListener);
+
+        runFinder = msgs.msgsFromStart()
+                .bufferTimeout(MAX_CHUNK_SIZE, MAX_CHUNK_REFRESH)
+                .map(RunLengthObservableList::runsOf)
+                .subscribe(chunk -> Platform.runLater(() -> {
+                    if (!isDisposed()) {
+                        pending.addLast(chunk);
+                        appendPending();
+                    }
+                }));
+    }
+
+    /**
+     * Disposes the backing list, which this view owns.
+     */
+    @Override
+    public void dispose() {
+        runFinder.dispose();
+        msgs.removeListener(msgsChangeListener);
+        msgs.dispose();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return msgs.isDisposed();
+    }
+
+    @Override
+    public Msg get(int row) {
+        final int run = runAt(row);
+        final long offset = row - rows.prefixSum(run);
+        return msgs.get((int) (runs.startOf(run) + offset));
+    }
+
+    @Override
+    public int size() {
+        return (int) rows.total();
+    }
+
+    /**
+     * @return the run shown at the row
+     */
+    public int runAt(int row) {
+        return rows.indexOf(row);
+    }
+
+    /**
+     * @return true if the row is the first row of its run, which is the only row of a collapsed run
+     */
+    public boolean isRunHead(int row) {
+        return rows.prefixSum(runAt(row)) == row;
+    }
+
+    /**
+     * @return the row of the msg at index in the backing list, which for a collapsed run is the run's only row
+     */
+    public int rowOf(long index) {
+        final int run = runs.runOf(index);
+        if (run < 0) {
+            return 0;
+        }
+        final long head = rows.prefixSum(run);
+        return (int) (expanded.get(run) ? head + (index - runs.startOf(run)) : head);
+    }
+
+    public long countOf(int run) {
+        return runs.countOf(run);
+    }
+
+    public long firstTimestampOf(int run) {
+        return runs.firstTimestampOf(run);
+    }
+
+    public long lastTimestampOf(int run) {
+        return runs.lastTimestampOf(run);
+    }
+
+    public boolean isExpanded(int run) {
+        return expanded.get(run);
+    }
+
+    /**
+     * @return a count of the changes to head rows, which goes up each time a run's head row changes
+     */
+    public ReadOnlyLongProperty headChangesProperty() {
+        return headChanges.getReadOnlyProperty();
+    }
+
+    /**
+     * @return the head row which changed most recently, see {@link #headChangesProperty()}
+     */
+    public int getChangedHead() {
+        return changedHead;
+    }
+
+    /**
+     * Expands the run into one row per msg if it is collapsed, or collapses it back into one row if it is expanded.
+     */
+    public void toggle(int run) {
+        final long count = countOf(run);
+        if (count <= 1) {
+            return;
+        }
+
+        final int head = (int) rows.prefixSum(run);
+        if (expanded.get(run)) {
+            expanded.clear(run);
+            rows.add(run, -(count - 1));
+            beginChange();
+            nextRemove(head + 1, new MsgRange(runs.startOf(run) + 1, (int) (count - 1)));
+            endChange();
+        } else {
+            ensureFitsInRows(rows.total() + (count - 1));
+            expanded.set(run);
+            rows.add(run, count - 1);
+            beginChange();
+            nextAdd(head + 1, head + (int) count);
+            endChange();
+        }
+        headChanged(run);
+    }
+
+    /**
+     * Appends the chunks of runs whose msgs the backing list has already counted, so {@link #get(int)} never reads
+     * past the backing list's end.
+     */
+    private void appendPending() {
+        final int oldSize = size();
+        final int oldLastRun = runs.runCount() - 1;
+        final long oldLastCount = oldLastRun < 0 ? 0 : runs.countOf(oldLastRun);
+
+        while (!pending.isEmpty() && runs.msgCount() + pending.peekFirst().msgCount <= msgs.size()) {
+            for (Segment segment : pending.pollFirst().segments) {
+                append(segment);
+            }
+        }
+        ensureFitsInRows(rows.total());
+
+        final int newSize = size();
+        if (newSize > oldSize) {
+            beginChange();
+            nextAdd(oldSize, newSize);
+            endChange();
+        }
+        if (oldLastRun >= 0 && runs.countOf(oldLastRun) != oldLastCount) {
+            headChanged(oldLastRun);
+        }
+    }
+
+    private void append(@NotNull Segment segment) {
+        if (runs.append(segment.src, segment.dst, segment.count, segment.firstTimestamp, segment.lastTimestamp)) {
+            rows.append(1); // new runs start collapsed
+        } else {
+            final int lastRun = runs.runCount() - 1;
+            if (expanded.get(lastRun)) {
+                rows.add(lastRun, segment.count);
+            }
+        }
+    }
+
+    // runs off the fx thread, so the fx thread only appends one segment per run of the chunk
+    @NotNull
+    private static RunChunk runsOf(@NotNull List<Msg> chunk) {
+        final List<Segment> segments = new ArrayList<>();
+        @Nullable Segment last = null;
+        for (Msg msg : chunk) {
+            if (last != null && last.src.equals(msg.src()) && last.dst.equals(msg.dst())) {
+                last.count++;
+                last.lastTimestamp = msg.timestamp();
+            } else {
+                last = new Segment(msg.src(), msg.dst(), msg.timestamp());
+                segments.add(last);
+            }
+        }
+        return new RunChunk(segments, chunk.size());
+    }
+
+    private void headChanged(int run) {
+        changedHead = (int) rows.prefixSum(run);
+        headChanges.set(headChanges.get() + 1);
+    }
+
+    private static void ensureFitsInRows(long rowCount) {
+        if (rowCount > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Cannot show more than int max value rows");
+        }
+    }
+
+    /**
+     * Consecutive msgs of a chunk which were all sent from the same src port to the same dst port. The last segment of
+     * a chunk may still continue into the next chunk, which {@link RunDetector} takes care of.
+     */
+    private static final class Segment {
+
+        private final Object src;
+        private final Object dst;
+        private final long firstTimestamp;
+        private long lastTimestamp;
+        private long count = 1;
+
+        private Segment(Object src, Object dst, long timestamp) {
+            this.src = src;
+            this.dst = dst;
+            this.firstTimestamp = timestamp;
+            this.lastTimestamp = timestamp;
+        }
+    }
+
+    private static final class RunChunk {
+
+        private final List<Segment> segments;
+        private final int msgCount;
+
+        private RunChunk(List<Segment> segments, int msgCount) {
+            this.segments = segments;
+            this.msgCount = msgCount;
+        }
+    }
+
+    /**
+     * The msgs of a range of the backing list, read only when a listener asks for them.
+     */
+    private final class MsgRange extends AbstractList<Msg> {
+
+        private final long from;
+        private final int size;
+
+        private MsgRange(long from, int size) {
+            this.from = from;
+            this.size = size;
+        }
+
+        @Override
+        public Msg get(int i) {
+            return msgs.get((int) (from + i));
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+}
@@ -32,16 +32,10 @@ import org.jetbrains.annotations.Nullable;
 import org.sireum.hamr.inspector.common.ArtUtils;
 import org.sireum.hamr.inspector.common.Filter;
 import org.sireum.hamr.inspector.common.Msg;
+import org.sireum.hamr.inspector.engine.FilterPipelineService;
 import org.sireum.hamr.inspector.gui.ThreadedOn;
-import org.sireum.hamr.inspector.services.MsgService;
 import org.sireum.hamr.inspector.services.Session;
-import org.sireum.hamr.inspector.stream.Flux;
-import org.sireum.hooks.TimeBarriers;
-import org.sireum.hooks.TimeUtils;
-import org.springframework.data.domain.Range;
 import reactor.core.Disposable;
-import reactor.core.publisher.BufferOverflowStrategy;
-import reactor.core.scheduler.Schedulers;
 import reactor.util.function.Tuple2;
 
 import java.time.Duration;
@@ -58,14 +52,19 @@ import java.util.Objects;
  * to instead return null or a dummmy-value immediately, and fake a list-update when the actual {@link Msg} arrives
  * asynchronously.
  *
+ * New {@link Msg}s are counted from the live (session, filter) pipeline shared through {@link FilterPipelineService},
+ * which only keeps its newest msgs. Older pages are read back from the stored session with
+ * {@link FilterPipelineService#page}, so memory stays bounded by the buffers below no matter how long the session is.
+ *
+ * The list keeps its live subscription until it is disposed, which its owner must do once the list is no longer shown.
  */
-public class UnbackedLinearAccessObservableList extends ReadOnlyUnbackedObservableList<Msg> {
+public class UnbackedLinearAccessObservableList extends ReadOnlyUnbackedObservableList<Msg> implements Disposable {
 
     @NotNull
     private final ArtUtils artUtils;
 
     @NotNull
-    private final MsgService msgService;
+    private final FilterPipelineService filterPipelineService;
 
     @NotNull
     private final Session session;
@@ -79,8 +78,6 @@ public class UnbackedLinearAccessObservableList extends ReadOnlyUnbackedObservab
     @ThreadedOn(threadName = "fx")
     private int count = 0;
 
-    private final reactor.core.publisher.Flux<Msg> filteredMsgs;
-
     final int MAX_UPDATE_CHUNK_SIZE = 256;
     final Duration MAX_UPDATE_REFRESH = Duration.ofMillis(100);
 
@@ -111,20 +108,17 @@ public class UnbackedLinearAccessObservableList extends ReadOnlyUnbackedObservab
     private final Disposable counter;
 
     public UnbackedLinearAccessObservableList(@NotNull ArtUtils artUtils,
-                                              @NotNull MsgService msgService,
+                                              @NotNull FilterPipelineService filterPipelineService,
                                               @NotNull Session session,
                                               @NotNull Filter filter) {
         this.artUtils = artUtils;
-        this.msgService = msgService;
+        this.filterPipelineService = filterPipelineService;
         this.session = session;
         this.filter = filter;
 
         backingBuffer = new CircularNonSequentialGrowthBuffer<>(new Msg[backingArraySize]);
 
-        filteredMsgs = virtualFilterLimitRate(msgService.live(session, Range.unbounded()), backingArraySize, filter);
-
-        counter = filteredMsgs
-                .index()
+        counter = filterPipelineService.live(session, filter)
                 .bufferTimeout(MAX_UPDATE_CHUNK_SIZE, MAX_UPDATE_REFRESH)
                 .subscribe(
                         indexedMsgs -> {
@@ -132,7 +126,6 @@ public class UnbackedLinearAccessObservableList extends ReadOnlyUnbackedObservab
                                 return;
                             }
 
-                            final long firstIndex = indexedMsgs.get(0).getT1();
                             final long lastIndex = indexedMsgs.get(indexedMsgs.size() - 1).getT1();
                             if (lastIndex >= Integer.MAX_VALUE) {
                                 // count is 1 greater than (0-based) lastIndex, so cant be greater than OR equal
@@ -140,6 +133,9 @@ public class UnbackedLinearAccessObservableList extends ReadOnlyUnbackedObservab
                             }
 
                             Platform.runLater(() -> {
+                                // a list subscribing to a running pipeline only sees its tail, so the first chunk can
+                                // start after msgs which were never seen live (get() pages those from the store)
+                                final int oldCount = count;
                                 count = 1 + (int) lastIndex;
                                 for (Tuple2<Long, Msg> indexedMsg : indexedMsgs) {
                                     final Msg msg = indexedMsg.getT2();
@@ -148,12 +144,31 @@ public class UnbackedLinearAccessObservableList extends ReadOnlyUnbackedObservab
                                 }
 
                                 beginChange();
-                                nextAdd((int) firstIndex, (int) lastIndex);
+                                nextAdd(oldCount, count);
                                 endChange();
                             });
                         }
                 );
+    }
 
+    /**
+     * Stops counting new msgs and cancels any page still being fetched.
+     */
+    @Override
+    @ThreadedOn(threadName = "fx")
+    public void dispose() {
+        counter.dispose();
+        for (int i = 0; i < numBackbuffers; i++) {
+            if (buffersCorrespondingMaybeDisposable[i] != null) {
+                buffersCorrespondingMaybeDisposable[i].dispose();
+                buffersCorrespondingMaybeDisposable[i] = null;
+            }
+        }
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return counter.isDisposed();
     }
 
     private boolean bufferBoundaryCrossed(int newIndex, int tol) {
@@ -228,12 +243,7 @@ public class UnbackedLinearAccessObservableList extends ReadOnlyUnbackedObservab
 
                 if (nextBufferGlobalIndex >= 0 && buffersCorrespondingGlobalIndex[nextBufferLocalIndex] != nextBufferGlobalIndex) {
                     buffersCorrespondingGlobalIndex[nextBufferLocalIndex] = nextBufferGlobalIndex;
-                    final Disposable d = msgService.replay(session, Range.unbounded())
-                            // todo overkill for replay? (the rate limiting and backpressure buffering?)s
-                            .transform(flux -> virtualFilterLimitRate(flux, backingArraySize, filter))
-                            .skip(globalBufferToStartIndex(nextBufferGlobalIndex))
-                            .take(backingArraySize)
-                            .collectList()
+                    final Disposable d = fetchBuffer(nextBufferGlobalIndex)
                             .subscribe(
                                     list -> Platform.runLater(() -> {
                                         // buffersCorrespondingGlobalIndex[nextBufferLocalIndex] == nextBufferGlobalIndex
@@ -277,13 +287,7 @@ public class UnbackedLinearAccessObservableList extends ReadOnlyUnbackedObservab
             buffersCorrespondingMaybeDisposable[bufferLocalIndex] = null;
         }
 
-        final reactor.core.publisher.Mono<List<Msg>> serviceQuery = msgService.replay(session, Range.unbounded())
-                .transform(flux -> virtualFilterLimitRate(flux, backingArraySize, filter))
-                .skip(globalBufferToStartIndex(bufferGlobalIndex))
-                .take(backingArraySize)
-                .collectList();
-
-        final List<Msg> list = Objects.requireNonNull(serviceQuery.block());
+        final List<Msg> list = Objects.requireNonNull(fetchBuffer(bufferGlobalIndex).block());
         arrayCopy(list, buffers[bufferLocalIndex]);
         return tryGet(i);
     }
@@ -294,15 +298,22 @@ public class UnbackedLinearAccessObservableList extends ReadOnlyUnbackedObservab
         return count;
     }
 
-    private static reactor.core.publisher.Flux<Msg> virtualFilterLimitRate(reactor.core.publisher.Flux<Msg> flux, int backingArraySize, Filter filter) {
-        return flux
-                .limitRate(backingArraySize, backingArraySize) // overkill for replay?
-                .onBackpressureBuffer(backingArraySize, BufferOverflowStrategy.ERROR) // overkill for replay?
-                .map(msg -> TimeUtils.attachTimestamp(msg.timestamp(), msg))
-                .publishOn(Schedulers.elastic())
-                .transform(TimeBarriers::ENTER_VIRTUAL_TIME)
-                .transformDeferred(it -> it.publish(lockStep -> filter.filter(Flux.from(lockStep))))
-                .transform(TimeBarriers::EXIT_VIRTUAL_TIME);
+    /**
+     * Streams every msg of this list from index 0, off the fx thread, so a view can scan the whole list without
+     * calling {@link #get(int)} (which blocks the fx thread on each page it has not cached).
+     *
+     * @return the msgs in index order, followed by new msgs as they arrive
+     */
+    reactor.core.publisher.Flux<Msg> msgsFromStart() {
+        return filterPipelineService.filtered(session, filter);
+    }
+
+    // only takes msgs which are already counted, otherwise a buffer at the live edge would wait for msgs to arrive
+    @ThreadedOn(threadName = "fx")
+    private reactor.core.publisher.Mono<List<Msg>> fetchBuffer(int globalBufferIndex) {
+        final int startIndex = globalBufferToStartIndex(globalBufferIndex);
+        final int highWaterMark = Math.min(startIndex + backingArraySize, count); // read once, on the fx thread
+        return filterPipelineService.page(session, filter, startIndex, highWaterMark).collectList();
     }
 
     // only allows for growth
@@ -332,7 +343,7 @@ public class UnbackedLinearAccessObservableList extends ReadOnlyUnbackedObservab
         @Nullable
         public T tryGet(int i) {
             final int tail = Math.max(tailCutoff, next - backingArray.length);
-            if (tail <= next && i < next) {
+            if (tail <= i && i < next) {
                 final int actual = i % backingArray.length;
                 return backingArray[actual];
             } else {
@@ -40,25 +40,24 @@ public class BridgeTableCell extends TableCell<Msg, Bridge> {
     private final ArtUtils artUtils;
     private final Coloring<Bridge> bridgeColoring;
 
+    // reused for every item, only its text and color change
+    private final Label label = new Label();
+
     public BridgeTableCell(ArtUtils artUtils, Coloring<Bridge> bridgeColoring) {
         this.artUtils = artUtils;
         this.bridgeColoring = bridgeColoring;
+        setGraphic(label);
     }
 
     @Override
     protected void updateItem(Bridge item, boolean empty) {
         super.updateItem(item, empty);
         if (empty || item == null) {
-            setGraphic(null);
+            label.setVisible(false);
         } else {
-            setGraphic(createBridgeLabel(item));
+            label.setText(artUtils.prettyPrint(item));
+            label.setTextFill(bridgeColoring.getColorOf(item));
+            label.setVisible(true);
         }
     }
-
-    private Label createBridgeLabel(Bridge bridge) {
-        final var label = new Label(artUtils.prettyPrint(bridge));
-        final var color = bridgeColoring.getColorOf(bridge);
-        label.setTextFill(color);
-        return label;
-    }
 }
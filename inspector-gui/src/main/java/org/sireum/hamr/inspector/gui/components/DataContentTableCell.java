@@ -26,6 +26,7 @@
 package org.sireum.hamr.inspector.gui.components;
 
 import art.DataContent;
+import javafx.beans.value.ChangeListener;
 import javafx.scene.control.TableCell;
 import javafx.scene.text.TextFlow;
 import lombok.extern.slf4j.Slf4j;
@@ -37,28 +38,53 @@ import org.sireum.hamr.inspector.common.Msg;
 @Slf4j
 public class DataContentTableCell extends TableCell<Msg, DataContent> {
 
+    private static final int PADDING = 4;
+
+    // reused for every item, its Text children are refilled by TextFlowFactory
+    private final TextFlow textFlow = new TextFlow();
+
+    // the text of the current item
+    private PayloadText payloadText = null;
+
+    private final ChangeListener<Number> columnWidthListener = (observable, oldValue, newValue) -> updatePrefHeight();
+
+    public DataContentTableCell() {
+        setGraphic(textFlow);
+
+        // a single listener on the current column, instead of one more on every update
+        tableColumnProperty().addListener((observable, oldColumn, newColumn) -> {
+            if (oldColumn != null) {
+                oldColumn.widthProperty().removeListener(columnWidthListener);
+            }
+            if (newColumn != null) {
+                newColumn.widthProperty().addListener(columnWidthListener);
+            }
+        });
+    }
+
     @Override
     protected void updateItem(DataContent item, boolean empty) {
         super.updateItem(item, empty);
         if (empty || item == null) {
-            setGraphic(null);
+            payloadText = null;
+            textFlow.setVisible(false);
         } else {
-            setGraphic(createTextFlow(item.toString()));
+            payloadText = PayloadText.of(item);
+            TextFlowFactory.fillDefaultTextFlow(textFlow, payloadText.runs());
+            textFlow.setVisible(true);
+            updatePrefHeight();
         }
     }
 
-    private TextFlow createTextFlow(String dataContent) {
-        final TextFlow textFlow = TextFlowFactory.createDefaultParenMatchingTextFlow(dataContent);
-
-        // todo see if there is a good way to reduce the large number of listeners this creates
-        // make sure height is calculated from table column width
-        // https://stackoverflow.com/questions/42855724/textflow-inside-tablecell-not-correct-cell-height
-        final int padding = 4;
-        setPrefHeight(textFlow.prefHeight(getTableColumn().getWidth()) + padding);
-        getTableColumn().widthProperty().addListener((observable, oldValue, newValue) -> {
-            setPrefHeight(textFlow.prefHeight(getTableColumn().getWidth()) + padding);
-        });
-
-        return textFlow;
+    /**
+     * Makes sure height is calculated from table column width, see
+     * https://stackoverflow.com/questions/42855724/textflow-inside-tablecell-not-correct-cell-height
+     *
+     * The height is measured once per payload and column width, revisited rows reuse it.
+     */
+    private void updatePrefHeight() {
+        if (getTableColumn() != null && payloadText != null) {
+            setPrefHeight(payloadText.measuredHeight(getTableColumn().getWidth(), textFlow::prefHeight) + PADDING);
+        }
     }
 }
@@ -35,15 +35,22 @@ import org.sireum.hamr.inspector.common.Msg;
  */
 public class IndexTableCell extends TableCell<Msg, Long> {
 
+    // reused for every item, only its text changes
+    private final Label label = new Label();
+
+    public IndexTableCell() {
+        label.setAlignment(Pos.CENTER);
+        setGraphic(label);
+    }
+
     @Override
     protected void updateItem(Long item, boolean empty) {
         super.updateItem(item, empty);
         if (empty || item == null) {
-            setGraphic(null);
+            label.setVisible(false);
         } else {
-            final Label label = new Label(item.toString());
-            label.setAlignment(Pos.CENTER);
-            setGraphic(label);
+            label.setText(item.toString());
+            label.setVisible(true);
         }
     }
 
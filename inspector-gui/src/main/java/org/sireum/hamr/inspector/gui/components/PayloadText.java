@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.components;
+
+import art.DataContent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import org.sireum.hamr.inspector.gui.ThreadedOn;
+import org.sireum.hamr.inspector.gui.components.TextFlowFactory.ColorRuns;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * The text of a msg's payload, with its paren matching {@link ColorRuns} and its measured height, cached so cells
+ * revisiting a row skip building the payload's string, tokenizing it and measuring it.
+ *
+ * Entries are keyed by the identity of the payload, so they live as long as the msg does (for example while it is
+ * held by a table's backing list) and never outlive it, and are bounded to the {@link #MAXIMUM_SIZE} most recently
+ * used payloads.
+ */
+@ThreadedOn(threadName = "fx")
+public final class PayloadText {
+
+    private static final long MAXIMUM_SIZE = 8192;
+
+    // weak keys are compared by identity, so two equal payloads of different msgs are cached separately
+    private static final Cache<DataContent, PayloadText> cache =
+            Caffeine.newBuilder().weakKeys().maximumSize(MAXIMUM_SIZE).build();
+
+    @Getter
+    private final String text;
+
+    // each is tokenized the first time it is asked for
+    private ColorRuns runs = null;
+    private ColorRuns firstHalfRuns = null;
+    private ColorRuns secondHalfRuns = null;
+
+    // the last measurement, cells of one column measure at the same width
+    private double measuredWidth = Double.NaN;
+    private double measuredHeight = Double.NaN;
+
+    private PayloadText(String text) {
+        this.text = text;
+    }
+
+    @NotNull
+    public static PayloadText of(@NotNull DataContent payload) {
+        return cache.get(payload, key -> new PayloadText(key.toString()));
+    }
+
+    /**
+     * @return the runs of the whole text
+     */
+    @NotNull
+    public ColorRuns runs() {
+        if (runs == null) {
+            runs = TextFlowFactory.tokenizeDefaultParenMatching(text, 0);
+        }
+        return runs;
+    }
+
+    /**
+     * @return the runs of the first half of the text, for msgs whose text is split across two msc cells
+     */
+    @NotNull
+    public ColorRuns firstHalfRuns() {
+        if (firstHalfRuns == null) {
+            firstHalfRuns = TextFlowFactory.tokenizeDefaultParenMatching(text.substring(0, text.length() / 2), 0);
+        }
+        return firstHalfRuns;
+    }
+
+    /**
+     * @return the runs of the second half of the text, colored as if they continued the first half
+     */
+    @NotNull
+    public ColorRuns secondHalfRuns() {
+        if (secondHalfRuns == null) {
+            secondHalfRuns = TextFlowFactory.tokenizeDefaultParenMatching(text.substring(text.length() / 2),
+                    firstHalfRuns().getLeftoverColorIndex());
+        }
+        return secondHalfRuns;
+    }
+
+    /**
+     * @param width the width the text is laid out in
+     * @param measure measures the height of the text at a width, only called if the text was last measured at a
+     *                different width
+     * @return the height of the text when laid out in width
+     */
+    public double measuredHeight(double width, @NotNull DoubleUnaryOperator measure) {
+        if (width != measuredWidth) {
+            measuredHeight = measure.applyAsDouble(width);
+            measuredWidth = width;
+        }
+        return measuredHeight;
+    }
+
+}
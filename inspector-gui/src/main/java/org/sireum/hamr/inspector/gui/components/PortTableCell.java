@@ -41,25 +41,24 @@ public class PortTableCell extends TableCell<Msg, UPort> {
     private final ArtUtils artUtils;
     private final Coloring<Bridge> bridgeColoring;
 
+    // reused for every item, only its text and color change
+    private final Label label = new Label();
+
     public PortTableCell(ArtUtils artUtils, Coloring<Bridge> bridgeColoring) {
         this.artUtils = artUtils;
         this.bridgeColoring = bridgeColoring;
+        setGraphic(label);
     }
 
     @Override
     protected void updateItem(UPort item, boolean empty) {
         super.updateItem(item, empty);
         if (empty || item == null) {
-            setGraphic(null);
+            label.setVisible(false);
         } else {
-            setGraphic(createPortLabel(item));
+            label.setText(artUtils.prettyPrint(item));
+            label.setTextFill(bridgeColoring.getColorOf(artUtils.getBridge(item)));
+            label.setVisible(true);
         }
     }
-
-    private Label createPortLabel(UPort port) {
-        final var label = new Label(artUtils.prettyPrint(port));
-        final var color = bridgeColoring.getColorOf(artUtils.getBridge(port));
-        label.setTextFill(color);
-        return label;
-    }
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.components;
+
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.WeakChangeListener;
+import javafx.collections.ObservableList;
+import javafx.geometry.Pos;
+import javafx.scene.Cursor;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.Tooltip;
+import javafx.scene.input.MouseEvent;
+import org.jetbrains.annotations.Nullable;
+import org.sireum.hamr.inspector.common.ArtUtils;
+import org.sireum.hamr.inspector.common.Msg;
+import org.sireum.hamr.inspector.gui.collections.RunLengthObservableList;
+
+/**
+ * A cell which shows the count and time span of a run of msgs, and expands or collapses the run when clicked.
+ *
+ * Only the head row of a run with more than one msg shows anything, and only while the table's items are a
+ * {@link RunLengthObservableList}. Rows inside an expanded run show a bar, so the run's extent stays visible.
+ *
+ * A run's count can grow while its head row's msg stays the same, so cells redraw themselves when the list announces
+ * that the head row they show changed, rather than relying on the table to refresh every row.
+ */
+public class RunTableCell extends TableCell<Msg, Msg> {
+
+    private static final String COLLAPSED_MARKER = "\u25B8"; // ▸
+    private static final String EXPANDED_MARKER = "\u25BE"; // ▾
+    private static final String INSIDE_MARKER = "\u2502"; // │
+
+    // reused for every item, only its text changes
+    private final Label label = new Label();
+    private final Tooltip tooltip = new Tooltip();
+
+    // the run whose head this cell shows, or -1
+    private int run = -1;
+
+    // weak so that the list never keeps cells the table has thrown away
+    private final ChangeListener<Number> headChangeListener = (obs, oldValue, newValue) -> onHeadChanged();
+    private final WeakChangeListener<Number> weakHeadChangeListener = new WeakChangeListener<>(headChangeListener);
+
+    @Nullable
+    private RunLengthObservableList observedRuns = null;
+
+    public RunTableCell() {
+        label.setAlignment(Pos.CENTER);
+        setGraphic(label);
+
+        addEventHandler(MouseEvent.MOUSE_CLICKED, event -> {
+            final ObservableList<Msg> items = getTableView().getItems();
+            if (run >= 0 && items instanceof RunLengthObservableList) {
+                ((RunLengthObservableList) items).toggle(run);
+            }
+        });
+    }
+
+    @Override
+    protected void updateItem(Msg item, boolean empty) {
+        super.updateItem(item, empty);
+
+        final ObservableList<Msg> items = getTableView() == null ? null : getTableView().getItems();
+        observe(items instanceof RunLengthObservableList ? (RunLengthObservableList) items : null);
+        show(empty || item == null ? null : observedRuns);
+    }
+
+    private void observe(@Nullable RunLengthObservableList runs) {
+        if (runs != observedRuns) {
+            if (observedRuns != null) {
+                observedRuns.headChangesProperty().removeListener(weakHeadChangeListener);
+            }
+            if (runs != null) {
+                runs.headChangesProperty().addListener(weakHeadChangeListener);
+            }
+            observedRuns = runs;
+        }
+    }
+
+    private void onHeadChanged() {
+        if (observedRuns != null && !isEmpty() && getItem() != null && getIndex() == observedRuns.getChangedHead()) {
+            show(observedRuns);
+        }
+    }
+
+    private void show(@Nullable RunLengthObservableList runs) {
+        run = -1;
+        label.setVisible(false);
+        label.setTooltip(null);
+        setCursor(Cursor.DEFAULT);
+
+        if (runs == null) {
+            return;
+        }
+
+        final int row = getIndex();
+        final int runAtRow = runs.runAt(row);
+        final long count = runs.countOf(runAtRow);
+        if (count <= 1) {
+            return;
+        }
+
+        if (runs.isRunHead(row)) {
+            final long first = runs.firstTimestampOf(runAtRow);
+            final long last = runs.lastTimestampOf(runAtRow);
+            label.setText((runs.isExpanded(runAtRow) ? EXPANDED_MARKER : COLLAPSED_MARKER) + " \u00D7" + count
+                    + "\n" + ArtUtils.formatTime(last - first));
+            tooltip.setText(count + " msgs from " + ArtUtils.formatTime(first) + " to " + ArtUtils.formatTime(last));
+            label.setTooltip(tooltip);
+            setCursor(Cursor.HAND);
+            run = runAtRow;
+        } else {
+            label.setText(INSIDE_MARKER);
+        }
+        label.setVisible(true);
+    }
+
+}
@@ -25,12 +25,15 @@
 
 package org.sireum.hamr.inspector.gui.components;
 
+import javafx.scene.Node;
+import javafx.scene.paint.Color;
 import javafx.scene.text.Text;
 import javafx.scene.text.TextFlow;
 import org.jetbrains.annotations.NotNull;
 import org.sireum.hamr.inspector.gui.App;
 import org.sireum.hamr.inspector.gui.gfx.Coloring;
 
+import java.util.Arrays;
 import java.util.List;
 
 public class TextFlowFactory {
@@ -93,7 +96,61 @@ public class TextFlowFactory {
     @NotNull
     public static TextFlow createParenMatchingTextFlow(@NotNull String content, @NotNull Coloring<Integer> coloring, int initialColor) {
         final var textFlow = new TextFlow();
-        final int parensColorCount = coloring.getColorCount();
+        fillParenMatchingTextFlow(textFlow, content, coloring, initialColor);
+        return textFlow;
+    }
+
+    public static void fillDefaultParenMatchingTextFlow(@NotNull TextFlow textFlow, @NotNull String content, int numColors) {
+        fillParenMatchingTextFlow(textFlow, content, PARENS_COLORING, numColors);
+    }
+
+    /**
+     * Replaces the content of an existing {@link TextFlow}, reusing its {@link Text} children so cells which show a new
+     * item on every scroll do not create new nodes (or re-apply css to them) each time.
+     */
+    public static void fillParenMatchingTextFlow(@NotNull TextFlow textFlow, @NotNull String content, @NotNull Coloring<Integer> coloring, int initialColor) {
+        fillTextFlow(textFlow, tokenizeParenMatching(content, coloring.getColorCount(), initialColor), coloring);
+    }
+
+    public static void fillDefaultTextFlow(@NotNull TextFlow textFlow, @NotNull ColorRuns runs) {
+        fillTextFlow(textFlow, runs, PARENS_COLORING);
+    }
+
+    /**
+     * Replaces the content of an existing {@link TextFlow} with already tokenized runs, see
+     * {@link #fillParenMatchingTextFlow}.
+     */
+    public static void fillTextFlow(@NotNull TextFlow textFlow, @NotNull ColorRuns runs, @NotNull Coloring<Integer> coloring) {
+        final List<Node> children = textFlow.getChildren();
+        for (int i = 0; i < runs.size(); i++) {
+            final Color color = coloring.getColorOf(runs.colors[i]);
+            if (i < children.size()) {
+                final Text node = (Text) children.get(i);
+                node.setText(runs.texts[i]);
+                node.setFill(color);
+            } else {
+                final Text node = new Text(runs.texts[i]);
+                node.setFill(color);
+                children.add(node);
+            }
+        }
+
+        if (runs.size() < children.size()) {
+            children.remove(runs.size(), children.size());
+        }
+    }
+
+    @NotNull
+    public static ColorRuns tokenizeDefaultParenMatching(@NotNull String content, int initialColor) {
+        return tokenizeParenMatching(content, PARENS_COLORING.getColorCount(), initialColor);
+    }
+
+    /**
+     * Splits content into the runs of text a paren matching {@link TextFlow} shows, each with the index of its color.
+     */
+    @NotNull
+    public static ColorRuns tokenizeParenMatching(@NotNull String content, int parensColorCount, int initialColor) {
+        final ColorRuns runs = new ColorRuns();
 
         int col = initialColor % parensColorCount;
         int lastIndex = 0;
@@ -102,9 +159,7 @@ public class TextFlowFactory {
             final char c = content.charAt(i);
             if (c == '(') {
                 final var text = content.substring(lastIndex, i + 1);
-                final Text node = new Text(text);
-                node.setFill(coloring.getColorOf(col % parensColorCount));
-                textFlow.getChildren().add(node);
+                runs.add(text, col % parensColorCount);
                 lastIndex = i + 1; // just in case multiple open/close parens
                 col++;
             } else if (c == ')') {
@@ -115,9 +170,7 @@ public class TextFlowFactory {
                     col = Math.max(col, 0); // protection against unmatched parens
                 }
 
-                final Text node = new Text(text);
-                node.setFill(coloring.getColorOf(col % parensColorCount));
-                textFlow.getChildren().add(node);
+                runs.add(text, col % parensColorCount);
                 lastIndex = i; // just in case multiple open/close parens
 
                 if (!immediatelyClosedParen) {
@@ -128,12 +181,48 @@ public class TextFlowFactory {
         }
         if (lastIndex < content.length()) {
             final var text = content.substring(lastIndex);
-            final Text node = new Text(text);
-            node.setFill(coloring.getColorOf(col % parensColorCount));
-            textFlow.getChildren().add(node);
+            runs.add(text, col % parensColorCount);
         }
 
-        return textFlow;
+        runs.leftoverColorIndex = col % parensColorCount;
+        return runs;
+    }
+
+    /**
+     * The runs of a tokenized text, see {@link #tokenizeParenMatching}. Immutable once tokenized, so they can be cached
+     * and shown by any number of {@link TextFlow}s.
+     */
+    public static final class ColorRuns {
+
+        private String[] texts = new String[4];
+        private int[] colors = new int[4];
+        private int size = 0;
+        private int leftoverColorIndex = 0;
+
+        private ColorRuns() {
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @return the color index text following this text would start with, the same as
+         * {@link #getParenMatchLeftoverColorIndex} of this text when it was tokenized from color 0
+         */
+        public int getLeftoverColorIndex() {
+            return leftoverColorIndex;
+        }
+
+        private void add(String text, int color) {
+            if (size == texts.length) {
+                texts = Arrays.copyOf(texts, size * 2);
+                colors = Arrays.copyOf(colors, size * 2);
+            }
+            texts[size] = text;
+            colors[size] = color;
+            size++;
+        }
     }
 
 }
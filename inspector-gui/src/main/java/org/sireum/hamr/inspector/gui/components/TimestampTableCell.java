@@ -35,13 +35,21 @@ import org.sireum.hamr.inspector.common.Msg;
  */
 public class TimestampTableCell extends TableCell<Msg, Long> {
 
+    // reused for every item, only its text changes
+    private final Label label = new Label();
+
+    public TimestampTableCell() {
+        setGraphic(label);
+    }
+
     @Override
     protected void updateItem(Long item, boolean empty) {
         super.updateItem(item, empty);
         if (empty || item == null) {
-            setGraphic(null);
+            label.setVisible(false);
         } else {
-            setGraphic(createTimestampLabel(item));
+            label.setText(ArtUtils.formatTime(item));
+            label.setVisible(true);
         }
     }
 
@@ -62,8 +70,4 @@ public class TimestampTableCell extends TableCell<Msg, Long> {
     protected Boolean getInitialFocusTraversable() {
         return super.getInitialFocusTraversable();
     }
-
-    private static Label createTimestampLabel(Long timestamp) {
-        return new Label(ArtUtils.formatTime(timestamp));
-    }
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.components.msc;
+
+import javafx.scene.paint.Color;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * An {@link MscDrawing} onto a java2d {@link Graphics2D}, which needs neither a JavaFX toolkit nor the FX thread.
+ */
+public final class Java2dMscDrawing implements MscDrawing {
+
+    static final Font HEADER_FONT = new Font(Font.SANS_SERIF, Font.BOLD, 12);
+    static final Font ROW_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 11);
+
+    private static final int TEXT_MARGIN = 4;
+    private static final String ELLIPSIS = "…";
+
+    private final Graphics2D g;
+
+    /**
+     * @param g the graphics to draw onto, which the caller still owns (and disposes)
+     */
+    public Java2dMscDrawing(@NotNull Graphics2D g) {
+        this.g = g;
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+    }
+
+    @Override
+    public void fillRect(double x, double y, double width, double height, @NotNull Color color) {
+        g.setColor(awtColorOf(color));
+        g.fill(new Rectangle2D.Double(x, y, width, height));
+    }
+
+    @Override
+    public void fillPolygon(@NotNull double[] points, double x, double y, @NotNull Color color) {
+        final Path2D.Double path = new Path2D.Double();
+        path.moveTo(x + points[0], y + points[1]);
+        for (int i = 2; i < points.length; i += 2) {
+            path.lineTo(x + points[i], y + points[i + 1]);
+        }
+        path.closePath();
+        g.setColor(awtColorOf(color));
+        g.fill(path);
+    }
+
+    @Override
+    public void line(double x1, double y1, double x2, double y2, @NotNull Color color) {
+        g.setColor(awtColorOf(color));
+        g.draw(new Line2D.Double(x1, y1, x2, y2));
+    }
+
+    @Override
+    public void text(@NotNull String text, double centerX, double centerY, double maxWidth, @NotNull TextStyle style,
+                     @NotNull Color color) {
+        g.setFont(fontOf(style));
+        g.setColor(awtColorOf(color));
+        final FontMetrics metrics = g.getFontMetrics();
+        final String fitted = fit(metrics, text, maxWidth);
+
+        final float x = (float) (centerX - metrics.stringWidth(fitted) / 2.0);
+        final float y = (float) (centerY + (metrics.getAscent() - metrics.getDescent()) / 2.0);
+        g.drawString(fitted, x, y);
+    }
+
+    @Override
+    public double lineHeight(@NotNull TextStyle style) {
+        return g.getFontMetrics(fontOf(style)).getHeight();
+    }
+
+    static Font fontOf(TextStyle style) {
+        return style == TextStyle.HEADER ? HEADER_FONT : ROW_FONT;
+    }
+
+    /**
+     * @return the text, cut short with an ellipsis if it is wider than maxWidth (less a margin on each side)
+     */
+    static String fit(FontMetrics metrics, String text, double maxWidth) {
+        final double available = maxWidth - 2 * TEXT_MARGIN;
+        if (metrics.stringWidth(text) <= available) {
+            return text;
+        }
+
+        // longest prefix which still fits, msg data can be far too long to shorten one character at a time
+        int fits = 0;
+        int tooLong = text.length();
+        while (tooLong - fits > 1) {
+            final int length = (fits + tooLong) >>> 1;
+            if (metrics.stringWidth(text.substring(0, length) + ELLIPSIS) <= available) {
+                fits = length;
+            } else {
+                tooLong = length;
+            }
+        }
+        return text.substring(0, fits) + ELLIPSIS;
+    }
+
+    private static java.awt.Color awtColorOf(Color color) {
+        return new java.awt.Color((float) color.getRed(), (float) color.getGreen(), (float) color.getBlue(),
+                (float) color.getOpacity());
+    }
+
+}
@@ -50,8 +50,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 @SuppressWarnings("SpringJavaAutowiredFieldsWarningInspection") // <-- protection for generated classes
 public final class Msc {
 
-    static final double ROW_HEIGHT = 80.0;
-    static final double COLUMN_WIDTH = 200.0;
+    static final double ROW_HEIGHT = MscGeometry.ROW_HEIGHT;
+    static final double COLUMN_WIDTH = MscGeometry.COLUMN_WIDTH;
 
     @Getter
     @Autowired
@@ -122,7 +122,7 @@ public final class Msc {
 
         column.setCellValueFactory(data -> new SimpleLongProperty(data.getValue().sequence()).asObject());
         column.setCellFactory(col -> new IndexTableCell());
-        column.setPrefWidth(28.0);
+        column.setPrefWidth(MscGeometry.INDEX_COLUMN_WIDTH);
 
         column.setResizable(true);
         column.setReorderable(true);
@@ -0,0 +1,500 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.components.msc;
+
+import art.Bridge;
+import javafx.application.Platform;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.geometry.Orientation;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.Tooltip;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextAlignment;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.sireum.hamr.inspector.common.ArtUtils;
+import org.sireum.hamr.inspector.common.Msg;
+import org.sireum.hamr.inspector.gui.ThreadedOn;
+import org.sireum.hamr.inspector.gui.components.PayloadText;
+import org.sireum.hamr.inspector.gui.gfx.Coloring;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.sireum.hamr.inspector.gui.components.msc.MscGeometry.*;
+
+/**
+ * An msc drawn straight onto a {@link Canvas}, as an alternative to the table of {@link MscTableCell}s.
+ *
+ * Only the rows and columns inside the viewport are drawn, and nothing is allocated per msg, so the cost of a frame
+ * depends on the size of the viewport rather than the number of msgs or bridges. The bridge header and the index column
+ * stay pinned while scrolling. Tooltips and selection are found by hit-testing the pointer against the same
+ * {@link MscGeometry} the msc is drawn with.
+ *
+ * Rows are read from {@link #itemsProperty()} with {@link ObservableList#get}, which for an
+ * {@link org.sireum.hamr.inspector.gui.collections.UnbackedLinearAccessObservableList} fetches (and caches) the msgs
+ * around the viewport as it scrolls.
+ */
+@Slf4j
+public final class MscCanvas extends Region {
+
+    static final double HEADER_HEIGHT = 24.0;
+
+    private static final double TEXT_MARGIN = 4.0;
+    private static final Font HEADER_FONT = Font.font("Monospaced", FontWeight.BOLD, 12.0);
+    private static final Font TEXT_FONT = Font.font("Monospaced", 11.0);
+
+    private static final Color SELECTION_COLOR = Color.rgb(0, 120, 215, 0.15);
+
+    private final ArtUtils artUtils;
+    private final Coloring<Bridge> bridgeColoring;
+    private final List<Bridge> bridges;
+    private final Map<Bridge, Integer> columns;
+
+    // both fonts are monospaced, so text is cut to fit by character count instead of measuring every string
+    private final double headerCharWidth = charWidthOf(HEADER_FONT);
+    private final double textCharWidth = charWidthOf(TEXT_FONT);
+
+    private final Canvas canvas = new Canvas();
+    private final ScrollBar verticalScrollBar = new ScrollBar();
+    private final ScrollBar horizontalScrollBar = new ScrollBar();
+    private final Tooltip tooltip = new Tooltip();
+
+    private final ObjectProperty<ObservableList<Msg>> items = new SimpleObjectProperty<>(this, "items", null);
+    private final ObjectProperty<Msg> selectedMsg = new SimpleObjectProperty<>(this, "selectedMsg", null);
+
+    private final ListChangeListener<Msg> itemsChangeListener = change -> {
+        updateScrollBars();
+        requestDraw();
+    };
+
+    // arrow head polygons, offset into these before each fillPolygon
+    private final double[] rightHead = rightArrowHeadPoints();
+    private final double[] leftHead = leftArrowHeadPoints();
+    private final double[] polygonXs = new double[rightHead.length / 2];
+    private final double[] polygonYs = new double[rightHead.length / 2];
+
+    @ThreadedOn(threadName = "fx")
+    private boolean isDrawPending = false;
+
+    // the (row, column) whose tooltip is showing
+    @ThreadedOn(threadName = "fx")
+    private long hoveredCell = -1;
+
+    public MscCanvas(@NotNull ArtUtils artUtils, @NotNull Coloring<Bridge> bridgeColoring) {
+        this.artUtils = artUtils;
+        this.bridgeColoring = bridgeColoring;
+        this.bridges = List.copyOf(artUtils.getBridges());
+        this.columns = new HashMap<>(bridges.size());
+        for (int i = 0; i < bridges.size(); i++) {
+            columns.put(bridges.get(i), i);
+        }
+
+        verticalScrollBar.setOrientation(Orientation.VERTICAL);
+        verticalScrollBar.setUnitIncrement(1.0); // one row
+        horizontalScrollBar.setOrientation(Orientation.HORIZONTAL);
+        horizontalScrollBar.setUnitIncrement(COLUMN_WIDTH / 4.0);
+        getChildren().addAll(canvas, verticalScrollBar, horizontalScrollBar);
+
+        verticalScrollBar.valueProperty().addListener((obs, oldValue, newValue) -> requestDraw());
+        horizontalScrollBar.valueProperty().addListener((obs, oldValue, newValue) -> requestDraw());
+        selectedMsg.addListener((obs, oldValue, newValue) -> requestDraw());
+        visibleProperty().addListener((obs, oldValue, newValue) -> requestDraw());
+
+        items.addListener((obs, oldItems, newItems) -> {
+            if (oldItems != null) {
+                oldItems.removeListener(itemsChangeListener);
+            }
+            if (newItems != null) {
+                newItems.addListener(itemsChangeListener);
+            }
+            selectedMsg.set(null);
+            verticalScrollBar.setValue(0.0);
+            updateScrollBars();
+            requestDraw();
+        });
+
+        canvas.addEventHandler(ScrollEvent.SCROLL, this::onScroll);
+        canvas.addEventHandler(MouseEvent.MOUSE_MOVED, this::onMouseMoved);
+        canvas.addEventHandler(MouseEvent.MOUSE_EXITED, event -> hideTooltip());
+        canvas.addEventHandler(MouseEvent.MOUSE_CLICKED, event -> {
+            final int row = rowAt(event.getY());
+            selectedMsg.set(row < 0 ? null : items.get().get(row));
+        });
+    }
+
+    public ObjectProperty<ObservableList<Msg>> itemsProperty() {
+        return items;
+    }
+
+    /**
+     * The msg last clicked on, or null.
+     */
+    public ObjectProperty<Msg> selectedMsgProperty() {
+        return selectedMsg;
+    }
+
+    /**
+     * Scrolls so the row at index is the first row of the viewport (or as close as the end of the list allows).
+     */
+    public void scrollTo(int index) {
+        verticalScrollBar.setValue(clamp(index, verticalScrollBar.getMin(), verticalScrollBar.getMax()));
+    }
+
+    @Override
+    protected void layoutChildren() {
+        final double barWidth = verticalScrollBar.prefWidth(-1);
+        final double barHeight = horizontalScrollBar.prefHeight(-1);
+        final double canvasWidth = Math.max(0.0, getWidth() - barWidth);
+        final double canvasHeight = Math.max(0.0, getHeight() - barHeight);
+
+        canvas.setWidth(canvasWidth);
+        canvas.setHeight(canvasHeight);
+        canvas.relocate(0.0, 0.0);
+        verticalScrollBar.resizeRelocate(canvasWidth, 0.0, barWidth, canvasHeight);
+        horizontalScrollBar.resizeRelocate(0.0, canvasHeight, canvasWidth, barHeight);
+
+        updateScrollBars();
+        draw();
+    }
+
+    @Override
+    protected double computePrefWidth(double height) {
+        return INDEX_COLUMN_WIDTH + bridges.size() * COLUMN_WIDTH + verticalScrollBar.prefWidth(-1);
+    }
+
+    @Override
+    protected double computePrefHeight(double width) {
+        return HEADER_HEIGHT + 8 * ROW_HEIGHT + horizontalScrollBar.prefHeight(-1);
+    }
+
+    private void updateScrollBars() {
+        final ObservableList<Msg> msgs = items.get();
+        final double visibleRows = Math.max(1.0, (canvas.getHeight() - HEADER_HEIGHT) / ROW_HEIGHT);
+        final int rowCount = msgs == null ? 0 : msgs.size();
+        verticalScrollBar.setMax(Math.max(0.0, rowCount - Math.floor(visibleRows)));
+        verticalScrollBar.setVisibleAmount(visibleRows);
+        verticalScrollBar.setBlockIncrement(Math.floor(visibleRows));
+
+        final double visibleWidth = Math.max(0.0, canvas.getWidth() - INDEX_COLUMN_WIDTH);
+        horizontalScrollBar.setMax(Math.max(0.0, bridges.size() * COLUMN_WIDTH - visibleWidth));
+        horizontalScrollBar.setVisibleAmount(visibleWidth);
+        horizontalScrollBar.setBlockIncrement(Math.max(COLUMN_WIDTH, visibleWidth - COLUMN_WIDTH));
+    }
+
+    /**
+     * Coalesces every change which happens before the next pulse into a single frame.
+     */
+    @ThreadedOn(threadName = "fx")
+    private void requestDraw() {
+        if (!isDrawPending) {
+            isDrawPending = true;
+            Platform.runLater(() -> {
+                isDrawPending = false;
+                draw();
+            });
+        }
+    }
+
+    @ThreadedOn(threadName = "fx")
+    private void draw() {
+        if (!isVisible()) {
+            return;
+        }
+
+        final GraphicsContext g = canvas.getGraphicsContext2D();
+        final double width = canvas.getWidth();
+        final double height = canvas.getHeight();
+        g.setFill(Color.WHITE);
+        g.fillRect(0.0, 0.0, width, height);
+
+        final double scrollX = horizontalScrollBar.getValue();
+        final int firstColumn = Math.max(0, (int) Math.floor(scrollX / COLUMN_WIDTH));
+        final int lastColumn = Math.min(bridges.size() - 1,
+                (int) Math.floor((scrollX + width - INDEX_COLUMN_WIDTH) / COLUMN_WIDTH));
+
+        final ObservableList<Msg> msgs = items.get();
+        final int rowCount = msgs == null ? 0 : msgs.size();
+        final double scrollY = verticalScrollBar.getValue();
+        final int firstRow = (int) Math.floor(scrollY);
+        final double firstRowY = HEADER_HEIGHT - (scrollY - firstRow) * ROW_HEIGHT;
+        final int lastRow = Math.min(rowCount - 1, firstRow + (int) Math.ceil((height - HEADER_HEIGHT) / ROW_HEIGHT));
+
+        // scrolled content, clipped so it never draws over the pinned header and index column
+        g.save();
+        g.beginPath();
+        g.rect(INDEX_COLUMN_WIDTH, HEADER_HEIGHT, Math.max(0.0, width - INDEX_COLUMN_WIDTH), Math.max(0.0, height - HEADER_HEIGHT));
+        g.clip();
+        g.setLineWidth(1.0);
+        for (int column = firstColumn; column <= lastColumn; column++) {
+            final double center = columnX(column, scrollX) + COLUMN_WIDTH / 2.0;
+            g.setStroke(bridgeColoring.getColorOf(bridges.get(column)).deriveColor(0.0, 1.0, 1.0, 0.25));
+            g.strokeLine(center, HEADER_HEIGHT, center, height);
+        }
+        g.setFont(TEXT_FONT);
+        g.setTextBaseline(VPos.CENTER);
+        g.setTextAlign(TextAlignment.CENTER);
+        for (int row = firstRow; row <= lastRow; row++) {
+            final Msg msg = msgs.get(row);
+            final double y = firstRowY + (row - firstRow) * ROW_HEIGHT;
+            if (msg != null) {
+                if (msg.equals(selectedMsg.get())) {
+                    g.setFill(SELECTION_COLOR);
+                    g.fillRect(INDEX_COLUMN_WIDTH, y, width - INDEX_COLUMN_WIDTH, ROW_HEIGHT);
+                }
+                drawArrow(g, msg, y, scrollX, firstColumn, lastColumn);
+            }
+        }
+        g.restore();
+
+        drawIndexColumn(g, msgs, firstRow, lastRow, firstRowY, height);
+        drawHeader(g, scrollX, firstColumn, lastColumn, width);
+    }
+
+    private void drawArrow(GraphicsContext g, Msg msg, double y, double scrollX, int firstColumn, int lastColumn) {
+        final Integer sender = columns.get(msg.srcBridge());
+        final Integer receiver = columns.get(msg.dstBridge());
+        if (sender == null || receiver == null) {
+            return;
+        }
+        final int left = Math.min(sender, receiver);
+        final int right = Math.max(sender, receiver);
+        if (right < firstColumn || left > lastColumn) {
+            return; // entirely outside the viewport
+        }
+
+        final double centerY = y + ROW_HEIGHT / 2.0;
+        final double headTop = centerY - arrowHeadHeight() / 2.0;
+
+        g.setFill(Color.BLACK);
+        for (int column = Math.max(left, firstColumn); column <= Math.min(right, lastColumn); column++) {
+            final double x = columnX(column, scrollX);
+            switch (cellTypeOf(sender, receiver, column)) {
+                case LINE:
+                    g.fillRect(x, centerY - LINE_HEIGHT / 2.0, COLUMN_WIDTH, LINE_HEIGHT);
+                    break;
+                case L_ORIGIN:
+                    g.fillRect(x + COLUMN_WIDTH / 2.0, centerY - LINE_HEIGHT / 2.0, COLUMN_WIDTH / 2.0, LINE_HEIGHT);
+                    break;
+                case R_ORIGIN:
+                    g.fillRect(x, centerY - LINE_HEIGHT / 2.0, COLUMN_WIDTH / 2.0, LINE_HEIGHT);
+                    break;
+                case R_HEAD:
+                    fillPolygon(g, rightHead, x, headTop);
+                    break;
+                case L_HEAD:
+                    fillPolygon(g, leftHead, x + COLUMN_WIDTH / 2.0, headTop);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        // the msg's data above its arrow, and its destination port below the arrow head
+        final double leftCenter = columnX(left, scrollX) + COLUMN_WIDTH / 2.0;
+        final double rightCenter = columnX(right, scrollX) + COLUMN_WIDTH / 2.0;
+        final double span = Math.max(rightCenter - leftCenter, COLUMN_WIDTH);
+        g.setFill(Color.DARK_GRAY);
+        g.fillText(fit(PayloadText.of(msg.data()).getText(), span, textCharWidth),
+                (leftCenter + rightCenter) / 2.0, headTop - TEXT_FONT.getSize());
+
+        if (firstColumn <= receiver && receiver <= lastColumn) {
+            final double receiverX = columnX(receiver, scrollX);
+            final double headCenter = sender < receiver
+                    ? receiverX + COLUMN_WIDTH / 4.0
+                    : receiverX + COLUMN_WIDTH * 3.0 / 4.0;
+            g.setFill(bridgeColoring.getColorOf(msg.dstBridge()));
+            g.fillText(fit(artUtils.prettyPrint(msg.dst()), COLUMN_WIDTH, textCharWidth),
+                    headCenter, headTop + arrowHeadHeight() + TEXT_FONT.getSize());
+        }
+    }
+
+    private void drawIndexColumn(GraphicsContext g, @Nullable ObservableList<Msg> msgs, int firstRow, int lastRow,
+                                 double firstRowY, double height) {
+        g.setFill(Color.WHITE);
+        g.fillRect(0.0, HEADER_HEIGHT, INDEX_COLUMN_WIDTH, height - HEADER_HEIGHT);
+        g.setStroke(Color.LIGHTGRAY);
+        g.strokeLine(INDEX_COLUMN_WIDTH - 0.5, HEADER_HEIGHT, INDEX_COLUMN_WIDTH - 0.5, height);
+        if (msgs == null) {
+            return;
+        }
+
+        g.save();
+        g.beginPath();
+        g.rect(0.0, HEADER_HEIGHT, INDEX_COLUMN_WIDTH, Math.max(0.0, height - HEADER_HEIGHT));
+        g.clip();
+        g.setFill(Color.GRAY);
+        for (int row = firstRow; row <= lastRow; row++) {
+            final Msg msg = msgs.get(row);
+            if (msg != null) {
+                g.fillText(fit(Long.toString(msg.sequence()), INDEX_COLUMN_WIDTH, textCharWidth),
+                        INDEX_COLUMN_WIDTH / 2.0, firstRowY + (row - firstRow + 0.5) * ROW_HEIGHT);
+            }
+        }
+        g.restore();
+    }
+
+    private void drawHeader(GraphicsContext g, double scrollX, int firstColumn, int lastColumn, double width) {
+        g.setFill(Color.WHITE);
+        g.fillRect(0.0, 0.0, width, HEADER_HEIGHT);
+
+        g.save();
+        g.beginPath();
+        g.rect(INDEX_COLUMN_WIDTH, 0.0, Math.max(0.0, width - INDEX_COLUMN_WIDTH), HEADER_HEIGHT);
+        g.clip();
+        g.setFont(HEADER_FONT);
+        for (int column = firstColumn; column <= lastColumn; column++) {
+            final Bridge bridge = bridges.get(column);
+            g.setFill(bridgeColoring.getColorOf(bridge));
+            g.fillText(fit(artUtils.prettyPrint(bridge), COLUMN_WIDTH, headerCharWidth),
+                    columnX(column, scrollX) + COLUMN_WIDTH / 2.0, HEADER_HEIGHT / 2.0);
+        }
+        g.restore();
+
+        g.setStroke(Color.LIGHTGRAY);
+        g.strokeLine(0.0, HEADER_HEIGHT - 0.5, width, HEADER_HEIGHT - 0.5);
+    }
+
+    private void fillPolygon(GraphicsContext g, double[] points, double x, double y) {
+        for (int i = 0; i < polygonXs.length; i++) {
+            polygonXs[i] = x + points[2 * i];
+            polygonYs[i] = y + points[2 * i + 1];
+        }
+        g.fillPolygon(polygonXs, polygonYs, polygonXs.length);
+    }
+
+    private void onScroll(ScrollEvent event) {
+        verticalScrollBar.setValue(clamp(verticalScrollBar.getValue() - event.getDeltaY() / ROW_HEIGHT,
+                verticalScrollBar.getMin(), verticalScrollBar.getMax()));
+        horizontalScrollBar.setValue(clamp(horizontalScrollBar.getValue() - event.getDeltaX(),
+                horizontalScrollBar.getMin(), horizontalScrollBar.getMax()));
+        hideTooltip();
+        event.consume();
+    }
+
+    /**
+     * Shows the same tooltips as the table: the source port over the arrow's origin, the destination port over its
+     * head, and the msg's data over the columns in between.
+     */
+    private void onMouseMoved(MouseEvent event) {
+        final int row = rowAt(event.getY());
+        final int column = columnAt(event.getX());
+        final long cell = row < 0 || column < 0 ? -1 : ((long) row << 32) | column;
+        if (cell == hoveredCell) {
+            return;
+        }
+        hideTooltip();
+        if (cell < 0) {
+            return;
+        }
+
+        final Msg msg = items.get().get(row);
+        final Integer sender = msg == null ? null : columns.get(msg.srcBridge());
+        final Integer receiver = msg == null ? null : columns.get(msg.dstBridge());
+        if (sender == null || receiver == null
+                || column < Math.min(sender, receiver) || column > Math.max(sender, receiver)) {
+            return;
+        }
+
+        if (column == receiver) {
+            tooltip.setText(artUtils.informativePrettyPrint(msg.dst()));
+        } else if (column == sender) {
+            tooltip.setText(artUtils.informativePrettyPrint(msg.src()));
+        } else {
+            tooltip.setText(PayloadText.of(msg.data()).getText());
+        }
+        hoveredCell = cell;
+        tooltip.show(canvas, event.getScreenX() + 12.0, event.getScreenY() + 12.0);
+    }
+
+    private void hideTooltip() {
+        hoveredCell = -1;
+        tooltip.hide();
+    }
+
+    /**
+     * @return the index of the msg drawn at y, or -1 if there is none
+     */
+    private int rowAt(double y) {
+        final ObservableList<Msg> msgs = items.get();
+        if (msgs == null || y < HEADER_HEIGHT) {
+            return -1;
+        }
+        final int row = (int) Math.floor(verticalScrollBar.getValue() + (y - HEADER_HEIGHT) / ROW_HEIGHT);
+        return row < msgs.size() ? row : -1;
+    }
+
+    /**
+     * @return the index of the bridge drawn at x, or -1 if there is none
+     */
+    private int columnAt(double x) {
+        if (x < INDEX_COLUMN_WIDTH) {
+            return -1;
+        }
+        final int column = (int) Math.floor((x - INDEX_COLUMN_WIDTH + horizontalScrollBar.getValue()) / COLUMN_WIDTH);
+        return column < bridges.size() ? column : -1;
+    }
+
+    private static double columnX(int column, double scrollX) {
+        return INDEX_COLUMN_WIDTH + column * COLUMN_WIDTH - scrollX;
+    }
+
+    /**
+     * Cuts text short with an ellipsis if it is wider than maxWidth. Msg data can be far longer than any column.
+     */
+    private static String fit(String text, double maxWidth, double charWidth) {
+        final int maxChars = (int) ((maxWidth - 2 * TEXT_MARGIN) / charWidth);
+        if (text.length() <= maxChars) {
+            return text;
+        }
+        return maxChars < 2 ? "" : text.substring(0, maxChars - 1) + "…";
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static double charWidthOf(Font font) {
+        final Text text = new Text("0");
+        text.setFont(font);
+        return text.getLayoutBounds().getWidth();
+    }
+
+}
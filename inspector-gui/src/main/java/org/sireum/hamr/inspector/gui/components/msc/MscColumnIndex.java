@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.components.msc;
+
+import art.Bridge;
+import javafx.collections.ListChangeListener;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import org.jetbrains.annotations.NotNull;
+import org.sireum.hamr.inspector.common.Msg;
+import org.sireum.hamr.inspector.gui.ThreadedOn;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The position of each bridge's column in an msc {@link TableView}, so a {@link MscTableCell} finds the columns of a
+ * msg's sender, receiver and itself with three lookups instead of walking every column.
+ *
+ * There is one index per table, kept in the table's properties. It is rebuilt only when the table's columns change,
+ * which for an msc means the user dragged a column to a new position.
+ */
+@ThreadedOn(threadName = "fx")
+final class MscColumnIndex {
+
+    private static final Object PROPERTY_KEY = MscColumnIndex.class;
+
+    private final TableView<Msg> tableView;
+
+    private Map<Bridge, Integer> positions = Map.of();
+
+    private MscColumnIndex(TableView<Msg> tableView) {
+        this.tableView = tableView;
+        rebuild();
+        tableView.getColumns().addListener((ListChangeListener<TableColumn<Msg, ?>>) change -> rebuild());
+    }
+
+    /**
+     * @return the index of the table's columns, created the first time it is asked for
+     */
+    @NotNull
+    static MscColumnIndex of(@NotNull TableView<Msg> tableView) {
+        return (MscColumnIndex) tableView.getProperties()
+                .computeIfAbsent(PROPERTY_KEY, key -> new MscColumnIndex(tableView));
+    }
+
+    /**
+     * @return the position of the bridge's column among all of the table's columns, or -1 if it has none
+     */
+    int positionOf(@NotNull Bridge bridge) {
+        return positions.getOrDefault(bridge, -1);
+    }
+
+    private void rebuild() {
+        final List<TableColumn<Msg, ?>> columns = tableView.getColumns();
+        final Map<Bridge, Integer> rebuilt = new HashMap<>(columns.size() * 2);
+        for (int i = 0; i < columns.size(); i++) {
+            final Object userData = columns.get(i).getUserData();
+            if (userData instanceof Bridge) { // the index column has none
+                rebuilt.put((Bridge) userData, i);
+            }
+        }
+        positions = rebuilt;
+    }
+
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.components.msc;
+
+import art.Bridge;
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import org.sireum.hamr.inspector.common.Msg;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How many msgs each bridge sent over the course of a session, aggregated in a single pass into a fixed number of time
+ * buckets.
+ *
+ * The first msg's timestamp starts the first bucket, and buckets start out one time unit wide. Whenever a msg falls
+ * past the last bucket, every pair of adjacent buckets is merged and the bucket width doubles, so memory stays at
+ * buckets * bridges counts no matter how long the session is. Each bucket also remembers the index of its first msg,
+ * which is the row an msc of the same msgs shows it in.
+ *
+ * Not thread safe, a density is fed from a single subscription and read through {@link #snapshot()}.
+ */
+public final class MscDensity {
+
+    private final int bucketCount;
+    private final int bridgeCount;
+    private final Map<Bridge, Integer> columns;
+
+    // counts[bucket * bridgeCount + column]
+    private final long[] counts;
+    private final long[] firstIndexes;
+
+    private long origin = Long.MIN_VALUE;
+    private long bucketWidth = 1;
+    private int usedBuckets = 0;
+    private long msgCount = 0;
+
+    public MscDensity(@NotNull List<Bridge> bridges, int bucketCount) {
+        if (bucketCount < 2 || bucketCount % 2 != 0) {
+            throw new IllegalArgumentException("bucket count must be even and at least 2, but was " + bucketCount);
+        }
+        this.bucketCount = bucketCount;
+        this.bridgeCount = bridges.size();
+        this.columns = new HashMap<>(bridges.size() * 2);
+        for (int i = 0; i < bridges.size(); i++) {
+            columns.put(bridges.get(i), i);
+        }
+        this.counts = new long[bucketCount * bridgeCount];
+        this.firstIndexes = new long[bucketCount];
+        Arrays.fill(firstIndexes, -1);
+    }
+
+    /**
+     * @param msg the next msg
+     * @param index the msg's index among all msgs added so far
+     */
+    public void add(@NotNull Msg msg, long index) {
+        if (origin == Long.MIN_VALUE) {
+            origin = msg.timestamp();
+        }
+
+        // msgs are (nearly) in timestamp order, any earlier than the first are counted in the first bucket
+        final long offset = Math.max(0, msg.timestamp() - origin);
+        while (offset / bucketWidth >= bucketCount) {
+            halveResolution();
+        }
+
+        final int bucket = (int) (offset / bucketWidth);
+        final Integer column = columns.get(msg.srcBridge());
+        if (column != null) {
+            counts[bucket * bridgeCount + column]++;
+        }
+        if (firstIndexes[bucket] < 0) {
+            firstIndexes[bucket] = index;
+        }
+        usedBuckets = Math.max(usedBuckets, bucket + 1);
+        msgCount++;
+    }
+
+    /**
+     * @return a copy of the density so far, safe to hand to another thread
+     */
+    @NotNull
+    public Snapshot snapshot() {
+        final long[] usedCounts = Arrays.copyOf(counts, usedBuckets * bridgeCount);
+        long maxCount = 0;
+        for (long count : usedCounts) {
+            maxCount = Math.max(maxCount, count);
+        }
+        return new Snapshot(bridgeCount, usedBuckets, usedCounts, Arrays.copyOf(firstIndexes, usedBuckets),
+                origin, bucketWidth, maxCount, msgCount);
+    }
+
+    private void halveResolution() {
+        final int half = bucketCount / 2;
+        for (int bucket = 0; bucket < half; bucket++) {
+            final int left = 2 * bucket;
+            final int right = left + 1;
+            for (int column = 0; column < bridgeCount; column++) {
+                counts[bucket * bridgeCount + column] =
+                        counts[left * bridgeCount + column] + counts[right * bridgeCount + column];
+            }
+            firstIndexes[bucket] = firstIndexes[left] >= 0 ? firstIndexes[left] : firstIndexes[right];
+        }
+        Arrays.fill(counts, half * bridgeCount, counts.length, 0);
+        Arrays.fill(firstIndexes, half, firstIndexes.length, -1);
+        usedBuckets = (usedBuckets + 1) / 2;
+        bucketWidth *= 2;
+    }
+
+    /**
+     * An immutable copy of a {@link MscDensity}.
+     */
+    @Getter
+    public static final class Snapshot {
+
+        public static final Snapshot EMPTY = new Snapshot(0, 0, new long[0], new long[0], 0, 1, 0, 0);
+
+        private final int bridgeCount;
+        private final int bucketCount;
+        @Getter(AccessLevel.NONE)
+        private final long[] counts;
+        @Getter(AccessLevel.NONE)
+        private final long[] firstIndexes;
+        private final long origin;
+        private final long bucketWidth;
+        private final long maxCount;
+        private final long msgCount;
+
+        private Snapshot(int bridgeCount, int bucketCount, long[] counts, long[] firstIndexes,
+                         long origin, long bucketWidth, long maxCount, long msgCount) {
+            this.bridgeCount = bridgeCount;
+            this.bucketCount = bucketCount;
+            this.counts = counts;
+            this.firstIndexes = firstIndexes;
+            this.origin = origin;
+            this.bucketWidth = bucketWidth;
+            this.maxCount = maxCount;
+            this.msgCount = msgCount;
+        }
+
+        public long countOf(int bucket, int column) {
+            return counts[bucket * bridgeCount + column];
+        }
+
+        /**
+         * @return the index of the first msg at or after the bucket, or -1 if no msg is
+         */
+        public long firstIndexFrom(int bucket) {
+            for (int i = Math.max(0, bucket); i < bucketCount; i++) {
+                if (firstIndexes[i] >= 0) {
+                    return firstIndexes[i];
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @return the timestamp the bucket starts at
+         */
+        public long startOf(int bucket) {
+            return origin + bucket * bucketWidth;
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.components.msc;
+
+import javafx.scene.paint.Color;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The few shapes an {@link MscPainter} draws an msc with, so the same layout can be drawn to any target without a
+ * scene graph (for example an image or an svg file).
+ */
+public interface MscDrawing {
+
+    /**
+     * The two kinds of text in an msc, bridge names in the header and everything in a row.
+     */
+    enum TextStyle {
+        HEADER, ROW
+    }
+
+    void fillRect(double x, double y, double width, double height, @NotNull Color color);
+
+    /**
+     * @param points the polygon (x0, y0, x1, y1, ...), relative to (x, y)
+     */
+    void fillPolygon(@NotNull double[] points, double x, double y, @NotNull Color color);
+
+    void line(double x1, double y1, double x2, double y2, @NotNull Color color);
+
+    /**
+     * Draws text centered on (centerX, centerY), cut short with an ellipsis if it is wider than maxWidth.
+     */
+    void text(@NotNull String text, double centerX, double centerY, double maxWidth, @NotNull TextStyle style,
+              @NotNull Color color);
+
+    /**
+     * @return the height of a line of text in the style
+     */
+    double lineHeight(@NotNull TextStyle style);
+
+}
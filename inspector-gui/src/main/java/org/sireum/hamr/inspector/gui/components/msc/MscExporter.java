@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.components.msc;
+
+import art.Bridge;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.sireum.hamr.inspector.common.ArtUtils;
+import org.sireum.hamr.inspector.common.Msg;
+import org.sireum.hamr.inspector.gui.gfx.Coloring;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.sireum.hamr.inspector.gui.components.msc.MscGeometry.ROW_HEIGHT;
+
+/**
+ * Exports an msc of any length to an svg file or to a grid of png tiles, drawn by an {@link MscPainter}.
+ *
+ * Msgs are drawn {@link #ROWS_PER_CHUNK} at a time as they stream in and are dropped once drawn, so an export holds at
+ * most one chunk of msgs (and, for png, one tile's image) in memory no matter how many msgs it covers.
+ */
+@Slf4j
+public final class MscExporter {
+
+    /**
+     * The number of rows drawn at a time, which is also the number of rows in each png tile.
+     */
+    public static final int ROWS_PER_CHUNK = 100;
+
+    /**
+     * The widest a png tile can be, wider mscs are split into several columns of tiles.
+     */
+    public static final int MAX_TILE_WIDTH = 4096;
+
+    // the svg's height is not known until every msg is written, so it is written as a placeholder and patched after
+    private static final int HEIGHT_DIGITS = 12;
+
+    private final MscPainter painter;
+
+    public MscExporter(@NotNull ArtUtils artUtils, @NotNull Coloring<Bridge> bridgeColoring) {
+        this.painter = new MscPainter(artUtils, bridgeColoring);
+    }
+
+    /**
+     * @return the msgs whose sequence numbers are in [from, to], which ends as soon as a later msg arrives
+     */
+    @NotNull
+    public static Flux<Msg> sequenceRange(@NotNull Flux<Msg> msgs, long from, long to) {
+        return msgs.skipWhile(msg -> msg.sequence() < from).takeWhile(msg -> msg.sequence() <= to);
+    }
+
+    /**
+     * @return the msgs whose timestamps are in [from, to], which ends as soon as a later msg arrives
+     */
+    @NotNull
+    public static Flux<Msg> timeRange(@NotNull Flux<Msg> msgs, long from, long to) {
+        return msgs.skipWhile(msg -> msg.timestamp() < from).takeWhile(msg -> msg.timestamp() <= to);
+    }
+
+    /**
+     * Writes the msgs to a single svg file.
+     *
+     * @return the number of msgs exported, once the file is complete
+     */
+    @NotNull
+    public Mono<Long> exportSvg(@NotNull Flux<Msg> msgs, @NotNull Path file) {
+        return Mono.fromCallable(() -> {
+            final AtomicLong rowCount = new AtomicLong(0);
+            final long heightOffset;
+
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                final String prefix = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                        + "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + (long) Math.ceil(painter.width())
+                        + "\" height=\"";
+                heightOffset = prefix.length(); // the prefix is ascii, so its length in chars is its length in bytes
+                writer.write(prefix + "0".repeat(HEIGHT_DIGITS) + "\">\n");
+                writer.write("<rect width=\"100%\" height=\"100%\" fill=\"#ffffff\"/>\n");
+
+                final SvgMscDrawing drawing = new SvgMscDrawing(writer);
+                painter.drawHeader(drawing);
+
+                msgs.buffer(ROWS_PER_CHUNK).toIterable(1).forEach(chunk -> {
+                    final double top = MscPainter.heightOf(rowCount.get());
+                    painter.drawLifelines(drawing, top, top + chunk.size() * ROW_HEIGHT);
+                    for (Msg msg : chunk) {
+                        drawing.beginGroup("msg " + msg.sequence());
+                        painter.drawRow(drawing, msg, MscPainter.heightOf(rowCount.getAndIncrement()));
+                        drawing.endGroup();
+                    }
+                });
+
+                writer.write("</svg>\n");
+            }
+
+            final String height = String.format(Locale.ROOT, "%0" + HEIGHT_DIGITS + "d",
+                    (long) Math.ceil(MscPainter.heightOf(rowCount.get())));
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(height.getBytes(StandardCharsets.US_ASCII)), heightOffset);
+            }
+
+            log.info("exported {} msgs to {}", rowCount.get(), file);
+            return rowCount.get();
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Writes the msgs to png tiles named msc-r{row}-c{column}.png, each with its own copy of the header so any tile can
+     * be read on its own.
+     *
+     * @return the number of msgs exported, once every tile is written
+     */
+    @NotNull
+    public Mono<Long> exportPngTiles(@NotNull Flux<Msg> msgs, @NotNull Path directory) {
+        return Mono.fromCallable(() -> {
+            Files.createDirectories(directory);
+
+            final AtomicLong rowCount = new AtomicLong(0);
+            final AtomicLong tileRow = new AtomicLong(0);
+            msgs.buffer(ROWS_PER_CHUNK).toIterable(1).forEach(chunk -> {
+                writeTileRow(directory, tileRow.getAndIncrement(), chunk);
+                rowCount.addAndGet(chunk.size());
+            });
+
+            log.info("exported {} msgs to {} rows of tiles in {}", rowCount.get(), tileRow.get(), directory);
+            return rowCount.get();
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private void writeTileRow(Path directory, long tileRow, List<Msg> rows) {
+        final int width = (int) Math.ceil(painter.width());
+        final int height = (int) Math.ceil(MscPainter.heightOf(rows.size()));
+
+        for (int x = 0, tileColumn = 0; x < width; x += MAX_TILE_WIDTH, tileColumn++) {
+            final int tileWidth = Math.min(MAX_TILE_WIDTH, width - x);
+            final BufferedImage image = new BufferedImage(tileWidth, height, BufferedImage.TYPE_INT_RGB);
+            final Graphics2D g = image.createGraphics();
+            try {
+                g.setColor(java.awt.Color.WHITE);
+                g.fillRect(0, 0, tileWidth, height);
+                g.translate(-x, 0); // java2d clips whatever falls outside of this tile
+
+                final Java2dMscDrawing drawing = new Java2dMscDrawing(g);
+                painter.drawLifelines(drawing, MscPainter.HEADER_HEIGHT, height);
+                painter.drawHeader(drawing);
+                for (int i = 0; i < rows.size(); i++) {
+                    painter.drawRow(drawing, rows.get(i), MscPainter.heightOf(i));
+                }
+            } finally {
+                g.dispose();
+            }
+
+            final Path tile = directory.resolve(String.format(Locale.ROOT, "msc-r%06d-c%03d.png", tileRow, tileColumn));
+            try {
+                ImageIO.write(image, "png", tile.toFile());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+}
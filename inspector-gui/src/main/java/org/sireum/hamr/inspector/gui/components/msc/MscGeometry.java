@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.components.msc;
+
+import lombok.experimental.UtilityClass;
+
+import java.util.function.Supplier;
+
+/**
+ * The layout of an msc, shared by {@link MscTableCell} and by renderers which draw an msc without a scene graph.
+ *
+ * Each msg is a row and each bridge is a column. A msg's arrow starts in its sender's column and ends with an arrow head
+ * in its receiver's column, crossing every column in between.
+ */
+@UtilityClass
+public final class MscGeometry {
+
+    public static final double ROW_HEIGHT = 80.0;
+    public static final double COLUMN_WIDTH = 200.0;
+    public static final double INDEX_COLUMN_WIDTH = 28.0;
+    public static final double LINE_HEIGHT = 4.0;
+
+    /**
+     * What a column draws for a msg, named after the direction of the msg's arrow (R = pointing right).
+     */
+    public enum CellType {
+        R_HEAD, L_HEAD, R_ORIGIN, L_ORIGIN, LINE, EMPTY
+    }
+
+    /**
+     * @param senderIndex the column of the msg's source bridge
+     * @param receiverIndex the column of the msg's destination bridge
+     * @param selfIndex the column being drawn
+     * @return what the column at selfIndex draws for the msg
+     */
+    public static CellType cellTypeOf(int senderIndex, int receiverIndex, int selfIndex) {
+        if (senderIndex < receiverIndex) { // if left arrow
+            if (selfIndex == senderIndex) {
+                return CellType.L_ORIGIN;
+            } else if (selfIndex == receiverIndex) {
+                return CellType.R_HEAD;
+            } else if (senderIndex < selfIndex && selfIndex < receiverIndex) {
+                return CellType.LINE;
+            } else {
+                return CellType.EMPTY;
+            }
+        } else { // if right arrow
+            if (selfIndex == senderIndex) {
+                return CellType.R_ORIGIN;
+            } else if (selfIndex == receiverIndex) {
+                return CellType.L_HEAD;
+            } else if (receiverIndex < selfIndex && selfIndex < senderIndex) {
+                return CellType.LINE;
+            } else {
+                return CellType.EMPTY;
+            }
+        }
+    }
+
+    /**
+     * Adjacent columns have no column between them to hold the msg's data, so it is split across both terminals.
+     */
+    public static boolean areAdjacent(int senderIndex, int receiverIndex) {
+        return Math.abs(senderIndex - receiverIndex) == 1;
+    }
+
+    /**
+     * @return the polygon (x0, y0, x1, y1, ...) of a right-facing arrow head on the lhs of a cell
+     */
+    public static double[] rightArrowHeadPoints() {
+        return RIGHT_ARROW_HEAD_POINTS.clone();
+    }
+
+    /**
+     * @return the polygon (x0, y0, x1, y1, ...) of a left-facing arrow head on the rhs of a cell
+     */
+    public static double[] leftArrowHeadPoints() {
+        return LEFT_ARROW_HEAD_POINTS.clone();
+    }
+
+    /**
+     * @return the height of both arrow heads
+     */
+    public static double arrowHeadHeight() {
+        return ROW_HEIGHT * 0.45;
+    }
+
+    /*
+     *
+     *           {          w (total width)         }
+     *
+     *                                     | \             }
+     *            {          lw          } |   \            \
+     *           --------------------------      \           |
+     *       {   |                                  \        |
+     *      lh   |                                   |       h (total height = arrow height)
+     *       {   |                                  /        |
+     *           --------------------------      /           |
+     *                                   { |   /            /
+     *                     aj = (h-lh)/2 { | /             }
+     *
+     *                                     {   aw    }
+     */
+    private static final double[] RIGHT_ARROW_HEAD_POINTS = ((Supplier<double[]>) () -> {
+        final double h = ROW_HEIGHT * 0.45; // total height
+        final double w = COLUMN_WIDTH * 0.5; // total width
+        final double lh = LINE_HEIGHT; // line height (not including arrow part)
+        final double lw = w * 0.70; // line width (not including arrow part)
+        final double aj = (h - lh) / 2.0; // "arrow jut" or how much sticks from either side compared to the line
+
+        return new double[]{
+                0.0, aj,
+                lw, aj,
+                lw, 0.0,
+                w, h / 2.0,
+                lw, h,
+                lw, h - aj,
+                0.0, h - aj
+        };
+    }).get();
+
+    private static final double[] LEFT_ARROW_HEAD_POINTS = ((Supplier<double[]>) () -> {
+        final double h = ROW_HEIGHT * 0.45; // total height
+        final double w = COLUMN_WIDTH * 0.5; // total width
+        final double lh = LINE_HEIGHT; // line height (not including arrow part)
+        final double lw = w * 0.70; // line width (not including arrow part)
+        final double aw = w - lw; // arrow/head width
+        final double aj = (h - lh) / 2.0; // "arrow jut" or how much sticks from either side compared to the line
+
+        return new double[] {
+                w, aj,
+                aw, aj,
+                aw, 0.0,
+                0.0, h / 2.0,
+                aw, h,
+                aw, h - aj,
+                w,  h - aj
+        };
+    }).get();
+
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.components.msc;
+
+import art.Bridge;
+import javafx.application.Platform;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Tooltip;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.sireum.hamr.inspector.common.ArtUtils;
+import org.sireum.hamr.inspector.common.Msg;
+import org.sireum.hamr.inspector.gui.ThreadedOn;
+import org.sireum.hamr.inspector.gui.gfx.Coloring;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.util.function.Tuple2;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongConsumer;
+
+/**
+ * An overview of an entire msc, drawn as a heatmap of how many msgs each bridge sent over time (see
+ * {@link MscDensity}). Time runs top to bottom over the minimap's full height and there is one column per bridge,
+ * shaded by the log of its count so a few bursts don't wash out everything else.
+ *
+ * The density is aggregated on the stream's thread as msgs arrive, and only a {@link MscDensity.Snapshot} is handed to
+ * the fx thread (at most once every {@link #REFRESH}), so the minimap costs the same to draw for any number of msgs.
+ * Clicking the minimap seeks to the first msg of the clicked time bucket.
+ */
+@Slf4j
+public final class MscMinimap extends Region {
+
+    private static final int BUCKET_COUNT = 1024;
+    private static final int MAX_CHUNK_SIZE = 4096;
+    private static final Duration REFRESH = Duration.ofMillis(250);
+
+    private static final double PREF_WIDTH = 96.0;
+    private static final Color BACKGROUND_COLOR = Color.WHITE;
+
+    private final Coloring<Bridge> bridgeColoring;
+    private final List<Bridge> bridges;
+
+    private final Canvas canvas = new Canvas();
+    private final Tooltip tooltip = new Tooltip();
+
+    private final AtomicReference<Disposable> subscription = new AtomicReference<>(null);
+
+    // the density being fed by the current subscription, snapshots of any other density are stale
+    @ThreadedOn(threadName = "fx")
+    private MscDensity density = null;
+
+    @ThreadedOn(threadName = "fx")
+    private MscDensity.Snapshot snapshot = MscDensity.Snapshot.EMPTY;
+
+    @ThreadedOn(threadName = "fx")
+    private LongConsumer onSeek = index -> {};
+
+    public MscMinimap(@NotNull ArtUtils artUtils, @NotNull Coloring<Bridge> bridgeColoring) {
+        this.bridgeColoring = bridgeColoring;
+        this.bridges = List.copyOf(artUtils.getBridges());
+
+        getChildren().add(canvas);
+
+        canvas.addEventHandler(MouseEvent.MOUSE_CLICKED, event -> {
+            final int bucket = bucketAt(event.getY());
+            final long index = bucket < 0 ? -1 : snapshot.firstIndexFrom(bucket);
+            if (index >= 0) {
+                onSeek.accept(index);
+            }
+        });
+        canvas.addEventHandler(MouseEvent.MOUSE_MOVED, event -> {
+            final int bucket = bucketAt(event.getY());
+            if (bucket < 0) {
+                tooltip.hide();
+            } else {
+                tooltip.setText("from " + ArtUtils.formatTime(snapshot.startOf(bucket))
+                        + " to " + ArtUtils.formatTime(snapshot.startOf(bucket + 1) - 1));
+                tooltip.show(canvas, event.getScreenX() + 12.0, event.getScreenY() + 12.0);
+            }
+        });
+        canvas.addEventHandler(MouseEvent.MOUSE_EXITED, event -> tooltip.hide());
+        visibleProperty().addListener((obs, oldValue, newValue) -> draw());
+    }
+
+    /**
+     * Replaces the msgs the minimap summarizes, disposing of the previous subscription (if any).
+     *
+     * @param msgs the msgs of an msc, in the same order the msc shows them, or null to clear the minimap
+     */
+    @ThreadedOn(threadName = "fx")
+    public void setSource(@Nullable Flux<Msg> msgs) {
+        dispose();
+        density = null;
+        snapshot = MscDensity.Snapshot.EMPTY;
+        draw();
+
+        if (msgs == null) {
+            return;
+        }
+
+        final MscDensity density = new MscDensity(bridges, BUCKET_COUNT);
+        this.density = density;
+        final Disposable disposable = msgs
+                .index()
+                .bufferTimeout(MAX_CHUNK_SIZE, REFRESH)
+                .subscribe(
+                        indexedMsgs -> {
+                            if (indexedMsgs.isEmpty()) {
+                                return;
+                            }
+                            for (Tuple2<Long, Msg> indexedMsg : indexedMsgs) {
+                                density.add(indexedMsg.getT2(), indexedMsg.getT1());
+                            }
+                            publish(density, density.snapshot());
+                        },
+                        error -> log.error("minimap stream failed", error)
+                );
+
+        if (!subscription.compareAndSet(null, disposable)) {
+            disposable.dispose(); // should be unreachable, setSource is only called from the fx thread
+        }
+    }
+
+    /**
+     * @param onSeek called with the index of the first msg in a time bucket when the bucket is clicked
+     */
+    @ThreadedOn(threadName = "fx")
+    public void setOnSeek(@NotNull LongConsumer onSeek) {
+        this.onSeek = onSeek;
+    }
+
+    public void dispose() {
+        subscription.updateAndGet(disposable -> {
+            if (disposable != null && !disposable.isDisposed()) {
+                disposable.dispose();
+            }
+            return null;
+        });
+    }
+
+    private void publish(@NotNull MscDensity source, @NotNull MscDensity.Snapshot next) {
+        Platform.runLater(() -> {
+            if (density == source) {
+                snapshot = next;
+                draw();
+            }
+        });
+    }
+
+    @Override
+    protected void layoutChildren() {
+        canvas.setWidth(getWidth());
+        canvas.setHeight(getHeight());
+        canvas.relocate(0.0, 0.0);
+        draw();
+    }
+
+    @Override
+    protected double computePrefWidth(double height) {
+        return PREF_WIDTH;
+    }
+
+    @Override
+    protected double computePrefHeight(double width) {
+        return 0.0; // fills whatever height its container gives it
+    }
+
+    /**
+     * @return the bucket drawn at y, or -1 if there isn't one
+     */
+    private int bucketAt(double y) {
+        final int bucketCount = snapshot.getBucketCount();
+        if (bucketCount == 0 || y < 0.0 || y >= canvas.getHeight()) {
+            return -1;
+        }
+        return Math.min(bucketCount - 1, (int) (y / canvas.getHeight() * bucketCount));
+    }
+
+    @ThreadedOn(threadName = "fx")
+    private void draw() {
+        if (!isVisible()) {
+            return;
+        }
+
+        final GraphicsContext g = canvas.getGraphicsContext2D();
+        final double width = canvas.getWidth();
+        final double height = canvas.getHeight();
+        g.setFill(BACKGROUND_COLOR);
+        g.fillRect(0.0, 0.0, width, height);
+
+        final int bucketCount = snapshot.getBucketCount();
+        final int bridgeCount = snapshot.getBridgeCount();
+        if (bucketCount == 0 || bridgeCount == 0 || snapshot.getMaxCount() == 0) {
+            return;
+        }
+
+        final double columnWidth = width / bridgeCount;
+        final double bucketHeight = height / bucketCount;
+        final double logMax = Math.log1p(snapshot.getMaxCount());
+
+        for (int column = 0; column < bridgeCount; column++) {
+            final Color color = bridgeColoring.getColorOf(bridges.get(column));
+            final double x = column * columnWidth;
+            for (int bucket = 0; bucket < bucketCount; bucket++) {
+                final long count = snapshot.countOf(bucket, column);
+                if (count > 0) {
+                    // snap to whole pixels so adjacent buckets don't leave seams between them
+                    final double y = Math.floor(bucket * bucketHeight);
+                    final double h = Math.max(1.0, Math.floor((bucket + 1) * bucketHeight) - y);
+                    g.setGlobalAlpha(Math.log1p(count) / logMax);
+                    g.setFill(color);
+                    g.fillRect(x, y, columnWidth, h);
+                }
+            }
+        }
+        g.setGlobalAlpha(1.0);
+    }
+
+}
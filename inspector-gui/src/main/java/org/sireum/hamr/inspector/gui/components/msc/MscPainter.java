@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.components.msc;
+
+import art.Bridge;
+import javafx.scene.paint.Color;
+import org.jetbrains.annotations.NotNull;
+import org.sireum.hamr.inspector.common.ArtUtils;
+import org.sireum.hamr.inspector.common.Msg;
+import org.sireum.hamr.inspector.gui.components.msc.MscDrawing.TextStyle;
+import org.sireum.hamr.inspector.gui.gfx.Coloring;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.sireum.hamr.inspector.gui.components.msc.MscGeometry.*;
+
+/**
+ * Draws an msc onto an {@link MscDrawing}, laid out by the same {@link MscGeometry} as the gui's msc.
+ *
+ * The header, lifelines and each row are drawn separately, so an msc can be drawn a few rows at a time (and each row
+ * only needs its own msg) no matter how many rows it has in total.
+ */
+public final class MscPainter {
+
+    public static final double HEADER_HEIGHT = 32.0;
+
+    // the same greys as java.awt.Color, which snapshots were first drawn with
+    private static final Color SEPARATOR_COLOR = Color.rgb(192, 192, 192);
+    private static final Color DATA_COLOR = Color.rgb(64, 64, 64);
+    private static final double LIFELINE_OPACITY = 64 / 255.0;
+
+    private final ArtUtils artUtils;
+    private final Coloring<Bridge> bridgeColoring;
+    private final List<Bridge> bridges;
+    private final Map<Bridge, Integer> columns;
+
+    public MscPainter(@NotNull ArtUtils artUtils, @NotNull Coloring<Bridge> bridgeColoring) {
+        this.artUtils = artUtils;
+        this.bridgeColoring = bridgeColoring;
+        this.bridges = List.copyOf(artUtils.getBridges());
+        this.columns = new HashMap<>(bridges.size() * 2);
+        for (int i = 0; i < bridges.size(); i++) {
+            columns.put(bridges.get(i), i);
+        }
+    }
+
+    /**
+     * @return the width of the msc, which is the same for every row
+     */
+    public double width() {
+        return INDEX_COLUMN_WIDTH + bridges.size() * COLUMN_WIDTH;
+    }
+
+    /**
+     * @return the height of the header and rowCount rows
+     */
+    public static double heightOf(long rowCount) {
+        return HEADER_HEIGHT + rowCount * ROW_HEIGHT;
+    }
+
+    /**
+     * Draws each bridge's name above its column, in a header of {@link #HEADER_HEIGHT} at the top of the drawing.
+     */
+    public void drawHeader(@NotNull MscDrawing drawing) {
+        for (int column = 0; column < bridges.size(); column++) {
+            final Bridge bridge = bridges.get(column);
+            drawing.text(artUtils.prettyPrint(bridge), columnCenter(column), HEADER_HEIGHT / 2.0, COLUMN_WIDTH,
+                    TextStyle.HEADER, bridgeColoring.getColorOf(bridge));
+        }
+        drawing.line(0.0, HEADER_HEIGHT - 1.0, width(), HEADER_HEIGHT - 1.0, SEPARATOR_COLOR);
+    }
+
+    /**
+     * Draws every bridge's lifeline from top to bottom, behind the rows between them.
+     */
+    public void drawLifelines(@NotNull MscDrawing drawing, double top, double bottom) {
+        for (int column = 0; column < bridges.size(); column++) {
+            final Color color = bridgeColoring.getColorOf(bridges.get(column));
+            final double center = Math.floor(columnCenter(column));
+            drawing.line(center, top, center, bottom, color.deriveColor(0.0, 1.0, 1.0, LIFELINE_OPACITY));
+        }
+    }
+
+    /**
+     * Draws the msg's arrow, its data above the arrow and its destination port below the arrow head.
+     *
+     * @param y the top of the msg's row
+     */
+    public void drawRow(@NotNull MscDrawing drawing, @NotNull Msg msg, double y) {
+        final Integer sender = columns.get(msg.srcBridge());
+        final Integer receiver = columns.get(msg.dstBridge());
+        if (sender == null || receiver == null) {
+            return;
+        }
+
+        final double centerY = y + ROW_HEIGHT / 2.0;
+        final double headTop = centerY - arrowHeadHeight() / 2.0;
+
+        drawing.text(Long.toString(msg.sequence()), INDEX_COLUMN_WIDTH / 2.0, centerY, INDEX_COLUMN_WIDTH,
+                TextStyle.ROW, Color.GRAY);
+
+        double headCenter = columnCenter(receiver);
+        for (int column = 0; column < bridges.size(); column++) {
+            final double x = INDEX_COLUMN_WIDTH + column * COLUMN_WIDTH;
+            switch (cellTypeOf(sender, receiver, column)) {
+                case LINE:
+                    fillLine(drawing, x, centerY, COLUMN_WIDTH);
+                    break;
+                case L_ORIGIN:
+                    fillLine(drawing, x + COLUMN_WIDTH / 2.0, centerY, COLUMN_WIDTH / 2.0);
+                    break;
+                case R_ORIGIN:
+                    fillLine(drawing, x, centerY, COLUMN_WIDTH / 2.0);
+                    break;
+                case R_HEAD:
+                    drawing.fillPolygon(rightArrowHeadPoints(), x, headTop, Color.BLACK);
+                    headCenter = x + COLUMN_WIDTH / 4.0;
+                    break;
+                case L_HEAD:
+                    drawing.fillPolygon(leftArrowHeadPoints(), x + COLUMN_WIDTH / 2.0, headTop, Color.BLACK);
+                    headCenter = x + COLUMN_WIDTH * 3.0 / 4.0;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        final double left = columnCenter(Math.min(sender, receiver));
+        final double right = columnCenter(Math.max(sender, receiver));
+        final double span = Math.max(right - left, COLUMN_WIDTH);
+        final double lineHeight = drawing.lineHeight(TextStyle.ROW);
+        drawing.text(msg.data().toString(), (left + right) / 2.0, headTop - lineHeight / 2.0, span,
+                TextStyle.ROW, DATA_COLOR);
+        drawing.text(artUtils.prettyPrint(msg.dst()), headCenter, headTop + arrowHeadHeight() + lineHeight / 2.0,
+                COLUMN_WIDTH, TextStyle.ROW, bridgeColoring.getColorOf(msg.dstBridge()));
+    }
+
+    private static void fillLine(MscDrawing drawing, double x, double centerY, double width) {
+        drawing.fillRect(x, centerY - LINE_HEIGHT / 2.0, width, LINE_HEIGHT, Color.BLACK);
+    }
+
+    private static double columnCenter(int column) {
+        return INDEX_COLUMN_WIDTH + (column + 0.5) * COLUMN_WIDTH;
+    }
+
+}
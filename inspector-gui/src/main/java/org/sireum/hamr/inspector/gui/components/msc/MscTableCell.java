@@ -28,8 +28,11 @@ package org.sireum.hamr.inspector.gui.components.msc;
 import art.Bridge;
 import art.UPort;
 import javafx.beans.binding.Bindings;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
@@ -42,18 +45,21 @@ import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 import org.sireum.hamr.inspector.common.ArtUtils;
 import org.sireum.hamr.inspector.common.Msg;
+import org.sireum.hamr.inspector.gui.components.PayloadText;
 import org.sireum.hamr.inspector.gui.components.TextFlowFactory;
+import org.sireum.hamr.inspector.gui.components.TextFlowFactory.ColorRuns;
+import org.sireum.hamr.inspector.gui.components.msc.MscGeometry.CellType;
 import org.sireum.hamr.inspector.gui.gfx.Coloring;
 
-import java.util.List;
-import java.util.function.Supplier;
-
 import static javafx.beans.binding.Bindings.add;
 import static javafx.beans.binding.Bindings.divide;
-import static org.sireum.hamr.inspector.gui.components.TextFlowFactory.getDefaultParenMatchLeftoverColorIndex;
 
 /**
  * A cell which visualizes a {@link UPort}.
+ *
+ * Every cell builds its graphic once, with a node for each part any {@link CellType} can draw (the arrow line, both
+ * arrow heads, the port label and the msg's data). Updating the cell only changes the text, alignment and visibility of
+ * those nodes, so scrolling creates no nodes and no css has to be applied to new ones.
  */
 @Slf4j
 public class MscTableCell extends TableCell<Msg, Msg> {
@@ -62,16 +68,55 @@ public class MscTableCell extends TableCell<Msg, Msg> {
     private static final Insets LEFT_MISSING = new Insets(8.0, 2.0, 2.0, 0.0);
     private static final Insets RIGHT_MISSING = new Insets(8.0, 0.0, 2.0, 2.0);
 
-    private static final double LINE_HEIGHT = 4.0;
-
     private final ArtUtils artUtils;
     private final Coloring<Bridge> bridgeColoring;
 
     private boolean areSourceAndDestAdjacentCallback = false;
 
+    // the column positions of the current item's sender and receiver and of this cell, set by determineCellType
+    private int senderIndex = -1;
+    private int receiverIndex = -1;
+    private int selfIndex = -1;
+
+    // the graphic, from back to front
+    private final StackPane pane = new StackPane();
+    private final TextFlow scrollableTextFlow = new TextFlow();
+    private final ScrollPane scrollableTextWrapper = new ScrollPane(scrollableTextFlow);
+    private final TextFlow textFlow = new TextFlow();
+    private final Rectangle arrowLine = new Rectangle(MscGeometry.COLUMN_WIDTH, MscGeometry.LINE_HEIGHT, Color.BLACK);
+    private final Polygon rightArrowHead = createRightArrowHead();
+    private final Polygon leftArrowHead = createLeftArrowHead();
+    private final Label label = new Label();
+
+    private final Tooltip labelTooltip = new Tooltip();
+    private final Tooltip textTooltip = new Tooltip();
+    private final Tooltip scrollableTextTooltip = new Tooltip();
+
+    // the label sits right of a right-facing terminal's shape, and left of a left-facing one's
+    private final BooleanProperty isLabelRight = new SimpleBooleanProperty(true);
+
     public MscTableCell(ArtUtils artUtils, Coloring<Bridge> bridgeColoring) {
         this.artUtils = artUtils;
         this.bridgeColoring = bridgeColoring;
+
+        label.translateXProperty().bind(Bindings.when(isLabelRight)
+                .then(add(10.0, divide(label.widthProperty(), 2.0)))
+                .otherwise(add(-10.0, divide(label.widthProperty(), -2.0))));
+        label.setTooltip(labelTooltip);
+        StackPane.setAlignment(label, Pos.CENTER);
+
+        textFlow.setMinWidth(Region.USE_PREF_SIZE);
+        Tooltip.install(textFlow, textTooltip);
+
+        scrollableTextFlow.setMinWidth(Region.USE_PREF_SIZE);
+        scrollableTextFlow.setTextAlignment(TextAlignment.CENTER);
+        Tooltip.install(scrollableTextFlow, scrollableTextTooltip);
+        initScrollableTextWrapper();
+
+        pane.getChildren().addAll(scrollableTextWrapper, textFlow, arrowLine, rightArrowHead, leftArrowHead, label);
+        StackPane.setAlignment(rightArrowHead, Pos.CENTER_LEFT);
+        StackPane.setAlignment(leftArrowHead, Pos.CENTER_RIGHT);
+        setGraphic(pane);
     }
 
     /**
@@ -88,18 +133,19 @@ public class MscTableCell extends TableCell<Msg, Msg> {
     protected void updateItem(Msg item, boolean empty) {
         super.updateItem(item, empty);
 
+        for (Node node : pane.getChildren()) {
+            show(node, false);
+        }
+
         if (empty || item == null) {
-            setGraphic(null);
+            pane.setVisible(false);
         } else {
             final CellType cellType = determineCellType(item); // sets areSourceAndDestAdjacentCallback
+            pane.setVisible(cellType != CellType.EMPTY);
             setGraphicToCellType(item, cellType); // uses areSourceAndDestAdjacentCallback
         }
     }
 
-    private enum CellType {
-        R_HEAD, L_HEAD, R_ORIGIN, L_ORIGIN, LINE, EMPTY
-    }
-
     /*
     TODO:
         - add msg id
@@ -107,317 +153,146 @@ public class MscTableCell extends TableCell<Msg, Msg> {
      */
     private void setGraphicToCellType(Msg msg, CellType cellType) {
         if (cellType == CellType.R_HEAD) {
-            final Polygon rightArrowHead = createRightArrowHead();
             final String text = artUtils.prettyPrint(msg.dst());
             final String tooltipText = artUtils.informativePrettyPrint(msg.dst());
             setGraphicToLineTerminal(rightArrowHead, true, text, tooltipText, msg);
 
         } else if (cellType == CellType.L_HEAD) {
-            final Polygon leftArrowHead = createLeftArrowHead();
             final String text = artUtils.prettyPrint(msg.dst());
             final String tooltipText = artUtils.informativePrettyPrint(msg.dst());
             setGraphicToLineTerminal(leftArrowHead, false, text, tooltipText, msg);
 
         } else if (cellType == CellType.R_ORIGIN) {
-            final Rectangle rect = createArrowLine(0.50);
-            rect.setFill(Color.BLACK);
+            arrowLine.setWidth(MscGeometry.COLUMN_WIDTH * 0.50);
             final String text = artUtils.prettyPrint(msg.dst());
             final String tooltipText = artUtils.informativePrettyPrint(msg.src());
-            setGraphicToLineTerminal(rect, true, text, tooltipText, msg);
+            setGraphicToLineTerminal(arrowLine, true, text, tooltipText, msg);
 
         } else if (cellType == CellType.L_ORIGIN) {
-            final Rectangle rect = createArrowLine(0.50);
-            rect.setFill(Color.BLACK);
+            arrowLine.setWidth(MscGeometry.COLUMN_WIDTH * 0.50);
             final String text = artUtils.prettyPrint(msg.dst());
             final String tooltipText = artUtils.informativePrettyPrint(msg.src());
-            setGraphicToLineTerminal(rect, false, text, tooltipText, msg);
+            setGraphicToLineTerminal(arrowLine, false, text, tooltipText, msg);
 
         } else if (cellType == CellType.LINE) {
             setGraphicToLineMiddle(msg);
-        } else if (cellType == CellType.EMPTY) {
-            setGraphic(null);
         }
     }
 
     private void setGraphicToLineTerminal(Shape shape, boolean isRight, String text, String tooltipText, Msg msg) {
-        final Pos shapePos;
-        final Label label = new Label(text);
+        label.setText(text);
         label.setTextFill(bridgeColoring.getColorOf(getBridge()));
+        labelTooltip.setText(tooltipText);
+        isLabelRight.set(isRight);
+        show(label, true);
 
-        if (isRight) {
-            shapePos = Pos.CENTER_LEFT;
-            label.translateXProperty().bind(add(10.0, divide(label.widthProperty(), 2.0)));
-        } else {
-            shapePos = Pos.CENTER_RIGHT;
-            label.translateXProperty().bind(add(-10.0, divide(label.widthProperty(), -2.0)));
-        }
-
-        label.setTooltip(new Tooltip(tooltipText));
-
-        final StackPane pane = new StackPane(shape, label);
-        StackPane.setAlignment(shape, shapePos);
-        StackPane.setAlignment(label, Pos.CENTER);
+        StackPane.setAlignment(shape, isRight ? Pos.CENTER_LEFT : Pos.CENTER_RIGHT);
+        show(shape, true);
 
         if (areSourceAndDestAdjacentCallback) {
-            final Pos pos;
-            final Insets insets;
-            final String labelText;
-            final int textFlowColorOffset;
-            final TextAlignment textAlignment;
-
-            final String fullText = msg.data().toString();
+            final PayloadText payloadText = PayloadText.of(msg.data());
 
             if (isRight) {
-                pos = Pos.TOP_LEFT;
-                insets = LEFT_MISSING;
-                labelText = fullText.substring(fullText.length() / 2);
-                final String firstHalf = fullText.substring(0, fullText.length() / 2);
-                textFlowColorOffset = TextFlowFactory.getDefaultParenMatchLeftoverColorIndex(firstHalf);
-                textAlignment = TextAlignment.LEFT;
+                showTextFlow(Pos.TOP_LEFT, payloadText.secondHalfRuns(), payloadText.getText(), LEFT_MISSING, TextAlignment.LEFT);
             } else {
-                pos = Pos.TOP_RIGHT;
-                insets = RIGHT_MISSING;
-                labelText = fullText.substring(0, fullText.length() / 2);
-                textFlowColorOffset = 0;
-                textAlignment = TextAlignment.RIGHT;
+                showTextFlow(Pos.TOP_RIGHT, payloadText.firstHalfRuns(), payloadText.getText(), RIGHT_MISSING, TextAlignment.RIGHT);
             }
-
-            addTextFlowToCell(pane, pos, labelText, fullText, insets, textAlignment, textFlowColorOffset, false);
         }
-
-        setGraphic(pane);
     }
 
     private void setGraphicToLineMiddle(Msg msg) {
-        final Rectangle arrowLine = createArrowLine(1.0);
-
-        final List<TableColumn<Msg, ?>> columns = getTableView().getColumns();
-        final int bridgeCount = columns.size();
-
-        int selfIndex = -1;
-        int senderIndex = -1;
-        int receiverIndex = -1;
-
-        for (int i=0; i < bridgeCount; i++) {
-            final Bridge bridge = (Bridge) columns.get(i).getUserData();
-            if (msg.srcBridge().equals(bridge)) {
-                senderIndex = i;
-            }
-            if (getBridge().equals(bridge)) {
-                selfIndex = i;
-            }
-            if (msg.dstBridge().equals(bridge)) {
-                receiverIndex = i;
-            }
-            if (senderIndex != -1 && selfIndex != -1 && receiverIndex != -1) {
-                break;
-            }
-        }
-
-        final StackPane stackPane = new StackPane();
-
-        stackPane.getChildren().add(arrowLine);
+        arrowLine.setWidth(MscGeometry.COLUMN_WIDTH);
         StackPane.setAlignment(arrowLine, Pos.CENTER_LEFT);
+        show(arrowLine, true);
 
         if (senderIndex != receiverIndex) {
             final int smallerIndex = Math.min(senderIndex, receiverIndex);
             final int biggerIndex = Math.max(senderIndex, receiverIndex);
             final int prefIndex = smallerIndex + (biggerIndex - smallerIndex) / 2;
 
-            final String fullText = msg.data().toString();
+            // the payload's text and color runs are cached, so revisiting a row does not tokenize them again
+            final PayloadText payloadText = PayloadText.of(msg.data());
 
             if ((biggerIndex - smallerIndex) % 2 == 1 && biggerIndex - smallerIndex > 2) {
-                final boolean left = selfIndex == prefIndex;
-                final boolean right = selfIndex == prefIndex + 1;
-
-                if (left || right) {
-                    final Pos pos;
-                    final String text;
-                    final Insets insets;
-                    final TextAlignment textAlignment;
-                    final int startPos;
-
-                    if (left) {
-                        text = fullText.substring(0, fullText.length() / 2);
-                        insets = RIGHT_MISSING;
-                        pos = Pos.TOP_RIGHT;
-                        textAlignment = TextAlignment.RIGHT;
-                        startPos = 0;
-                    } else {
-                        text = fullText.substring(fullText.length() / 2);
-                        insets = LEFT_MISSING;
-                        pos = Pos.TOP_LEFT;
-                        textAlignment = TextAlignment.LEFT;
-                        final String firstHalf = fullText.substring(0, fullText.length() / 2);
-                        startPos = getDefaultParenMatchLeftoverColorIndex(firstHalf);
-                    }
-
-                    addTextFlowToCell(stackPane, pos, text, fullText, insets, textAlignment, startPos, false);
+                if (selfIndex == prefIndex) {
+                    showTextFlow(Pos.TOP_RIGHT, payloadText.firstHalfRuns(), payloadText.getText(), RIGHT_MISSING, TextAlignment.RIGHT);
+                } else if (selfIndex == prefIndex + 1) {
+                    showTextFlow(Pos.TOP_LEFT, payloadText.secondHalfRuns(), payloadText.getText(), LEFT_MISSING, TextAlignment.LEFT);
                 }
             } else if (selfIndex == prefIndex) {
-                addTextFlowToCell(stackPane, Pos.TOP_CENTER, fullText, fullText, Insets.EMPTY, TextAlignment.CENTER, 0, true);
+                showScrollableTextFlow(payloadText);
             }
         }
-
-        setGraphic(stackPane);
     }
 
-    private void addTextFlowToCell(StackPane parentPane, Pos pos, String text, String tooltipText, Insets insets, TextAlignment textAlignment, int startPos, boolean scrollable) {
-        final TextFlow textFlow = TextFlowFactory.createDefaultParenMatchingTextFlow(text, startPos);
+    private void showTextFlow(Pos pos, ColorRuns runs, String tooltipText, Insets insets, TextAlignment textAlignment) {
+        TextFlowFactory.fillDefaultTextFlow(textFlow, runs);
         textFlow.setTextAlignment(textAlignment);
-        textFlow.setMinWidth(Region.USE_PREF_SIZE);
-
-        final Tooltip tooltip = new Tooltip(tooltipText);
-        Tooltip.install(textFlow, tooltip);
-
-        if (scrollable) {
-            final ScrollPane wrapper = new ScrollPane(textFlow);
-            wrapper.setFitToWidth(false);
-            wrapper.setFitToHeight(false);
-            wrapper.setVbarPolicy(ScrollPane.ScrollBarPolicy.NEVER);
-            wrapper.setHbarPolicy(ScrollPane.ScrollBarPolicy.NEVER);
-
-            StackPane.setMargin(wrapper, insets);
-            StackPane.setAlignment(wrapper, pos);
-
-            // allow scrolling only when focused, and add border to indicate if a cell is focused or not
-            wrapper.setFocusTraversable(false);
-            wrapper.pannableProperty().bind(wrapper.focusedProperty());
-
-            final var borderObservable = Bindings.when(wrapper.focusedProperty())
-                    .then(new Border(new BorderStroke(Color.BLACK, BorderStrokeStyle.DOTTED, null, BorderStroke.DEFAULT_WIDTHS)))
-                    .otherwise(Border.EMPTY);
+        textTooltip.setText(tooltipText);
 
-            final var allowScrollingObservable = Bindings.when(wrapper.focusedProperty())
-                    .then(1.0) // 1.0 = 100%
-                    .otherwise(wrapper.vminProperty());
+        StackPane.setMargin(textFlow, insets);
+        StackPane.setAlignment(textFlow, pos);
+        show(textFlow, true);
+    }
 
-            wrapper.hmaxProperty().bind(allowScrollingObservable);
-            wrapper.vmaxProperty().bind(allowScrollingObservable);
-            wrapper.borderProperty().bind(borderObservable);
+    private void showScrollableTextFlow(PayloadText payloadText) {
+        TextFlowFactory.fillDefaultTextFlow(scrollableTextFlow, payloadText.runs());
+        scrollableTextTooltip.setText(payloadText.getText());
 
-            // add pane at position 0 so it is behind everything else (specifically the arrow line)
-            parentPane.getChildren().add(0, wrapper);
-        } else {
-            StackPane.setMargin(textFlow, insets);
-            StackPane.setAlignment(textFlow, pos);
-            parentPane.getChildren().add(0, textFlow);
-        }
+        // a reused cell must not keep the scroll position of the msg it showed before
+        scrollableTextWrapper.setHvalue(scrollableTextWrapper.getHmin());
+        scrollableTextWrapper.setVvalue(scrollableTextWrapper.getVmin());
+        show(scrollableTextWrapper, true);
     }
 
-    private CellType determineCellType(Msg msg) {
-        final List<TableColumn<Msg, ?>> columns = getTableView().getColumns();
-        final int bridgeCount = columns.size();
+    private void initScrollableTextWrapper() {
+        final ScrollPane wrapper = scrollableTextWrapper;
+        wrapper.setFitToWidth(false);
+        wrapper.setFitToHeight(false);
+        wrapper.setVbarPolicy(ScrollPane.ScrollBarPolicy.NEVER);
+        wrapper.setHbarPolicy(ScrollPane.ScrollBarPolicy.NEVER);
 
-        int selfIndex = -1;
-        int senderIndex = -1;
-        int receiverIndex = -1;
+        StackPane.setMargin(wrapper, Insets.EMPTY);
+        StackPane.setAlignment(wrapper, Pos.TOP_CENTER);
 
-        for (int i=0; i < bridgeCount; i++) {
-            final Bridge bridge = (Bridge) columns.get(i).getUserData();
-            if (msg.srcBridge().equals(bridge)) {
-                senderIndex = i;
-            }
-            if (getBridge().equals(bridge)) {
-                selfIndex = i;
-            }
-            if (msg.dstBridge().equals(bridge)) {
-                receiverIndex = i;
-            }
-            if (senderIndex != -1 && selfIndex != -1 && receiverIndex != -1) {
-                break;
-            }
-        }
+        // allow scrolling only when focused, and add border to indicate if a cell is focused or not
+        wrapper.setFocusTraversable(false);
+        wrapper.pannableProperty().bind(wrapper.focusedProperty());
 
-        areSourceAndDestAdjacentCallback = Math.abs(senderIndex - receiverIndex) == 1;
+        final var borderObservable = Bindings.when(wrapper.focusedProperty())
+                .then(new Border(new BorderStroke(Color.BLACK, BorderStrokeStyle.DOTTED, null, BorderStroke.DEFAULT_WIDTHS)))
+                .otherwise(Border.EMPTY);
 
-        if (senderIndex < receiverIndex) { // if left arrow
-            if (selfIndex == senderIndex) {
-                return CellType.L_ORIGIN;
-            } else if (selfIndex == receiverIndex) {
-                return CellType.R_HEAD;
-            } else if (senderIndex < selfIndex && selfIndex < receiverIndex) {
-                return CellType.LINE;
-            } else {
-                return CellType.EMPTY;
-            }
-        } else { // if right arrow
-            if (selfIndex == senderIndex) {
-                return CellType.R_ORIGIN;
-            } else if (selfIndex == receiverIndex) {
-                return CellType.L_HEAD;
-            } else if (receiverIndex < selfIndex && selfIndex < senderIndex) {
-                return CellType.LINE;
-            } else {
-                return CellType.EMPTY;
-            }
-        }
+        final var allowScrollingObservable = Bindings.when(wrapper.focusedProperty())
+                .then(1.0) // 1.0 = 100%
+                .otherwise(wrapper.vminProperty());
+
+        wrapper.hmaxProperty().bind(allowScrollingObservable);
+        wrapper.vmaxProperty().bind(allowScrollingObservable);
+        wrapper.borderProperty().bind(borderObservable);
     }
 
     /**
-     * Creates an arrow body (rectangle) centered in a box of size (height, width).
-     *
-     * @return
+     * Hidden parts are also unmanaged, so they take no space in the pane's layout.
      */
-    private Rectangle createArrowLine(double fillX) {
-        final double h = LINE_HEIGHT;
-        final double w = Msc.COLUMN_WIDTH * fillX;
-        final double startY = (getHeight() - h) * 0.5;
-        return new Rectangle(0, startY, w, h);
+    private static void show(Node node, boolean isShown) {
+        node.setVisible(isShown);
+        node.setManaged(isShown);
     }
 
-    /*
-     *
-     *           {          w (total width)         }
-     *
-     *                                     | \             }
-     *            {          lw          } |   \            \
-     *           --------------------------      \           |
-     *       {   |                                  \        |
-     *      lh   |                                   |       h (total height = arrow height)
-     *       {   |                                  /        |
-     *           --------------------------      /           |
-     *                                   { |   /            /
-     *                     aj = (h-lh)/2 { | /             }
-     *
-     *                                     {   aw    }
+    /**
+     * Finds the columns of the msg's sender, receiver and this cell, which the other graphic methods then reuse.
      */
-    private static final double[] RIGHT_ARROW_HEAD_POINTS = ((Supplier<double[]>) () -> {
-        final double h = Msc.ROW_HEIGHT * 0.45; // total height
-        final double w = Msc.COLUMN_WIDTH * 0.5; // total width
-        final double lh = LINE_HEIGHT; // line height (not including arrow part)
-        final double lw = w * 0.70; // line width (not including arrow part)
-        final double aj = (h - lh) / 2.0; // "arrow jut" or how much sticks from either side compared to the line
-
-        return new double[]{
-                0.0, aj,
-                lw, aj,
-                lw, 0.0,
-                w, h / 2.0,
-                lw, h,
-                lw, h - aj,
-                0.0, h - aj
-        };
-    }).get();
-
-    private static final double[] LEFT_ARROW_HEAD_POINTS = ((Supplier<double[]>) () -> {
-        final double h = Msc.ROW_HEIGHT * 0.45; // total height
-        final double w = Msc.COLUMN_WIDTH * 0.5; // total width
-        final double lh = LINE_HEIGHT; // line height (not including arrow part)
-        final double lw = w * 0.70; // line width (not including arrow part)
-        final double aw = w - lw; // arrow/head width
-        final double aj = (h - lh) / 2.0; // "arrow jut" or how much sticks from either side compared to the line
-
-        return new double[] {
-                w, aj,
-                aw, aj,
-                aw, 0.0,
-                0.0, h / 2.0,
-                aw, h,
-                aw, h - aj,
-                w,  h - aj
-        };
-    }).get();
+    private CellType determineCellType(Msg msg) {
+        final MscColumnIndex columnIndex = MscColumnIndex.of(getTableView());
+        senderIndex = columnIndex.positionOf(msg.srcBridge());
+        receiverIndex = columnIndex.positionOf(msg.dstBridge());
+        selfIndex = columnIndex.positionOf(getBridge());
+
+        areSourceAndDestAdjacentCallback = MscGeometry.areAdjacent(senderIndex, receiverIndex);
+
+        return MscGeometry.cellTypeOf(senderIndex, receiverIndex, selfIndex);
+    }
 
     /**
      * Creates a right-facing arrow head (triangle) on the lhs of a box of size (height, width).
@@ -425,7 +300,7 @@ public class MscTableCell extends TableCell<Msg, Msg> {
      * @return
      */
     private static Polygon createRightArrowHead() {
-        return new Polygon(RIGHT_ARROW_HEAD_POINTS);
+        return new Polygon(MscGeometry.rightArrowHeadPoints());
     }
 
     /**
@@ -434,6 +309,6 @@ public class MscTableCell extends TableCell<Msg, Msg> {
      * @return
      */
     private static Polygon createLeftArrowHead() {
-        return new Polygon(LEFT_ARROW_HEAD_POINTS);
+        return new Polygon(MscGeometry.leftArrowHeadPoints());
     }
 }
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.components.msc;
+
+import javafx.scene.paint.Color;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * An {@link MscDrawing} which writes each shape straight to an svg document as it is drawn, so nothing is held in
+ * memory between shapes.
+ *
+ * Text is cut to fit with the same java2d fonts as a {@link Java2dMscDrawing}, and then left to the svg viewer's
+ * generic font of the same family, so cut text can differ slightly from the images drawn by java2d.
+ */
+public final class SvgMscDrawing implements MscDrawing {
+
+    private final Writer writer;
+
+    // only used to measure text, which java2d does without a display
+    private final Graphics2D measure = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).createGraphics();
+
+    /**
+     * @param writer the writer of the svg document, positioned inside its root element
+     */
+    public SvgMscDrawing(@NotNull Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void fillRect(double x, double y, double width, double height, @NotNull Color color) {
+        write("<rect x=\"" + number(x) + "\" y=\"" + number(y) + "\" width=\"" + number(width)
+                + "\" height=\"" + number(height) + "\"" + fill(color) + "/>\n");
+    }
+
+    @Override
+    public void fillPolygon(@NotNull double[] points, double x, double y, @NotNull Color color) {
+        final StringBuilder builder = new StringBuilder("<polygon points=\"");
+        for (int i = 0; i < points.length; i += 2) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            builder.append(number(x + points[i])).append(',').append(number(y + points[i + 1]));
+        }
+        write(builder.append('"').append(fill(color)).append("/>\n").toString());
+    }
+
+    @Override
+    public void line(double x1, double y1, double x2, double y2, @NotNull Color color) {
+        write("<line x1=\"" + number(x1) + "\" y1=\"" + number(y1) + "\" x2=\"" + number(x2) + "\" y2=\""
+                + number(y2) + "\" stroke=\"" + rgb(color) + "\"" + opacity("stroke-opacity", color) + "/>\n");
+    }
+
+    @Override
+    public void text(@NotNull String text, double centerX, double centerY, double maxWidth, @NotNull TextStyle style,
+                     @NotNull Color color) {
+        final Font font = Java2dMscDrawing.fontOf(style);
+        final String fitted = Java2dMscDrawing.fit(measure.getFontMetrics(font), text, maxWidth);
+        final String family = style == TextStyle.HEADER ? "sans-serif" : "monospace";
+        final String weight = font.isBold() ? " font-weight=\"bold\"" : "";
+
+        write("<text x=\"" + number(centerX) + "\" y=\"" + number(centerY) + "\" font-family=\"" + family
+                + "\" font-size=\"" + font.getSize() + "\"" + weight
+                + " text-anchor=\"middle\" dominant-baseline=\"central\"" + fill(color) + ">"
+                + escape(fitted) + "</text>\n");
+    }
+
+    @Override
+    public double lineHeight(@NotNull TextStyle style) {
+        return measure.getFontMetrics(Java2dMscDrawing.fontOf(style)).getHeight();
+    }
+
+    /**
+     * Starts a group, so the shapes drawn until {@link #endGroup()} can share one comment (for example a row's msg).
+     */
+    public void beginGroup(@NotNull String comment) {
+        write("<g><!-- " + escape(comment).replace("--", "- -") + " -->\n");
+    }
+
+    public void endGroup() {
+        write("</g>\n");
+    }
+
+    private void write(String s) {
+        try {
+            writer.write(s);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String fill(Color color) {
+        return " fill=\"" + rgb(color) + "\"" + opacity("fill-opacity", color);
+    }
+
+    private static String opacity(String attribute, Color color) {
+        return color.getOpacity() < 1.0 ? " " + attribute + "=\"" + number(color.getOpacity()) + "\"" : "";
+    }
+
+    private static String rgb(Color color) {
+        return String.format(Locale.ROOT, "#%02x%02x%02x", Math.round(color.getRed() * 255),
+                Math.round(color.getGreen() * 255), Math.round(color.getBlue() * 255));
+    }
+
+    // svg numbers never use a locale's decimal comma
+    private static String number(double value) {
+        return value == Math.rint(value)
+                ? Long.toString((long) value)
+                : String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    private static String escape(String text) {
+        final StringBuilder builder = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            switch (c) {
+                case '<': builder.append("&lt;"); break;
+                case '>': builder.append("&gt;"); break;
+                case '&': builder.append("&amp;"); break;
+                case '"': builder.append("&quot;"); break;
+                default:
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                        builder.append(c);
+                    }
+            }
+        }
+        return builder.toString();
+    }
+
+}
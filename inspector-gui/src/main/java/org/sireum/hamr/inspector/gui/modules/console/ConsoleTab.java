@@ -45,12 +45,13 @@ import org.jetbrains.annotations.NotNull;
 import org.sireum.hamr.inspector.common.ArtUtils;
 import org.sireum.hamr.inspector.common.Filter;
 import org.sireum.hamr.inspector.common.Msg;
+import org.sireum.hamr.inspector.engine.FilterPipelineService;
 import org.sireum.hamr.inspector.gui.ViewController;
+import org.sireum.hamr.inspector.gui.collections.RunLengthObservableList;
 import org.sireum.hamr.inspector.gui.collections.UnbackedLinearAccessObservableList;
 import org.sireum.hamr.inspector.gui.components.*;
 import org.sireum.hamr.inspector.gui.gfx.Coloring;
 import org.sireum.hamr.inspector.gui.modules.DisposableTabController;
-import org.sireum.hamr.inspector.services.MsgService;
 import org.sireum.hamr.inspector.services.Session;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -91,11 +92,14 @@ public final class ConsoleTab implements DisposableTabController {
     private Coloring<Bridge> bridgeColoring;
 
     @Autowired
-    private MsgService msgService;
+    private FilterPipelineService filterPipelineService;
 
     @FXML
     public TableView<Msg> tableView;
 
+    @FXML
+    public TableColumn<Msg, Msg> runTableColumn;
+
     @FXML
     public TableColumn<Msg, Long> uuidTableColumn;
 
@@ -141,6 +145,9 @@ public final class ConsoleTab implements DisposableTabController {
     @FXML
     public ComboBox<Filter> filterComboBox;
 
+    @FXML
+    public CheckBox collapseCheckBox;
+
     @FXML
     public Button visPropertyPaneTglBtn;
 
@@ -163,10 +170,14 @@ public final class ConsoleTab implements DisposableTabController {
             }
             return null;
         });
+        if (tableView.getItems() instanceof Disposable) {
+            ((Disposable) tableView.getItems()).dispose();
+        }
     }
 
     private void initTableContent() {
         // factories for cell values (information within each cell)
+        runTableColumn.setCellValueFactory(data -> new SimpleObjectProperty<>(data.getValue()));
         uuidTableColumn.setCellValueFactory(data -> new SimpleObjectProperty<>(data.getValue().sequence()));
         timestampTableColumn.setCellValueFactory(data -> new SimpleObjectProperty<>(data.getValue().timestamp()));
         srcPortColumn.setCellValueFactory(data -> new SimpleObjectProperty<>(data.getValue().src()));
@@ -180,6 +191,7 @@ public final class ConsoleTab implements DisposableTabController {
         dataContentTableColumn.setCellValueFactory(data -> new SimpleObjectProperty<>(data.getValue().data()));
 
         // factories for cell content (how cells are presented in the table)
+        runTableColumn.setCellFactory(col -> new RunTableCell());
         timestampTableColumn.setCellFactory(col -> new TimestampTableCell());
         srcPortColumn.setCellFactory(col -> makeSrcBg(new PortTableCell(artUtils, bridgeColoring)));
         srcBridgeColumn.setCellFactory(col -> makeSrcBg(new BridgeTableCell(artUtils, bridgeColoring)));
@@ -196,13 +208,25 @@ public final class ConsoleTab implements DisposableTabController {
             final Filter filter = filterComboBox.getValue();
 
             if (session != null && filter != null) {
-                return new UnbackedLinearAccessObservableList(artUtils, msgService, session, filter);
+                final var msgs = new UnbackedLinearAccessObservableList(artUtils, filterPipelineService, session, filter);
+                return collapseCheckBox.isSelected() ? new RunLengthObservableList(msgs) : msgs;
             } else {
                 return FXCollections.emptyObservableList();
             }
-        }, sessionComboBox.valueProperty(), filterComboBox.valueProperty());
+        }, sessionComboBox.valueProperty(), filterComboBox.valueProperty(), collapseCheckBox.selectedProperty());
 
         tableView.itemsProperty().bind(itemsBinding);
+
+        // replaced lists (including on every toggle of collapseCheckBox) must stop their live subscriptions
+        tableView.itemsProperty().addListener((obs, oldItems, newItems) -> {
+            if (oldItems instanceof Disposable) {
+                ((Disposable) oldItems).dispose();
+            }
+        });
+
+        // runs only exist while collapsed
+        runTableColumn.setVisible(collapseCheckBox.isSelected());
+        collapseCheckBox.selectedProperty().addListener((obs, oldValue, newValue) -> runTableColumn.setVisible(newValue));
     }
 
     private void initSettingsContent() {
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.modules.msc;
+
+import javafx.collections.FXCollections;
+import javafx.event.ActionEvent;
+import javafx.geometry.Insets;
+import javafx.scene.control.*;
+import javafx.scene.layout.GridPane;
+import lombok.Value;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.sireum.hamr.inspector.common.Msg;
+import org.sireum.hamr.inspector.gui.components.msc.MscExporter;
+import reactor.core.publisher.Flux;
+
+/**
+ * Asks which part of an msc to export and in which format.
+ */
+final class MscExportDialog extends Dialog<MscExportDialog.Request> {
+
+    enum Format {
+        SVG("SVG file"), PNG_TILES("PNG tiles");
+
+        private final String text;
+
+        Format(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    enum RangeKind {
+        SEQUENCE("Sequence numbers"), TIME("Timestamps");
+
+        private final String text;
+
+        RangeKind(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    /**
+     * The export a user asked for, from and to are inclusive and default to everything.
+     */
+    @Value
+    static class Request {
+        Format format;
+        RangeKind rangeKind;
+        long from;
+        long to;
+
+        /**
+         * @return the part of msgs the request covers
+         */
+        @NotNull
+        Flux<Msg> select(@NotNull Flux<Msg> msgs) {
+            if (from == Long.MIN_VALUE && to == Long.MAX_VALUE) {
+                return msgs;
+            }
+            return rangeKind == RangeKind.SEQUENCE
+                    ? MscExporter.sequenceRange(msgs, from, to)
+                    : MscExporter.timeRange(msgs, from, to);
+        }
+    }
+
+    private final ChoiceBox<Format> formatChoiceBox = new ChoiceBox<>(FXCollections.observableArrayList(Format.values()));
+    private final ChoiceBox<RangeKind> rangeKindChoiceBox = new ChoiceBox<>(FXCollections.observableArrayList(RangeKind.values()));
+    private final TextField fromTextField = new TextField();
+    private final TextField toTextField = new TextField();
+
+    MscExportDialog() {
+        setTitle("Export Msc");
+        setHeaderText("Export the selected session and filter");
+
+        formatChoiceBox.setValue(Format.SVG);
+        rangeKindChoiceBox.setValue(RangeKind.SEQUENCE);
+        fromTextField.setPromptText("first");
+        toTextField.setPromptText("last");
+
+        final GridPane grid = new GridPane();
+        grid.setHgap(8.0);
+        grid.setVgap(8.0);
+        grid.setPadding(new Insets(8.0));
+        grid.addRow(0, new Label("Format"), formatChoiceBox);
+        grid.addRow(1, new Label("Range of"), rangeKindChoiceBox);
+        grid.addRow(2, new Label("From"), fromTextField);
+        grid.addRow(3, new Label("To"), toTextField);
+        getDialogPane().setContent(grid);
+        getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+
+        // keep the dialog open until both bounds are numbers (or blank)
+        getDialogPane().lookupButton(ButtonType.OK).addEventFilter(ActionEvent.ACTION, event -> {
+            if (parse(fromTextField, Long.MIN_VALUE) == null || parse(toTextField, Long.MAX_VALUE) == null) {
+                event.consume();
+            }
+        });
+
+        setResultConverter(buttonType -> {
+            if (buttonType != ButtonType.OK) {
+                return null;
+            }
+            //noinspection ConstantConditions (checked by the OK button's event filter)
+            return new Request(formatChoiceBox.getValue(), rangeKindChoiceBox.getValue(),
+                    parse(fromTextField, Long.MIN_VALUE), parse(toTextField, Long.MAX_VALUE));
+        });
+    }
+
+    /**
+     * @return the field's number, blank if it is blank, or null (and marks the field) if it is not a number
+     */
+    @Nullable
+    private static Long parse(TextField textField, long blank) {
+        final String text = textField.getText().trim();
+        try {
+            final long value = text.isEmpty() ? blank : Long.parseLong(text);
+            textField.setStyle(null);
+            return value;
+        } catch (NumberFormatException e) {
+            textField.setStyle("-fx-border-color: red;");
+            return null;
+        }
+    }
+
+}
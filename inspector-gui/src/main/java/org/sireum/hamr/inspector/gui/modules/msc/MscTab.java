@@ -26,6 +26,7 @@
 package org.sireum.hamr.inspector.gui.modules.msc;
 
 import art.Bridge;
+import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.beans.binding.ObjectBinding;
 import javafx.beans.property.SimpleLongProperty;
@@ -34,27 +35,45 @@ import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.geometry.Insets;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+import javafx.stage.DirectoryChooser;
+import javafx.stage.FileChooser;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.controlsfx.control.Notifications;
 import org.sireum.hamr.inspector.common.ArtUtils;
 import org.sireum.hamr.inspector.common.Filter;
 import org.sireum.hamr.inspector.common.Msg;
+import org.sireum.hamr.inspector.engine.FilterPipelineService;
+import org.sireum.hamr.inspector.engine.SnapshotReplayService;
 import org.sireum.hamr.inspector.gui.ViewController;
+import org.sireum.hamr.inspector.gui.collections.RunLengthObservableList;
 import org.sireum.hamr.inspector.gui.collections.UnbackedLinearAccessObservableList;
 import org.sireum.hamr.inspector.gui.components.IndexTableCell;
+import org.sireum.hamr.inspector.gui.components.RunTableCell;
+import org.sireum.hamr.inspector.gui.components.msc.MscCanvas;
+import org.sireum.hamr.inspector.gui.components.msc.MscExporter;
+import org.sireum.hamr.inspector.gui.components.msc.MscMinimap;
 import org.sireum.hamr.inspector.gui.components.msc.MscTableCell;
 import org.sireum.hamr.inspector.gui.gfx.Coloring;
 import org.sireum.hamr.inspector.gui.modules.DisposableTabController;
-import org.sireum.hamr.inspector.services.MsgService;
 import org.sireum.hamr.inspector.services.Session;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.io.File;
 import java.util.concurrent.atomic.AtomicReference;
 
 @Slf4j
@@ -83,7 +102,10 @@ public final class MscTab implements DisposableTabController {
     private ObservableList<Session> sessions;
 
     @Autowired
-    private MsgService msgService;
+    private FilterPipelineService filterPipelineService;
+
+    @Autowired
+    private SnapshotReplayService snapshotReplayService;
 
     @Autowired
     @Qualifier("artUtils")
@@ -93,9 +115,37 @@ public final class MscTab implements DisposableTabController {
     @Qualifier("bridgeColoring")
     private Coloring<Bridge> bridgeColoring;
 
+    @FXML
+    private StackPane mscPane;
+
     @FXML
     private TableView<Msg> tableView;
 
+    @FXML
+    public CheckBox canvasCheckBox;
+
+    /**
+     * Draws the same msc as tableView without any cells, which stays fast with many bridges (see {@link MscCanvas}).
+     */
+    private MscCanvas mscCanvas = null;
+
+    @FXML
+    private VBox minimapBox;
+
+    @FXML
+    public CheckBox minimapCheckBox;
+
+    /**
+     * A density heatmap of every msg in the msc, clicking it scrolls the msc (see {@link MscMinimap}).
+     */
+    private MscMinimap minimap = null;
+
+    @FXML
+    public CheckBox collapseCheckBox;
+
+    @FXML
+    public Button exportButton;
+
     @FXML
     public ComboBox<Session> sessionComboBox;
 
@@ -104,13 +154,21 @@ public final class MscTab implements DisposableTabController {
 
     private final AtomicReference<Disposable> streamDisposable = new AtomicReference<>(null);
 
+    /**
+     * Exports which are still being written, cancelled if the tab is disposed first.
+     */
+    private final Disposable.Composite exports = Disposables.composite();
+
     @SuppressWarnings("FieldCanBeLocal") // this property MUST be a field to avoid being GC'd as a weak reference
     private ObjectBinding<ObservableList<Msg>> itemsBinding = null;
 
     @FXML
     protected void initialize() {
         initTableStructure();
+        initCanvas();
+        initMinimap();
         initTableContent();
+        initExport();
     }
 
     @Override
@@ -122,10 +180,18 @@ public final class MscTab implements DisposableTabController {
             }
             return null;
         });
+        exports.dispose();
+        if (minimap != null) {
+            minimap.dispose();
+        }
+        if (tableView.getItems() instanceof Disposable) {
+            ((Disposable) tableView.getItems()).dispose();
+        }
     }
 
     private void initTableStructure() {
 
+        insertRunTableColumn();
         insertIndexTableColumn();
         for (Bridge bridge : artUtils.getBridges()) {
             final var column = new TableColumn<Msg, Msg>(artUtils.prettyPrint(bridge));
@@ -155,6 +221,30 @@ public final class MscTab implements DisposableTabController {
         tableView.setSelectionModel(null);
     }
 
+    private void insertRunTableColumn() {
+        final var column = new TableColumn<Msg, Msg>("Run");
+
+        column.setCellValueFactory(data -> new SimpleObjectProperty<>(data.getValue()));
+        column.setCellFactory(col -> new RunTableCell());
+        column.setPrefWidth(72.0);
+
+        column.setResizable(true);
+        column.setReorderable(true);
+        column.setEditable(false);
+
+        column.setStyle("-bridge-color: transparent;");
+
+        // if this is changed, must also remove the line: tableView.setSelectionModel(null) below.
+        // see: https://stackoverflow.com/questions/27354085/disable-row-selection-in-tableview
+        column.setSortable(false);
+
+        // runs only exist while collapsed
+        column.setVisible(collapseCheckBox.isSelected());
+        collapseCheckBox.selectedProperty().addListener((obs, oldValue, newValue) -> column.setVisible(newValue));
+
+        tableView.getColumns().add(column);
+    }
+
     private void insertIndexTableColumn() {
         final var column = new TableColumn<Msg, Long>("Index");
 
@@ -175,18 +265,129 @@ public final class MscTab implements DisposableTabController {
         tableView.getColumns().add(column);
     }
 
+    private void initCanvas() {
+        mscCanvas = new MscCanvas(artUtils, bridgeColoring);
+        mscPane.getChildren().add(mscCanvas);
+
+        // only one of the views is shown (and drawn) at a time
+        mscCanvas.visibleProperty().bind(canvasCheckBox.selectedProperty());
+        tableView.visibleProperty().bind(canvasCheckBox.selectedProperty().not());
+    }
+
+    private void initMinimap() {
+        minimap = new MscMinimap(artUtils, bridgeColoring);
+        VBox.setVgrow(minimap, Priority.ALWAYS);
+        minimapBox.getChildren().add(minimap);
+
+        minimapBox.visibleProperty().bind(minimapCheckBox.selectedProperty());
+        minimapBox.managedProperty().bind(minimapCheckBox.selectedProperty());
+
+        // minimap indexes count the same filtered msgs as the msc's rows, unless runs are collapsed
+        minimap.setOnSeek(index -> {
+            final ObservableList<Msg> items = tableView.getItems();
+            final int row = items instanceof RunLengthObservableList
+                    ? ((RunLengthObservableList) items).rowOf(index)
+                    : (int) Math.min(index, Integer.MAX_VALUE);
+            if (canvasCheckBox.isSelected()) {
+                mscCanvas.scrollTo(row);
+            } else {
+                tableView.scrollTo(row);
+            }
+        });
+    }
+
     private void initTableContent() {
         itemsBinding = Bindings.createObjectBinding(() -> {
             final Session session = sessionComboBox.getValue();
             final Filter filter = filterComboBox.getValue();
 
             if (session != null && filter != null) {
-                return new UnbackedLinearAccessObservableList(artUtils, msgService, session, filter);
+                final var msgs = new UnbackedLinearAccessObservableList(artUtils, filterPipelineService, session, filter);
+                return collapseCheckBox.isSelected() ? new RunLengthObservableList(msgs) : msgs;
             } else {
                 return FXCollections.emptyObservableList();
             }
-        }, sessionComboBox.valueProperty(), filterComboBox.valueProperty());
+        }, sessionComboBox.valueProperty(), filterComboBox.valueProperty(), collapseCheckBox.selectedProperty());
         tableView.itemsProperty().bind(itemsBinding);
+        mscCanvas.itemsProperty().bind(itemsBinding);
+
+        // replaced lists (including on every toggle of collapseCheckBox) must stop their live subscriptions
+        tableView.itemsProperty().addListener((obs, oldItems, newItems) -> {
+            if (oldItems instanceof Disposable) {
+                ((Disposable) oldItems).dispose();
+            }
+        });
+
+        // the minimap always summarizes every msg, so collapsing runs does not restart it
+        sessionComboBox.valueProperty().addListener(observable -> updateMinimapSource());
+        filterComboBox.valueProperty().addListener(observable -> updateMinimapSource());
+        updateMinimapSource(); // for a session and filter selected before the tab opened
+    }
+
+    private void initExport() {
+        exportButton.disableProperty().bind(sessionComboBox.valueProperty().isNull()
+                .or(filterComboBox.valueProperty().isNull()));
+        exportButton.setOnAction(event -> export());
+    }
+
+    /**
+     * Asks what to export and where, then streams the export in the background (see {@link MscExporter}).
+     *
+     * Only the msgs the session has when the export starts are exported, so the export completes even while the
+     * session is still live.
+     */
+    private void export() {
+        final Session session = sessionComboBox.getValue();
+        final Filter filter = filterComboBox.getValue();
+        if (session == null || filter == null) {
+            return;
+        }
+
+        final var request = new MscExportDialog().showAndWait().orElse(null);
+        if (request == null) {
+            return;
+        }
+
+        final Flux<Msg> msgs = request.select(FilterPipelineService.applyFilter(snapshotReplayService.replay(session), filter));
+        final MscExporter exporter = new MscExporter(artUtils, bridgeColoring);
+        final File target;
+        final Mono<Long> export;
+        if (request.getFormat() == MscExportDialog.Format.SVG) {
+            final FileChooser chooser = new FileChooser();
+            chooser.setInitialFileName("msc.svg");
+            chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("SVG", "*.svg"));
+            target = chooser.showSaveDialog(tableView.getScene().getWindow());
+            export = target == null ? null : exporter.exportSvg(msgs, target.toPath());
+        } else {
+            target = new DirectoryChooser().showDialog(tableView.getScene().getWindow());
+            export = target == null ? null : exporter.exportPngTiles(msgs, target.toPath());
+        }
+        if (export == null) {
+            return;
+        }
+
+        final Disposable.Swap exportDisposable = Disposables.swap();
+        exports.add(exportDisposable);
+        exportDisposable.update(export.doFinally(signal -> exports.remove(exportDisposable)).subscribe(
+                count -> Platform.runLater(() -> Notifications.create()
+                        .title("Msc Exported")
+                        .text(count + " msgs exported to " + target)
+                        .owner(tableView)
+                        .showInformation()),
+                error -> {
+                    log.error("unable to export msc to {}", target, error);
+                    Platform.runLater(() -> Notifications.create()
+                            .title("Msc Export Failed")
+                            .text(String.valueOf(error.getMessage()))
+                            .owner(tableView)
+                            .showError());
+                }));
+    }
+
+    private void updateMinimapSource() {
+        final Session session = sessionComboBox.getValue();
+        final Filter filter = filterComboBox.getValue();
+        minimap.setSource(session != null && filter != null ? filterPipelineService.filtered(session, filter) : null);
     }
 
 }
@@ -48,7 +48,7 @@ import org.fxmisc.easybind.EasyBind;
 import org.fxmisc.easybind.monadic.MonadicBinding;
 import org.sireum.hamr.inspector.common.Msg;
 import org.sireum.hamr.inspector.common.Rule;
-import org.sireum.hamr.inspector.engine.RuleProcessorService;
+import org.sireum.hamr.inspector.gui.RuleProcessorObservables;
 import org.sireum.hamr.inspector.gui.ViewController;
 import org.sireum.hamr.inspector.gui.collections.FxCollectors;
 import org.sireum.hamr.inspector.gui.components.msc.Msc;
@@ -77,7 +77,7 @@ public class RulesTab {
     private ObservableList<Session> sessions;
 
     @Autowired
-    private RuleProcessorService ruleProcessorService;
+    private RuleProcessorObservables ruleProcessorObservables;
 
     @FXML
     public ComboBox<Session> sessionComboBox;
@@ -116,7 +116,7 @@ public class RulesTab {
         if (sessionRule.getSession() == null) {
             return new SimpleObjectProperty<>(RuleStatus.RUNNING);
         } else {
-            return ruleProcessorService.getRuleStatusObservable(Tuples.of(sessionRule.getSession(), sessionRule.getRule()));
+            return ruleProcessorObservables.getRuleStatusObservable(Tuples.of(sessionRule.getSession(), sessionRule.getRule()));
         }
     };
 
@@ -142,7 +142,7 @@ public class RulesTab {
         if (sessionRule.getSession() == null) {
             return new SimpleLongProperty();
         } else {
-            return ruleProcessorService.getRuleStopTimeObservable(Tuples.of(sessionRule.getSession(), sessionRule.getRule()));
+            return ruleProcessorObservables.getRuleStopTimeObservable(Tuples.of(sessionRule.getSession(), sessionRule.getRule()));
         }
     };
 
@@ -169,8 +169,8 @@ public class RulesTab {
         final var ruleStatus = EasyBind.map(rulesView.getSelectionModel().selectedItemProperty(), sessionRule -> {
             if (sessionRule != null && sessionRule.getSession() != null) {
                 final var sessionRuleTuple = Tuples.of(sessionRule.getSession(), sessionRule.getRule());
-                final var lastMsg = ruleProcessorService.getRuleLastMsgObservable(sessionRuleTuple);
-                final var cause = ruleProcessorService.getErrorCause(sessionRuleTuple);
+                final var lastMsg = ruleProcessorObservables.getRuleLastMsgObservable(sessionRuleTuple);
+                final var cause = ruleProcessorObservables.getErrorCause(sessionRuleTuple);
 
                 return Tuples.of(lastMsg, cause);
             }
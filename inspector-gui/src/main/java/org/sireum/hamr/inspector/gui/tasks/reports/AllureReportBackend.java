@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.tasks.reports;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.qameta.allure.AllureLifecycle;
+import io.qameta.allure.ConfigurationBuilder;
+import io.qameta.allure.Extension;
+import io.qameta.allure.ReportGenerator;
+import io.qameta.allure.allure2.Allure2Plugin;
+import io.qameta.allure.category.CategoriesPlugin;
+import io.qameta.allure.category.CategoriesTrendPlugin;
+import io.qameta.allure.context.FreemarkerContext;
+import io.qameta.allure.context.JacksonContext;
+import io.qameta.allure.context.MarkdownContext;
+import io.qameta.allure.context.RandomUidContext;
+import io.qameta.allure.core.*;
+import io.qameta.allure.duration.DurationPlugin;
+import io.qameta.allure.duration.DurationTrendPlugin;
+import io.qameta.allure.executor.ExecutorPlugin;
+import io.qameta.allure.history.HistoryPlugin;
+import io.qameta.allure.history.HistoryTrendPlugin;
+import io.qameta.allure.idea.IdeaLinksPlugin;
+import io.qameta.allure.junitplatform.AllureJunitPlatform;
+import io.qameta.allure.junitxml.JunitXmlPlugin;
+import io.qameta.allure.launch.LaunchPlugin;
+import io.qameta.allure.retry.RetryPlugin;
+import io.qameta.allure.retry.RetryTrendPlugin;
+import io.qameta.allure.severity.SeverityPlugin;
+import io.qameta.allure.status.StatusChartPlugin;
+import io.qameta.allure.suites.SuitesPlugin;
+import io.qameta.allure.summary.SummaryPlugin;
+import io.qameta.allure.tags.TagsPlugin;
+import io.qameta.allure.timeline.TimelinePlugin;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.engine.JupiterTestEngine;
+import org.junit.platform.launcher.LauncherDiscoveryRequest;
+import org.junit.platform.launcher.core.LauncherConfig;
+import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
+import org.junit.platform.launcher.core.LauncherFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.platform.engine.discovery.DiscoverySelectors.selectMethod;
+
+/**
+ * Runs the report's jobs as dynamic tests on the junit platform, records them through allure and renders the allure
+ * html report.
+ */
+// https://github.com/allure-framework/allure-docs/blob/master/docs/plugins.adoc
+@Slf4j
+final class AllureReportBackend implements ReportBackend {
+
+    /**
+     * Effectively a concurrent weak-key weak-value hash map. This way backends can add their runs to the cache to be
+     * seen by their spawned tests, and the runs will self-delete once garbage collected.
+     */
+    private static final Cache<String, ReportRun> activeReportRunCache = Caffeine.newBuilder().weakKeys().weakValues().build();
+    private static final AtomicInteger nextReportRunCounter = new AtomicInteger();
+
+    private static final String RESULTS_PREFIX = "allure-results";
+    private static final String GENERATED_PREFIX = "allure-generated";
+
+    /**
+     * The directory of a generated report (and of a results directory) holding history.json, history-trend.json and
+     * the other *-trend.json files allure's history and trend plugins read and write.
+     */
+    private static final String HISTORY_DIRECTORY = "history";
+
+    /**
+     * How many runs the history generated from the {@link VerdictHistoryStore} goes back, allure's own default.
+     */
+    private static final int HISTORY_DEPTH = 20;
+
+    private static final String RULE_COSTS_FILE = "rule-costs.csv";
+
+    private static final int ENVIRONMENT_RULE_COSTS = 10;
+
+    static final String CONFIGURATION_PARAMETER_KEY = "org.sireum.hamr.inspector.gui.tasks.reports.spawningClassUID";
+    private final String configurationParameterValue = Integer.toString(nextReportRunCounter.getAndIncrement());
+
+    private Path reportOutputPath = null;
+    private Path testEngineOutputPath = null;
+    private final List<Path> adoptedResults = new ArrayList<>();
+
+    static ReportRun getRunById(String uniquePropertyString) {
+        return activeReportRunCache.getIfPresent(uniquePropertyString);
+    }
+
+    @Override
+    public void prepare(@NotNull ReportRun run) throws IOException {
+        final Path outputDirectory = run.getSettings().getOutputDirectory();
+        if (run.getSettings().getShard() != null && outputDirectory != null) {
+            testEngineOutputPath = Files.createDirectories(outputDirectory); // workers write no html report
+        } else {
+            reportOutputPath = ReportPaths.createOutputPath(GENERATED_PREFIX);
+            testEngineOutputPath = ReportPaths.createOutputPath(RESULTS_PREFIX);
+        }
+    }
+
+    @Override
+    public void execute(@NotNull ReportRun run) throws IOException {
+        Objects.requireNonNull(testEngineOutputPath, "prepare() must be called before execute()");
+        log.debug("executing test plan and writing output to {}", testEngineOutputPath);
+
+        // setup test plan and discover tests
+        activeReportRunCache.put(configurationParameterValue, run); // add the run to the cache
+        final var writer = new CustomResultsWriter(testEngineOutputPath, run.getJobs(), run.getResultStore(),
+                run.getSnapshots(), run.getMetrics());
+        final AllureLifecycle lifecycle = new AllureLifecycle(writer);
+        final var platform = new AllureJunitPlatform(lifecycle);
+
+        final LauncherDiscoveryRequest launcherDiscoveryRequest = createLauncherDiscoveryRequest();
+
+        final JupiterTestEngine engine = new JupiterTestEngine();
+
+        final var launcherConfig = LauncherConfig.builder()
+                .addTestExecutionListeners(platform, run.getProgress())
+                .addTestEngines(engine)
+                .enableTestEngineAutoRegistration(false) // was true
+                .enableTestExecutionListenerAutoRegistration(false) // avoid because serviceProvider impl has wrong output path
+                .build();
+
+        final var launcher = LauncherFactory.create(launcherConfig);
+
+        // blocks until complete
+        launcher.execute(launcherDiscoveryRequest);
+    }
+
+    /**
+     * Lists the most expensive rules in the environment widget of the report's overview page. The full ranking is
+     * written next to the generated report as {@value #RULE_COSTS_FILE}.
+     *
+     * Written when the report is generated rather than when the tests run, so a coordinator (which runs no tests
+     * itself) ranks the rules of every shard it adopted.
+     */
+    private void writeCostEnvironment(@NotNull ReportRun run) throws IOException {
+        final List<RuleCostSummary.RuleCost> costs = RuleCostSummary.rank(run);
+        final StringBuilder properties = new StringBuilder();
+        for (int i = 0; i < Math.min(ENVIRONMENT_RULE_COSTS, costs.size()); i++) {
+            final RuleCostSummary.RuleCost cost = costs.get(i);
+            final String value = cost.getRule() + ": " + RuleCostSummary.describe(cost);
+            properties.append(String.format("most.expensive.rule.%02d=%s%n", i + 1, value.replace("\\", "\\\\")));
+        }
+        Files.writeString(testEngineOutputPath.resolve("environment.properties"), properties);
+    }
+
+    @Override
+    public void adopt(@NotNull ReportRun run, @NotNull List<Path> shardOutputs) {
+        // allure merges several results directories by itself
+        adoptedResults.addAll(shardOutputs);
+    }
+
+    @NotNull
+    @Override
+    public Path generate(@NotNull ReportRun run) throws Exception {
+        Objects.requireNonNull(testEngineOutputPath, "prepare() must be called before generate()");
+        if (reportOutputPath == null) {
+            return testEngineOutputPath; // a shard worker, its coordinator generates the report
+        }
+        log.debug("generating test report and writing output to {}", reportOutputPath);
+
+        final Configuration config = new ConfigurationBuilder().fromExtensions(getExtensions()).build();
+        final var reportGenerator = new ReportGenerator(config);
+
+        final List<Path> resultsDirectories = new ArrayList<>();
+        if (run.getSettings().isFullHistory()) {
+            resultsDirectories.addAll(ReportPaths.runs(RESULTS_PREFIX));
+        } else {
+            carryHistoryForward();
+            if (run.getHistory() != null) {
+                // replaces the carried history.json and history-trend.json, the other trends stay carried forward
+                run.getHistory().writeAllureHistory(testEngineOutputPath.resolve(HISTORY_DIRECTORY), HISTORY_DEPTH);
+            }
+            resultsDirectories.add(testEngineOutputPath);
+        }
+        resultsDirectories.addAll(adoptedResults);
+        writeCostEnvironment(run);
+        reportGenerator.generate(reportOutputPath, resultsDirectories);
+        RuleCostSummary.writeCsv(reportOutputPath.resolve(RULE_COSTS_FILE), RuleCostSummary.rank(run));
+
+        ReportPaths.retain(RESULTS_PREFIX, run.getSettings().getRetainedRuns());
+        ReportPaths.retain(GENERATED_PREFIX, run.getSettings().getRetainedRuns());
+
+        return reportOutputPath;
+    }
+
+    /**
+     * Copies the newest previous report's history into this run's results, the same way the allure commandline
+     * expects it to be done between runs. Allure then only has to read one run's results, but still extends the
+     * previous trends by one entry.
+     */
+    private void carryHistoryForward() throws IOException {
+        final Optional<Path> previousReport =
+                ReportPaths.previousRunContaining(GENERATED_PREFIX, reportOutputPath, HISTORY_DIRECTORY);
+        if (previousReport.isEmpty()) {
+            log.debug("no previous report history found, starting a new history");
+            return;
+        }
+
+        final Path source = previousReport.get().resolve(HISTORY_DIRECTORY);
+        final Path target = Files.createDirectories(testEngineOutputPath.resolve(HISTORY_DIRECTORY));
+        try (Stream<Path> files = Files.list(source)) {
+            for (Path file : files.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                Files.copy(file, target.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        log.debug("carried report history forward from {}", source);
+    }
+
+    private LauncherDiscoveryRequest createLauncherDiscoveryRequest() {
+        return LauncherDiscoveryRequestBuilder.request()
+                .selectors(selectMethod(RuleTest.class, "dynamicTestFactory"))
+                .configurationParameter(CONFIGURATION_PARAMETER_KEY, configurationParameterValue) // make sure to register its key for child tests to find
+                // jupiter stays sequential, RuleTest runs the jobs themselves concurrently (see RuleJobScheduler)
+                .configurationParameter("junit.jupiter.execution.parallel.enabled", "false")
+                .configurationParameter("junit.jupiter.execution.parallel.config.strategy", "dynamic")
+                .build();
+    }
+
+    @NotNull
+    private static List<Extension> getExtensions() {
+        return List.of(
+                new JunitXmlPlugin(), // <-- added to read on junit
+                new JacksonContext(),
+                new MarkdownContext(),
+                new FreemarkerContext(),
+                new RandomUidContext(),
+                new MarkdownDescriptionsPlugin(),
+                new RetryPlugin(),
+                new RetryTrendPlugin(),
+                new TagsPlugin(),
+                new SeverityPlugin(),
+//                        new OwnerPlugin(),
+                new IdeaLinksPlugin(),
+                new HistoryPlugin(),
+                new HistoryTrendPlugin(),
+                new CategoriesPlugin(),
+                new CategoriesTrendPlugin(),
+                new DurationPlugin(),
+                new DurationTrendPlugin(),
+                new StatusChartPlugin(),
+                new TimelinePlugin(),
+                new SuitesPlugin(),
+                new ReportWebPlugin(),
+                new TestsResultsPlugin(),
+                new AttachmentsPlugin(),
+                new SummaryPlugin(),
+                new ExecutorPlugin(),
+                new LaunchPlugin(),
+                new Allure2Plugin()
+        );
+    }
+
+}
@@ -27,16 +27,22 @@ package org.sireum.hamr.inspector.gui.tasks.reports;
 
 import io.qameta.allure.AllureResultsWriter;
 import io.qameta.allure.FileSystemResultsWriter;
+import io.qameta.allure.model.Attachment;
 import io.qameta.allure.model.Label;
+import io.qameta.allure.model.Parameter;
 import io.qameta.allure.model.Status;
 import io.qameta.allure.model.TestResult;
 import io.qameta.allure.model.TestResultContainer;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 /*
  * Can keep everything the same and only override methods that actually write the results.
@@ -49,13 +55,23 @@ public class CustomResultsWriter implements AllureResultsWriter {
 
     private final AllureResultsWriter delegate;
     private final List<RuleTestJob> jobs;
+    private final RuleResultStore resultStore;
+
+    @Nullable
+    private final MscSnapshotRenderer snapshots;
+
+    private final Map<String, RuleJobMetrics> metrics;
 
     // max size of a session name. Used for leftPadding names out.
     private final int maxSessionNameSize;
 
-    public CustomResultsWriter(Path outputDirectory, List<RuleTestJob> jobs) {
+    public CustomResultsWriter(Path outputDirectory, List<RuleTestJob> jobs, RuleResultStore resultStore,
+                               @Nullable MscSnapshotRenderer snapshots, Map<String, RuleJobMetrics> metrics) {
         this.delegate = new FileSystemResultsWriter(outputDirectory);
         this.jobs = jobs;
+        this.resultStore = resultStore;
+        this.snapshots = snapshots;
+        this.metrics = metrics;
 
         maxSessionNameSize = jobs.stream()
                 .map(job -> job.session.getName().length())
@@ -68,7 +84,6 @@ public class CustomResultsWriter implements AllureResultsWriter {
         final RuleTestJob job = match(testResult);
         if (job != null) {
             // todo dont forget to add regex matchers for categories, can attach info here needed for matchers
-            // todo add msc chart as attachment?
 
             testResult.setHistoryId(job.getRule().name()); // history is of this jobs over N Instant session
             testResult.setRerunOf(job.getName()); // todo should only show from this session?
@@ -86,6 +101,25 @@ public class CustomResultsWriter implements AllureResultsWriter {
                 testResult.getStatusDetails().setMessage(job.getRule().name());
             }
 
+            // cost of running the rule, jobs answered from the result store have none
+            final RuleJobMetrics jobMetrics = metrics.get(job.getName());
+            if (jobMetrics != null) {
+                addParameter("msgs consumed", Long.toString(jobMetrics.getMsgsConsumed()), testResult);
+                addParameter("busy time (ms)", Long.toString(jobMetrics.getBusyTime().toMillis()), testResult);
+                addParameter("wall time (ms)", Long.toString(jobMetrics.getWallTime().toMillis()), testResult);
+                addParameter("peak lag (ms)", Long.toString(jobMetrics.getPeakLag().toMillis()), testResult);
+                addParameter("msgs per second", String.format("%.0f", jobMetrics.getMsgsPerSecond()), testResult);
+            }
+
+            if (testResult.getStatus() == Status.FAILED && snapshots != null) {
+                attachSnapshot(job, testResult);
+            }
+
+            // outcomes reused from an earlier report are tagged so they can be told apart from fresh runs
+            if (resultStore.isCached(job.getName())) {
+                testResult.getLabels().add(new Label().setName("tag").setValue("cached"));
+            }
+
 //            setLabel("package", "package!", testResult);
 //            setLabel("testClass", "testClass!", testResult);
 //            setLabel("suite", job.getRule().name(), testResult);
@@ -126,6 +160,21 @@ public class CustomResultsWriter implements AllureResultsWriter {
         delegate.write(testResult);
     }
 
+    private void attachSnapshot(RuleTestJob job, TestResult testResult) {
+        final List<byte[]> tiles = snapshots.awaitTiles(job.getName());
+        for (int i = 0; i < tiles.size(); i++) {
+            final String source = UUID.randomUUID() + "-attachment.png";
+            delegate.write(source, new ByteArrayInputStream(tiles.get(i)));
+
+            final String name = tiles.size() == 1 ? "msc" : "msc (" + (i + 1) + " of " + tiles.size() + ")";
+            testResult.getAttachments().add(new Attachment().setName(name).setSource(source).setType("image/png"));
+        }
+    }
+
+    private static void addParameter(String name, String value, TestResult testResult) {
+        testResult.getParameters().add(new Parameter().setName(name).setValue(value));
+    }
+
     private static void setLabel(String name, String value, TestResult testResult) {
         // replace existing key->value pair if one is found
         for (Label label : testResult.getLabels()) {
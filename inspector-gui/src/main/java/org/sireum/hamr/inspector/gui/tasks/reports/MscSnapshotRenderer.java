@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.tasks.reports;
+
+import art.Bridge;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.sireum.hamr.inspector.common.ArtUtils;
+import org.sireum.hamr.inspector.common.Msg;
+import org.sireum.hamr.inspector.gui.components.msc.Java2dMscDrawing;
+import org.sireum.hamr.inspector.gui.components.msc.MscPainter;
+import org.sireum.hamr.inspector.gui.gfx.Coloring;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.sireum.hamr.inspector.gui.App.*;
+
+/**
+ * Renders the last msgs a failed rule saw as an msc, to be attached to the rule's test in the report.
+ *
+ * Rendering uses java2d on an off-screen image, drawn by the same {@link MscPainter} as msc exports, so it needs
+ * neither a JavaFX toolkit nor the FX thread. Snapshots are rendered on a small pool of their own as soon as a
+ * job fails, and windows longer than {@link #MAX_ROWS_PER_TILE} msgs are split into several images.
+ */
+@Slf4j
+final class MscSnapshotRenderer implements Closeable {
+
+    static final int MAX_ROWS_PER_TILE = 50;
+
+    private static final long RENDER_TIMEOUT_SECONDS = 30;
+
+    private static final AtomicInteger nextThreadId = new AtomicInteger();
+
+    /**
+     * The number of msgs before (and including) the failure which are drawn.
+     */
+    @Getter
+    private final int windowSize;
+
+    private final MscPainter painter;
+    private final ExecutorService pool;
+
+    private final Map<String, CompletableFuture<List<byte[]>>> snapshots = new ConcurrentHashMap<>();
+
+    MscSnapshotRenderer(@NotNull ArtUtils artUtils, int windowSize, int threads) {
+        this.windowSize = windowSize;
+        // same colors as the gui's bridgeColoring bean
+        final Coloring<Bridge> bridgeColoring = Coloring.ofUniformlyDistantColors(artUtils.getBridges(),
+                COLOR_SCHEME_HUE_OFFSET, COLOR_SCHEME_SATURATION, COLOR_SCHEME_BRIGHTNESS);
+        this.painter = new MscPainter(artUtils, bridgeColoring);
+        this.pool = Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, "msc-snapshot-" + nextThreadId.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts rendering a failed job's window in the background.
+     *
+     * @param window the last msgs the job's rule received, oldest first
+     */
+    void capture(@NotNull String jobName, @NotNull List<Msg> window) {
+        if (!window.isEmpty()) {
+            snapshots.put(jobName, CompletableFuture.supplyAsync(() -> render(window), pool));
+        }
+    }
+
+    /**
+     * @return the png images of a job's snapshot, or an empty list if it has none or it could not be rendered
+     */
+    @NotNull
+    List<byte[]> awaitTiles(@NotNull String jobName) {
+        final CompletableFuture<List<byte[]>> snapshot = snapshots.remove(jobName);
+        if (snapshot == null) {
+            return List.of();
+        }
+        try {
+            return snapshot.get(RENDER_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return List.of();
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("unable to render msc snapshot of {}", jobName, e);
+            return List.of();
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+        snapshots.clear();
+    }
+
+    private List<byte[]> render(List<Msg> window) {
+        final List<byte[]> tiles = new ArrayList<>(1 + window.size() / MAX_ROWS_PER_TILE);
+        for (int from = 0; from < window.size(); from += MAX_ROWS_PER_TILE) {
+            tiles.add(renderTile(window.subList(from, Math.min(window.size(), from + MAX_ROWS_PER_TILE))));
+        }
+        return tiles;
+    }
+
+    private byte[] renderTile(List<Msg> rows) {
+        final int width = (int) Math.ceil(painter.width());
+        final int height = (int) Math.ceil(MscPainter.heightOf(rows.size()));
+
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+
+            final Java2dMscDrawing drawing = new Java2dMscDrawing(g);
+            painter.drawLifelines(drawing, MscPainter.HEADER_HEIGHT, height);
+            painter.drawHeader(drawing);
+            for (int i = 0; i < rows.size(); i++) {
+                painter.drawRow(drawing, rows.get(i), MscPainter.heightOf(i));
+            }
+        } finally {
+            g.dispose();
+        }
+
+        final ByteArrayOutputStream png = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "png", png);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return png.toByteArray();
+    }
+
+}
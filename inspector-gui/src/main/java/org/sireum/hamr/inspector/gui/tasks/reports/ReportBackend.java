@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.tasks.reports;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Turns the outcomes of a report's {@link RuleTestJob}s into a report on disk. A backend instance is used for a single
+ * {@link ReportRun}, and its methods are called in order, each exactly once. Either {@link #execute} or {@link #adopt}
+ * is called, depending on whether the jobs run in this jvm or in shard workers.
+ *
+ * A shard worker ({@link ReportSettings#getShard()} is set) writes to {@link ReportSettings#getOutputDirectory()} and
+ * only finishes its raw results in {@link #generate}, so that a coordinator can {@link #adopt} them.
+ */
+public interface ReportBackend {
+
+    String ALLURE = "allure";
+    String STREAMING = "streaming";
+
+    /**
+     * Creates the output locations of the report.
+     */
+    void prepare(@NotNull ReportRun run) throws Exception;
+
+    /**
+     * Runs every job of the report, blocking until all have finished.
+     */
+    void execute(@NotNull ReportRun run) throws Exception;
+
+    /**
+     * Takes over the raw results of shard workers which ran the report's jobs, instead of running them.
+     *
+     * @param shardOutputs the output directories of the workers, written by this backend in worker mode
+     */
+    void adopt(@NotNull ReportRun run, @NotNull List<Path> shardOutputs) throws Exception;
+
+    /**
+     * Finishes the report after all jobs have run.
+     *
+     * @return the location of the finished report
+     */
+    @NotNull
+    Path generate(@NotNull ReportRun run) throws Exception;
+
+    /**
+     * @param name {@link #ALLURE} for the junit platform and allure html report, or {@link #STREAMING} for junit xml
+     *             and json-lines verdicts written as jobs finish
+     * @return a new backend for a single report
+     */
+    @NotNull
+    static ReportBackend create(@NotNull String name) {
+        switch (name) {
+            case ALLURE:
+                return new AllureReportBackend();
+            case STREAMING:
+                return new StreamingReportBackend();
+            default:
+                throw new IllegalArgumentException("unknown report backend " + name + ", expected "
+                        + ALLURE + " or " + STREAMING);
+        }
+    }
+
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.tasks.reports;
+
+import lombok.extern.slf4j.Slf4j;
+import org.sireum.hamr.inspector.common.*;
+import org.sireum.hamr.inspector.services.MsgService;
+import org.sireum.hamr.inspector.services.Session;
+import org.sireum.hamr.inspector.services.SessionService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Generates a report without the gui, for example on a headless ci machine. Builds the same job matrix as the gui's
+ * "Generate Test Report" action and runs it through a {@link ReportPipeline}.
+ *
+ * <pre>
+ *   --parallelism=N          threads running sessions and rules (inspector.report.parallelism)
+ *   --backend=NAME           allure (default) or streaming (inspector.report.backend)
+ *   --cache=DIR              result cache directory (inspector.report.cache)
+ *   --no-cache               run every job, even if its outcome is cached
+ *   --session=NAME           only test the named session, may be repeated
+ *   --retain=N               report runs kept on disk, 0 keeps all (inspector.report.retain)
+ *   --history=MODE           incremental (default) or full (inspector.report.history)
+ *   --history-store=DIR      where every report's verdicts are recorded, empty to disable (inspector.report.history-store)
+ *   --shards=N               run the jobs in N local worker jvms and merge their results (inspector.report.shards)
+ *   --shard=I/N --output=DIR run only shard I of N and write its raw results to DIR, for merging elsewhere
+ *   --merge=DIR[,DIR...]     generate a report from shard outputs instead of running any jobs
+ * </pre>
+ *
+ * Any other argument is passed on to spring, so every inspector.* property can also be set directly.
+ */
+@Slf4j
+public final class ReportCli {
+
+    public static final int EXIT_PASSED = 0;
+    public static final int EXIT_FAILED = 1;
+    public static final int EXIT_ERROR = 2;
+
+    private static final long LOG_INTERVAL_MILLIS = 10_000;
+
+    // set by InspectorReportLauncher before run()
+    static volatile InspectionBlueprint inspectionBlueprint = null;
+    static volatile Set<Filter> filters = null;
+    static volatile Set<Rule> rules = null;
+    static volatile Set<Injection> injections = null;
+    static volatile String[] args = null;
+
+    private ReportCli() {
+    }
+
+    public static void configure(InspectionBlueprint inspectionBlueprint,
+                                 Set<Filter> filters,
+                                 Set<Rule> rules,
+                                 Set<Injection> injections,
+                                 String[] args) {
+        ReportCli.inspectionBlueprint = inspectionBlueprint;
+        ReportCli.filters = filters;
+        ReportCli.rules = rules;
+        ReportCli.injections = injections;
+        ReportCli.args = args;
+    }
+
+    /**
+     * @return true if args start a shard worker, which the launchers run as a headless report instead of their usual app
+     */
+    public static boolean isShardWorker(String[] args) {
+        return Arrays.stream(args).anyMatch(arg -> arg.startsWith("--shard=") || arg.startsWith("--inspector.report.shard="));
+    }
+
+    /**
+     * Generates the report and blocks until it is written.
+     *
+     * @return {@link #EXIT_PASSED} if every rule passed, {@link #EXIT_FAILED} if any rule failed, or
+     * {@link #EXIT_ERROR} if the report could not be generated
+     */
+    public static int run() {
+        Objects.requireNonNull(inspectionBlueprint, "inspectionBlueprint must be set before launching");
+        Objects.requireNonNull(filters, "filters must be set before launching");
+        Objects.requireNonNull(rules, "rules must be set before launching");
+        Objects.requireNonNull(injections, "injections must be set before launching");
+        Objects.requireNonNull(args, "Args must be set before launching");
+
+        final Set<String> sessionNames = new HashSet<>();
+        final List<Path> shardOutputs = new ArrayList<>();
+        final List<String> springArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--help")) {
+                printUsage();
+                return EXIT_PASSED;
+            } else if (arg.startsWith("--parallelism=")) {
+                springArgs.add("--inspector.report.parallelism=" + valueOf(arg));
+            } else if (arg.startsWith("--backend=")) {
+                springArgs.add("--inspector.report.backend=" + valueOf(arg));
+            } else if (arg.startsWith("--cache=")) {
+                springArgs.add("--inspector.report.cache=" + valueOf(arg));
+            } else if (arg.equals("--no-cache")) {
+                springArgs.add("--inspector.report.cache=");
+            } else if (arg.startsWith("--retain=")) {
+                springArgs.add("--inspector.report.retain=" + valueOf(arg));
+            } else if (arg.startsWith("--history=")) {
+                springArgs.add("--inspector.report.history=" + valueOf(arg));
+            } else if (arg.startsWith("--history-store=")) {
+                springArgs.add("--inspector.report.history-store=" + valueOf(arg));
+            } else if (arg.startsWith("--shards=")) {
+                springArgs.add("--inspector.report.shards=" + valueOf(arg));
+            } else if (arg.startsWith("--shard=")) {
+                springArgs.add("--inspector.report.shard=" + valueOf(arg));
+            } else if (arg.startsWith("--output=")) {
+                springArgs.add("--inspector.report.output=" + valueOf(arg));
+            } else if (arg.startsWith("--merge=")) {
+                for (String directory : valueOf(arg).split(",")) {
+                    shardOutputs.add(Path.of(directory.trim()));
+                }
+            } else if (arg.startsWith("--session=")) {
+                sessionNames.add(valueOf(arg));
+            } else {
+                springArgs.add(arg);
+            }
+        }
+
+        log.info("Initializing headless spring context...");
+        try (ConfigurableApplicationContext applicationContext = new SpringApplicationBuilder(ReportDiscovery.class)
+                .headless(true)
+                .web(WebApplicationType.NONE)
+                .profiles(ReportDiscovery.PROFILE)
+                .run(springArgs.toArray(String[]::new))) {
+
+            if (!shardOutputs.isEmpty()) {
+                final ReportPipeline pipeline = new ReportPipeline(List.of(),
+                        applicationContext.getBean(MsgService.class),
+                        applicationContext.getBean(ArtUtils.class),
+                        ReportSettings.fromEnvironment(applicationContext.getEnvironment()));
+                final Path report = pipeline.merge(new ProgressLog(), shardOutputs);
+                return summarize(report, pipeline.getRun().getProgress());
+            }
+
+            final List<Session> sessions = Objects.requireNonNull(applicationContext.getBean(SessionService.class)
+                    .sessions()
+                    .filter(session -> sessionNames.isEmpty() || sessionNames.contains(session.getName()))
+                    .collectList()
+                    .block());
+
+            final Set<String> missing = new HashSet<>(sessionNames);
+            missing.removeAll(sessions.stream().map(Session::getName).collect(Collectors.toSet()));
+            if (!missing.isEmpty()) {
+                log.error("Unknown sessions {}", missing);
+                return EXIT_ERROR;
+            }
+
+            final List<RuleTestJob> jobs = RuleTestJob.matrix(rules, filters, sessions);
+            final ReportPipeline pipeline = new ReportPipeline(jobs,
+                    applicationContext.getBean(MsgService.class),
+                    applicationContext.getBean(ArtUtils.class),
+                    ReportSettings.fromEnvironment(applicationContext.getEnvironment()));
+
+            // ctrl+c stops the running jobs before spring closes the context they read from
+            final Thread cancelOnShutdown = new Thread(pipeline::cancel, "report-cancel");
+            Runtime.getRuntime().addShutdownHook(cancelOnShutdown);
+
+            final Path report;
+            try {
+                report = pipeline.run(new ProgressLog(), () -> false);
+            } finally {
+                removeShutdownHook(cancelOnShutdown);
+            }
+            if (report == null) {
+                log.error("Report was cancelled");
+                return EXIT_ERROR;
+            }
+
+            return summarize(report, pipeline.getRun().getProgress());
+        } catch (Exception e) {
+            log.error("Unable to generate report", e);
+            return EXIT_ERROR;
+        }
+    }
+
+    private static int summarize(Path report, ReportProgressListener progress) {
+        log.info("Report written to {}: {} of {} tests failed", report, progress.failedJobs(), progress.finishedJobs());
+        return progress.failedJobs() > 0 ? EXIT_FAILED : EXIT_PASSED;
+    }
+
+    private static void removeShutdownHook(Thread hook) {
+        try {
+            Runtime.getRuntime().removeShutdownHook(hook);
+        } catch (IllegalStateException e) {
+            // already shutting down
+        }
+    }
+
+    private static String valueOf(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+
+    private static void printUsage() {
+        System.out.println(String.join(System.lineSeparator(),
+                "options:",
+                "  --parallelism=N   threads running sessions and rules",
+                "  --backend=NAME    " + ReportBackend.ALLURE + " (default) or " + ReportBackend.STREAMING,
+                "  --cache=DIR       result cache directory",
+                "  --no-cache        run every job, even if its outcome is cached",
+                "  --session=NAME    only test the named session, may be repeated",
+                "  --retain=N        report runs kept on disk, 0 keeps all",
+                "  --history=MODE    " + ReportSettings.INCREMENTAL_HISTORY + " (default) or " + ReportSettings.FULL_HISTORY,
+                "  --history-store=DIR where every report's verdicts are recorded, empty to disable",
+                "  --shards=N        run the jobs in N local worker jvms and merge their results",
+                "  --shard=I/N       run only shard I of N, writing its raw results to --output=DIR",
+                "  --merge=DIR,...   generate a report from shard outputs instead of running any jobs",
+                "  --inspector.*=... any inspector property"));
+    }
+
+    /**
+     * Logs every phase change, and the execution phase's progress at most every {@link #LOG_INTERVAL_MILLIS}.
+     */
+    private static final class ProgressLog implements ReportPipeline.Listener {
+
+        private String lastPhase = null;
+        private long lastLogMillis = 0;
+
+        @Override
+        public synchronized void onProgress(String message, double progress) {
+            final int separator = message.indexOf(':');
+            final String phase = separator < 0 ? message : message.substring(0, separator);
+            final long now = System.currentTimeMillis();
+
+            if (!phase.equals(lastPhase) || now - lastLogMillis >= LOG_INTERVAL_MILLIS) {
+                if (Double.isNaN(progress)) {
+                    log.info("{}", message);
+                } else {
+                    log.info("[{}%] {}", Math.round(100 * progress), message);
+                }
+                lastPhase = phase;
+                lastLogMillis = now;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.tasks.reports;
+
+import org.sireum.hamr.inspector.common.*;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.aop.AopAutoConfiguration;
+import org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.ConfigurationPropertiesAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.MessageSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.freemarker.FreeMarkerAutoConfiguration;
+import org.springframework.boot.autoconfigure.info.ProjectInfoAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.autoconfigure.task.TaskSchedulingAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Profile;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Spring context of {@link ReportCli}. Like org.sireum.hamr.inspector.monitor.MonitorDiscovery, it only scans the
+ * common and services packages so that no JavaFX beans are created.
+ *
+ * The {@link Profile} keeps the gui's catch-all component scan from picking this configuration up.
+ */
+@Profile(ReportDiscovery.PROFILE)
+@SpringBootConfiguration
+@EnableAutoConfiguration(exclude = {
+        TaskExecutionAutoConfiguration.class,
+        CacheAutoConfiguration.class,
+        ProjectInfoAutoConfiguration.class,
+        AopAutoConfiguration.class,
+        PropertyPlaceholderAutoConfiguration.class,
+        TaskSchedulingAutoConfiguration.class,
+        MessageSourceAutoConfiguration.class,
+        JacksonAutoConfiguration.class,
+        ConfigurationPropertiesAutoConfiguration.class,
+        FreeMarkerAutoConfiguration.class,
+})
+@ComponentScan(basePackages = {
+        "org.sireum.hamr.inspector.common",
+        "org.sireum.hamr.inspector.services",
+})
+public class ReportDiscovery {
+
+    public static final String PROFILE = "report";
+
+    @Bean(name = "inspectionBlueprint")
+    public InspectionBlueprint inspectionBlueprint() {
+        return Objects.requireNonNull(ReportCli.inspectionBlueprint);
+    }
+
+    @Bean(name = "artUtils")
+    public ArtUtils artUtils(@Qualifier("inspectionBlueprint") InspectionBlueprint inspectionBlueprint) {
+        return ArtUtils.create(inspectionBlueprint);
+    }
+
+    @Bean(name = "filters")
+    public List<Filter> filters() {
+        return List.copyOf(Objects.requireNonNull(ReportCli.filters));
+    }
+
+    @Bean(name = "rules")
+    public List<Rule> rules() {
+        return List.copyOf(Objects.requireNonNull(ReportCli.rules));
+    }
+
+    @Bean(name = "injections")
+    public List<Injection> injections() {
+        return List.copyOf(Objects.requireNonNull(ReportCli.injections));
+    }
+
+}
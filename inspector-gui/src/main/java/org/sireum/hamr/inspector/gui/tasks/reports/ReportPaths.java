@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.tasks.reports;
+
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Numbered report output directories, laid out as prefix/prefix-1, prefix/prefix-2, ...
+ *
+ * Only the prefix directory itself is ever listed, so none of these operations get slower as old runs accumulate
+ * files.
+ */
+@Slf4j
+@UtilityClass
+final class ReportPaths {
+
+    /**
+     * Creates and returns prefix/prefix-N, where N is one more than the highest existing run number.
+     */
+    static Path createOutputPath(String prefix) {
+        final Path root = Path.of(prefix);
+        mkdirs(root);
+
+        int next = runs(prefix).stream().mapToInt(run -> runNumber(run, prefix).orElse(0)).max().orElse(0) + 1;
+        while (true) {
+            final Path directory = root.resolve(prefix + "-" + Integer.toUnsignedString(next));
+            try {
+                Files.createDirectory(directory);
+                log.debug("created empty directory {}", directory);
+                return directory;
+            } catch (FileAlreadyExistsException e) {
+                next++; // another report claimed this number between listing and creating
+            } catch (IOException e) {
+                throw new UncheckedIOException("unable to create report directory " + directory, e);
+            }
+        }
+    }
+
+    /**
+     * @return every existing run directory of prefix, oldest (lowest number) first
+     */
+    @NotNull
+    static List<Path> runs(String prefix) {
+        final Path root = Path.of(prefix);
+        if (!Files.isDirectory(root)) {
+            return List.of();
+        }
+
+        try (Stream<Path> children = Files.list(root)) {
+            return children
+                    .filter(Files::isDirectory)
+                    .filter(child -> runNumber(child, prefix).isPresent())
+                    .sorted(Comparator.comparingInt(child -> runNumber(child, prefix).getAsInt()))
+                    .collect(Collectors.toUnmodifiableList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("unable to list report directory " + root, e);
+        }
+    }
+
+    /**
+     * @return the newest run of prefix which is older than run and contains child, if any
+     */
+    @NotNull
+    static Optional<Path> previousRunContaining(String prefix, Path run, String child) {
+        final int number = runNumber(run, prefix).orElse(Integer.MAX_VALUE);
+        final List<Path> runs = runs(prefix);
+        for (int i = runs.size() - 1; i >= 0; i--) {
+            final Path candidate = runs.get(i);
+            if (runNumber(candidate, prefix).getAsInt() < number && Files.exists(candidate.resolve(child))) {
+                return Optional.of(candidate);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Deletes all but the newest retainedRuns runs of prefix. Does nothing if retainedRuns is not positive.
+     */
+    static void retain(String prefix, int retainedRuns) {
+        if (retainedRuns <= 0) {
+            return;
+        }
+
+        final List<Path> runs = runs(prefix);
+        for (Path run : runs.subList(0, Math.max(0, runs.size() - retainedRuns))) {
+            try (Stream<Path> contents = Files.walk(run)) {
+                // children before their parents
+                for (Path path : contents.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                    Files.delete(path);
+                }
+                log.debug("deleted expired report directory {}", run);
+            } catch (IOException e) {
+                log.warn("unable to delete expired report directory {}", run, e);
+            }
+        }
+    }
+
+    private static OptionalInt runNumber(Path run, String prefix) {
+        final String name = run.getFileName().toString();
+        final String start = prefix + "-";
+        if (!name.startsWith(start)) {
+            return OptionalInt.empty();
+        }
+        try {
+            return OptionalInt.of(Integer.parseUnsignedInt(name.substring(start.length())));
+        } catch (NumberFormatException e) {
+            return OptionalInt.empty();
+        }
+    }
+
+    private static void mkdirs(Path path) {
+        if (path.toFile().mkdirs()) {
+            log.debug("created empty directory {}", path);
+        }
+    }
+
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.tasks.reports;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.sireum.hamr.inspector.common.ArtUtils;
+import org.sireum.hamr.inspector.services.MsgService;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Generates a report from a set of {@link RuleTestJob}s without depending on a JavaFX toolkit. The gui runs it inside
+ * {@link GenerateTestReportTask}, headless jobs run it through {@link ReportCli}.
+ */
+@Slf4j
+public final class ReportPipeline {
+
+    /**
+     * Receives the pipeline's progress. Called from the thread running the pipeline and, during the execution phase,
+     * from a timer thread.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * @param message a description of the current phase
+         * @param progress the fraction of the report which is complete, from 0 to 1, or NaN if it did not change
+         */
+        void onProgress(@NotNull String message, double progress);
+    }
+
+    private static final Duration PROGRESS_UPDATE_INTERVAL = Duration.ofMillis(500);
+
+    @Getter
+    private final ReportRun run;
+
+    private final ReportBackend backend;
+
+    public ReportPipeline(@NotNull Collection<RuleTestJob> jobs,
+                          @NotNull MsgService msgService,
+                          @NotNull ArtUtils artUtils,
+                          @NotNull ReportSettings settings) {
+        // a shard worker builds the same job matrix as its coordinator, then only runs its shard of it
+        final List<RuleTestJob> jobList = settings.getShard() == null
+                ? List.copyOf(jobs)
+                : settings.getShard().select(List.copyOf(jobs));
+        // only the allure report has somewhere to attach mscs to
+        final boolean attachesSnapshots =
+                settings.getMscSnapshotWindow() > 0 && settings.getBackend().equals(ReportBackend.ALLURE);
+        this.run = new ReportRun(jobList, msgService, artUtils, settings,
+                new RuleResultStore(settings.getResultCacheDirectory()),
+                new ReportProgressListener(jobList.size()),
+                attachesSnapshots
+                        ? new MscSnapshotRenderer(artUtils, settings.getMscSnapshotWindow(), settings.getParallelism())
+                        : null,
+                // only the jvm generating the report writes to the store, never its shard workers
+                settings.getHistoryStoreDirectory() != null && settings.getShard() == null
+                        ? new VerdictHistoryStore(settings.getHistoryStoreDirectory())
+                        : null);
+        this.backend = ReportBackend.create(settings.getBackend());
+        checkRuleNameUniqueness(jobList);
+    }
+
+    /**
+     * Runs the pipeline, blocking until the report is written.
+     *
+     * @param listener receives progress updates
+     * @param isCancelled polled while the pipeline runs, once it returns true the pipeline {@link #cancel()}s itself
+     * @return the location of the report, or null if the pipeline was cancelled
+     */
+    @Nullable
+    public Path run(@NotNull Listener listener, @NotNull BooleanSupplier isCancelled) throws Exception {
+        listener.onProgress("Preparing files", 0.0);
+        log.info("starting with jobs {}", Arrays.toString(run.getJobs().toArray()));
+        final Instant start = Instant.now();
+
+        // create files
+        backend.prepare(run);
+
+        if (checkCancelledStage(listener, isCancelled)) return null;
+        listener.onProgress("Creating test plan", 0.05);
+
+        if (checkCancelledStage(listener, isCancelled)) return null;
+        listener.onProgress("Executing test plan", 0.15);
+
+        // blocks until complete, meanwhile refresh the progress of the execution phase (15% to 75%)
+        final ReportProgressListener progress = run.getProgress();
+        final Disposable progressUpdates = Flux.interval(PROGRESS_UPDATE_INTERVAL)
+                .subscribe(tick -> {
+                    if (isCancelled.getAsBoolean()) {
+                        cancel();
+                    } else {
+                        listener.onProgress("Executing test plan: " + progress.describe(),
+                                0.15 + 0.6 * progress.fractionComplete());
+                    }
+                });
+        try {
+            if (run.getSettings().getShards() > 1 && run.getSettings().getShard() == null) {
+                final List<Path> shardOutputs = ShardCoordinator.execute(run);
+                if (!run.isCancelled()) {
+                    backend.adopt(run, shardOutputs);
+                }
+            } else {
+                backend.execute(run);
+            }
+        } finally {
+            progressUpdates.dispose();
+            if (run.getSnapshots() != null) {
+                run.getSnapshots().close(); // every snapshot has been attached once the tests have been written
+            }
+        }
+
+        if (checkCancelledStage(listener, isCancelled)) return null;
+        listener.onProgress("Generating test report", 0.75);
+
+        final Path reportOutputPath = generate(listener);
+        if (run.getSettings().getShard() != null) {
+            ShardCoordinator.writeSummary(reportOutputPath, run);
+        }
+        recordHistory(start);
+
+        listener.onProgress("Complete", 1.0);
+        return reportOutputPath;
+    }
+
+    /**
+     * Generates a report from the outputs of shard workers which already ran, for example on other machines, instead
+     * of running any jobs.
+     *
+     * @param shardOutputs the output directories of the workers, which must have used this pipeline's backend
+     * @return the location of the report
+     */
+    @NotNull
+    public Path merge(@NotNull Listener listener, @NotNull List<Path> shardOutputs) throws Exception {
+        listener.onProgress("Preparing files", 0.0);
+        backend.prepare(run);
+
+        listener.onProgress("Merging shard results", 0.15);
+        final Instant start = Instant.now();
+        ShardCoordinator.countJobs(shardOutputs, run);
+        backend.adopt(run, shardOutputs);
+
+        listener.onProgress("Generating test report", 0.75);
+        final Path reportOutputPath = generate(listener);
+        recordHistory(start);
+
+        listener.onProgress("Complete", 1.0);
+        return reportOutputPath;
+    }
+
+    @NotNull
+    private Path generate(@NotNull Listener listener) throws Exception {
+        try {
+            return backend.generate(run);
+        } catch (Exception e) {
+            listener.onProgress("Error Generating Report", Double.NaN);
+            log.error("an error occurred when generating report with the {} backend", run.getSettings().getBackend(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Records the run's verdicts once its report is generated, so the report's own history only holds earlier runs.
+     * A history which cannot be written does not fail the report.
+     */
+    private void recordHistory(@NotNull Instant start) {
+        final VerdictHistoryStore history = run.getHistory();
+        if (history == null) {
+            return;
+        }
+        try {
+            final VerdictHistoryStore.StoredRun stored = history.record(run, start, Instant.now());
+            run.getVerdicts().values().stream()
+                    .filter(verdict -> !verdict.isPassed())
+                    .map(VerdictHistoryStore.Verdict::getRule)
+                    .distinct()
+                    .forEach(rule -> history.failingSince(rule).ifPresent(since -> log.info(
+                            "rule {} has failed since run {} of {}", rule, since.getId(), since.getStart())));
+            log.debug("recorded the verdicts of this report as run {}", stored.getId());
+        } catch (IOException e) {
+            log.error("unable to record verdict history", e);
+        }
+    }
+
+    /**
+     * Stops the jobs which are still running, freeing their threads. The pipeline then skips its remaining phases and
+     * {@link #run} returns null. Safe to call from any thread.
+     */
+    public void cancel() {
+        if (!run.isCancelled()) {
+            log.info("cancelling report");
+            run.cancel();
+        }
+    }
+
+    public boolean isCancelled() {
+        return run.isCancelled();
+    }
+
+    private boolean checkCancelledStage(@NotNull Listener listener, @NotNull BooleanSupplier isCancelled) {
+        if (isCancelled.getAsBoolean()) {
+            cancel();
+        }
+        final boolean cancelled = run.isCancelled();
+        if (cancelled) {
+            listener.onProgress("Cancelled", Double.NaN);
+        }
+        return cancelled;
+    }
+
+    private static void checkRuleNameUniqueness(@NotNull List<RuleTestJob> jobs) {
+        // jobs are keyed by name, so a duplicate name overwrites the other job's verdict and metrics
+        final Set<String> names = new HashSet<>();
+        final Set<String> duplicates = new LinkedHashSet<>();
+        for (RuleTestJob job : jobs) {
+            if (!names.add(job.getName())) {
+                duplicates.add(job.getName());
+            }
+        }
+        for (String duplicate : duplicates) { // one warning per name, however often it repeats
+            log.warn("duplicate rule tests found with the non-unique name: {}", duplicate);
+        }
+    }
+
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.tasks.reports;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.platform.engine.TestExecutionResult;
+import org.junit.platform.launcher.TestExecutionListener;
+import org.junit.platform.launcher.TestIdentifier;
+import org.junit.platform.launcher.TestPlan;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks the progress of a report's test plan by the rule tests it has finished and the msgs its session replays have
+ * read, and derives throughput and an ETA from them.
+ *
+ * Finished tests are counted as a {@link TestExecutionListener} registered with the report's launcher (or directly by
+ * backends which run jobs without one). Msgs are counted by {@link RuleJobScheduler}, which counts every session's msgs
+ * before it replays any, then reports each msg as it is read. All methods are thread-safe.
+ */
+public final class ReportProgressListener implements TestExecutionListener {
+
+    private final int totalJobs;
+
+    private final LongAdder finishedJobs = new LongAdder();
+    private final LongAdder failedJobs = new LongAdder();
+    private final LongAdder expectedMsgs = new LongAdder();
+    private final LongAdder readMsgs = new LongAdder();
+
+    private final AtomicLong startNanos = new AtomicLong();
+
+    // until every session's msgs are counted, the msgs read so far say nothing about how much is left
+    private volatile boolean msgsCounted = false;
+
+    ReportProgressListener(int totalJobs) {
+        this.totalJobs = totalJobs;
+    }
+
+    @Override
+    public void testPlanExecutionStarted(TestPlan testPlan) {
+        started();
+    }
+
+    @Override
+    public void executionFinished(TestIdentifier testIdentifier, TestExecutionResult testExecutionResult) {
+        // only the dynamic rule tests count, not the factory or the engine's containers
+        if (testIdentifier.isTest()) {
+            jobFinished(testExecutionResult.getStatus() != TestExecutionResult.Status.SUCCESSFUL);
+        }
+    }
+
+    /**
+     * Called when jobs start running, for backends which do not run a junit test plan.
+     */
+    void started() {
+        startNanos.set(System.nanoTime());
+    }
+
+    /**
+     * Called whenever a job finishes, for backends which do not run a junit test plan.
+     */
+    void jobFinished(boolean failed) {
+        finishedJobs.increment();
+        if (failed) {
+            failedJobs.increment();
+        }
+    }
+
+    /**
+     * @return the number of finished jobs whose rule failed (or which could not be run)
+     */
+    public long failedJobs() {
+        return failedJobs.sum();
+    }
+
+    /**
+     * @return the number of finished jobs
+     */
+    public long finishedJobs() {
+        return finishedJobs.sum();
+    }
+
+    /**
+     * Called once, before any session is replayed, with the number of msgs of every session the report tests.
+     */
+    void msgsCounted(long msgCount) {
+        expectedMsgs.add(msgCount);
+        msgsCounted = true;
+    }
+
+    /**
+     * Called for a session which is not replayed because all of its jobs were answered from the result store.
+     */
+    void sessionSkipped(long msgCount) {
+        expectedMsgs.add(-msgCount);
+    }
+
+    void msgRead() {
+        readMsgs.increment();
+    }
+
+    /**
+     * @return the fraction of the test plan which is complete, from 0 to 1. Finished jobs and read msgs are weighted
+     * equally; msgs only count once every session's msgs were counted, before that only finished jobs do.
+     */
+    double fractionComplete() {
+        if (totalJobs == 0) {
+            return 1.0;
+        }
+        final double jobFraction = Math.min(1.0, finishedJobs.sum() / (double) totalJobs);
+        final long expected = expectedMsgs.sum();
+        if (!msgsCounted || expected <= 0) {
+            return jobFraction;
+        }
+        final double msgFraction = Math.min(1.0, readMsgs.sum() / (double) expected);
+        return (jobFraction + msgFraction) / 2.0;
+    }
+
+    /**
+     * @return msgs read per second since the test plan started
+     */
+    double msgsPerSecond() {
+        final double seconds = elapsed().toNanos() / 1e9;
+        return seconds <= 0.0 ? 0.0 : readMsgs.sum() / seconds;
+    }
+
+    /**
+     * @return an estimate of the time left, or null until enough progress has been made to estimate it
+     */
+    @Nullable
+    Duration eta() {
+        final double fraction = fractionComplete();
+        if (fraction <= 0.0 || fraction >= 1.0) {
+            return null;
+        }
+        final long elapsedNanos = elapsed().toNanos();
+        return Duration.ofNanos((long) (elapsedNanos * (1.0 - fraction) / fraction));
+    }
+
+    /**
+     * @return a one line summary such as "37/200 tests, 12345 msgs/s, 3m 12s left"
+     */
+    @NotNull
+    String describe() {
+        final StringBuilder description = new StringBuilder()
+                .append(finishedJobs.sum()).append('/').append(totalJobs).append(" tests, ")
+                .append(Math.round(msgsPerSecond())).append(" msgs/s");
+
+        final Duration eta = eta();
+        if (eta != null) {
+            description.append(", ");
+            if (eta.toHours() > 0) {
+                description.append(eta.toHours()).append("h ");
+            }
+            description.append(eta.toMinutesPart()).append("m ").append(eta.toSecondsPart()).append("s left");
+        }
+        return description.toString();
+    }
+
+    @NotNull
+    private Duration elapsed() {
+        final long start = startNanos.get();
+        return start == 0 ? Duration.ZERO : Duration.ofNanos(System.nanoTime() - start);
+    }
+
+}
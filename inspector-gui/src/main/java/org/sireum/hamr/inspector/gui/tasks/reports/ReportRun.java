@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.tasks.reports;
+
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.Value;
+import org.jetbrains.annotations.Nullable;
+import org.sireum.hamr.inspector.common.ArtUtils;
+import org.sireum.hamr.inspector.services.MsgService;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Everything a {@link ReportBackend} needs to run the jobs of a single report.
+ */
+@Value
+public class ReportRun {
+
+    List<RuleTestJob> jobs;
+
+    MsgService msgService;
+
+    ArtUtils artUtils;
+
+    ReportSettings settings;
+
+    RuleResultStore resultStore;
+
+    ReportProgressListener progress;
+
+    /**
+     * Renders the msc attached to each failed test, or null if the report attaches none.
+     */
+    @Nullable MscSnapshotRenderer snapshots;
+
+    /**
+     * The verdicts of earlier reports, or null if verdicts are not recorded.
+     */
+    @Nullable VerdictHistoryStore history;
+
+    /**
+     * What each job which ran (rather than being answered from the result store) cost, by job name.
+     */
+    @EqualsAndHashCode.Exclude @ToString.Exclude
+    Map<String, RuleJobMetrics> metrics = new ConcurrentHashMap<>();
+
+    /**
+     * The verdict of each job which finished (ran or was answered from the result store), by job name. Recorded in
+     * the {@link VerdictHistoryStore} once the report is generated.
+     */
+    @EqualsAndHashCode.Exclude @ToString.Exclude
+    Map<String, VerdictHistoryStore.Verdict> verdicts = new ConcurrentHashMap<>();
+
+    @Getter(AccessLevel.NONE) @EqualsAndHashCode.Exclude @ToString.Exclude
+    Disposable.Composite schedulers = Disposables.composite();
+
+    /**
+     * Starts running every job of this report (see {@link RuleJobScheduler}).
+     */
+    RuleJobScheduler schedule() {
+        final RuleJobScheduler scheduler = new RuleJobScheduler(this, RuleTest::runTest);
+        schedulers.add(scheduler); // disposes it right away if this run was already cancelled
+        return scheduler;
+    }
+
+    /**
+     * Stops every job of this report which is still running, and fails the outcomes of the jobs which have not run yet
+     * with a {@link java.util.concurrent.CancellationException}. Safe to call from any thread, more than once.
+     */
+    public void cancel() {
+        schedulers.dispose();
+    }
+
+    public boolean isCancelled() {
+        return schedulers.isDisposed();
+    }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.tasks.reports;
+
+import lombok.Value;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.core.env.Environment;
+
+import java.nio.file.Path;
+
+/**
+ * Tuning for {@link GenerateTestReportTask}, read from the spring environment.
+ */
+@Value
+public class ReportSettings {
+
+    public static final String INCREMENTAL_HISTORY = "incremental";
+    public static final String FULL_HISTORY = "full";
+
+    /**
+     * The number of threads which replay sessions and run rules (inspector.report.parallelism).
+     */
+    int parallelism;
+
+    /**
+     * Where outcomes are cached between reports so unchanged (rule, session) jobs can be skipped, or null to always
+     * run every job (inspector.report.cache, set it empty to disable).
+     */
+    @Nullable Path resultCacheDirectory;
+
+    /**
+     * The {@link ReportBackend} which runs the jobs and writes the report (inspector.report.backend, either
+     * {@value ReportBackend#ALLURE} or {@value ReportBackend#STREAMING}).
+     */
+    @NotNull String backend;
+
+    /**
+     * How many report runs are kept on disk, older ones are deleted once a report is generated (inspector.report.retain,
+     * 0 keeps every run).
+     */
+    int retainedRuns;
+
+    /**
+     * If true, allure reads the results of every retained run. Otherwise only the current run's results are read and
+     * the previous report's history is carried forward, which keeps trends while report time stays flat
+     * (inspector.report.history, either {@value #INCREMENTAL_HISTORY} or {@value #FULL_HISTORY}).
+     */
+    boolean fullHistory;
+
+    /**
+     * Where the verdicts of every report are recorded, see {@link VerdictHistoryStore}, or null to record none
+     * (inspector.report.history-store, set it empty to disable). In {@value #INCREMENTAL_HISTORY} mode allure's history
+     * is generated from it.
+     */
+    @Nullable Path historyStoreDirectory;
+
+    /**
+     * How many msgs before a failure are drawn into the msc attached to a failed test of an allure report
+     * (inspector.report.msc-window, 0 attaches no msc).
+     */
+    int mscSnapshotWindow;
+
+    /**
+     * How many local worker jvms run the report's jobs, each running one {@link ShardSpec} of them. 1 runs every job in
+     * this jvm (inspector.report.shards).
+     */
+    int shards;
+
+    /**
+     * The command which starts a worker jvm, to which the shard's properties are appended (inspector.report.worker-command,
+     * split on whitespace). Null relaunches this jvm's main class, see {@link ShardCoordinator}.
+     */
+    @Nullable String workerCommand;
+
+    /**
+     * If set, this jvm is a shard worker. It only runs the shard's jobs and writes their raw results to
+     * {@link #outputDirectory} for a coordinator to merge (inspector.report.shard, e.g. 0/4).
+     */
+    @Nullable ShardSpec shard;
+
+    /**
+     * The exact directory a shard worker writes its results to, instead of a new numbered run directory
+     * (inspector.report.output).
+     */
+    @Nullable Path outputDirectory;
+
+    public ReportSettings(int parallelism, @Nullable Path resultCacheDirectory, @NotNull String backend,
+                          int retainedRuns, boolean fullHistory, @Nullable Path historyStoreDirectory,
+                          int mscSnapshotWindow,
+                          int shards, @Nullable String workerCommand,
+                          @Nullable ShardSpec shard, @Nullable Path outputDirectory) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("report parallelism must be positive, but was " + parallelism);
+        }
+        if (retainedRuns < 0) {
+            throw new IllegalArgumentException("retained report runs must not be negative, but was " + retainedRuns);
+        }
+        if (shards < 1) {
+            throw new IllegalArgumentException("report shards must be positive, but was " + shards);
+        }
+        if (shard != null && outputDirectory == null) {
+            throw new IllegalArgumentException("shard " + shard + " needs an output directory");
+        }
+        this.parallelism = parallelism;
+        this.resultCacheDirectory = resultCacheDirectory;
+        this.backend = backend;
+        this.retainedRuns = retainedRuns;
+        this.fullHistory = fullHistory;
+        this.historyStoreDirectory = historyStoreDirectory;
+        this.mscSnapshotWindow = Math.max(0, mscSnapshotWindow);
+        this.shards = shards;
+        this.workerCommand = workerCommand;
+        this.shard = shard;
+        this.outputDirectory = outputDirectory;
+    }
+
+    @NotNull
+    public static ReportSettings fromEnvironment(@NotNull Environment environment) {
+        final String resultCache = environment.getProperty("inspector.report.cache", "inspector-report-cache");
+        final String history = environment.getProperty("inspector.report.history", INCREMENTAL_HISTORY);
+        final String historyStore = environment.getProperty("inspector.report.history-store", "inspector-report-history");
+        final String shard = environment.getProperty("inspector.report.shard");
+        final String output = environment.getProperty("inspector.report.output");
+        if (!history.equals(INCREMENTAL_HISTORY) && !history.equals(FULL_HISTORY)) {
+            throw new IllegalArgumentException("unknown report history mode " + history);
+        }
+        return new ReportSettings(
+                environment.getProperty("inspector.report.parallelism", Integer.class,
+                        Runtime.getRuntime().availableProcessors()),
+                resultCache.isBlank() ? null : Path.of(resultCache),
+                environment.getProperty("inspector.report.backend", ReportBackend.ALLURE),
+                environment.getProperty("inspector.report.retain", Integer.class, 20),
+                history.equals(FULL_HISTORY),
+                historyStore.isBlank() ? null : Path.of(historyStore),
+                environment.getProperty("inspector.report.msc-window", Integer.class, 40),
+                environment.getProperty("inspector.report.shards", Integer.class, 1),
+                environment.getProperty("inspector.report.worker-command"),
+                shard == null ? null : ShardSpec.parse(shard),
+                output == null ? null : Path.of(output));
+    }
+
+}
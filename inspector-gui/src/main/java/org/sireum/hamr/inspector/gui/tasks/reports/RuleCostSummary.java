@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.tasks.reports;
+
+import lombok.Value;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Ranks a report's rules by what testing them cost, summed over every session the rule ran against. Lets the cost of
+ * a rule suite be followed from report to report.
+ *
+ * Rules are ranked by their busy time rather than their wall time, since a rule's wall time also counts the time it
+ * spent waiting on the replay and on other rules. Rules are ranked from the run's metrics alone, which name their
+ * rule, so sharded and merged reports rank the jobs of every shard, whose metrics the workers write into their
+ * summaries (see {@link ShardCoordinator}), even though the coordinator has none of their jobs.
+ */
+final class RuleCostSummary {
+
+    /**
+     * The cost of one rule over all of its jobs which ran.
+     */
+    @Value
+    static class RuleCost {
+        String rule;
+        int jobs;
+        long msgsConsumed;
+        long wallTimeNanos;
+        long busyTimeNanos;
+        long peakLagNanos;
+
+        Duration getWallTime() {
+            return Duration.ofNanos(wallTimeNanos);
+        }
+
+        Duration getBusyTime() {
+            return Duration.ofNanos(busyTimeNanos);
+        }
+
+        Duration getPeakLag() {
+            return Duration.ofNanos(peakLagNanos);
+        }
+
+        double getMsgsPerSecond() {
+            return busyTimeNanos <= 0 ? 0.0 : msgsConsumed / (busyTimeNanos / 1e9);
+        }
+    }
+
+    private RuleCostSummary() {
+    }
+
+    /**
+     * @return the cost of every rule with at least one job which ran, most expensive (by busy time) first
+     */
+    @NotNull
+    static List<RuleCost> rank(@NotNull ReportRun run) {
+        final Map<String, List<RuleJobMetrics>> metricsByRule = new LinkedHashMap<>();
+        for (RuleJobMetrics metrics : run.getMetrics().values()) {
+            metricsByRule.computeIfAbsent(metrics.getRule(), rule -> new ArrayList<>()).add(metrics);
+        }
+
+        final List<RuleCost> costs = new ArrayList<>(metricsByRule.size());
+        metricsByRule.forEach((rule, metrics) -> costs.add(new RuleCost(rule,
+                metrics.size(),
+                metrics.stream().mapToLong(RuleJobMetrics::getMsgsConsumed).sum(),
+                metrics.stream().mapToLong(RuleJobMetrics::getWallTimeNanos).sum(),
+                metrics.stream().mapToLong(RuleJobMetrics::getBusyTimeNanos).sum(),
+                metrics.stream().mapToLong(RuleJobMetrics::getPeakLagNanos).max().orElse(0))));
+        costs.sort(Comparator.comparingLong(RuleCost::getBusyTimeNanos).reversed());
+        return costs;
+    }
+
+    /**
+     * @return a one line description of a rule's cost, for places which only fit text
+     */
+    @NotNull
+    static String describe(@NotNull RuleCost cost) {
+        return String.format(Locale.ROOT, "%.3fs busy over %d sessions, %d msgs (%.0f msgs/s), peak lag %dms",
+                cost.getBusyTimeNanos() / 1e9, cost.getJobs(), cost.getMsgsConsumed(), cost.getMsgsPerSecond(),
+                cost.getPeakLag().toMillis());
+    }
+
+    /**
+     * Writes every rule's cost as csv, most expensive first.
+     */
+    static void writeCsv(@NotNull Path file, @NotNull List<RuleCost> costs) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("rank,rule,sessions,busy_time_ms,wall_time_ms,msgs_consumed,msgs_per_second,peak_lag_ms\n");
+            for (int i = 0; i < costs.size(); i++) {
+                final RuleCost cost = costs.get(i);
+                writer.write(String.format(Locale.ROOT, "%d,\"%s\",%d,%d,%d,%d,%.1f,%d\n",
+                        i + 1, cost.getRule().replace("\"", "\"\""), cost.getJobs(), cost.getBusyTime().toMillis(),
+                        cost.getWallTime().toMillis(), cost.getMsgsConsumed(), cost.getMsgsPerSecond(),
+                        cost.getPeakLag().toMillis()));
+            }
+        }
+    }
+
+}
@@ -94,7 +94,7 @@ import java.util.Optional;
 public class RuleExtensionPostProcessor implements TestInstancePostProcessor {
 
     /**
-     * Will be called once per TestFactory, do NOT call task.getNextJob() here or it will offset for the tests.
+     * Will be called once per TestFactory.
      * @param testInstance
      * @param context
      * @throws Exception
@@ -108,19 +108,20 @@ public class RuleExtensionPostProcessor implements TestInstancePostProcessor {
         warnIfNotNull(ruleTest.getJobs(), "ruleTest should have no ruleTestJobs because it is the job of this post-processing class to assign the ruleTestJobs");
 
         final Optional<String> configurationParameter =
-                context.getConfigurationParameter(GenerateTestReportTask.CONFIGURATION_PARAMETER_KEY);
+                context.getConfigurationParameter(AllureReportBackend.CONFIGURATION_PARAMETER_KEY);
 
         if (configurationParameter.isEmpty()) {
             log.error("test case should have configuration parameter pointing to test set, but it was not found");
         }
 
         final String id = configurationParameter.get();
-        final GenerateTestReportTask reportGenTask = GenerateTestReportTask.getInstanceById(id);
+        final ReportRun reportRun = AllureReportBackend.getRunById(id);
 
         // populate RuleTest's fields
-        ruleTest.setMsgService(reportGenTask.msgService);
-        ruleTest.setArtUtils(reportGenTask.artUtils);
-        ruleTest.setJobs(reportGenTask.getJobs());
+        ruleTest.setMsgService(reportRun.getMsgService());
+        ruleTest.setArtUtils(reportRun.getArtUtils());
+        ruleTest.setJobs(reportRun.getJobs());
+        ruleTest.setRun(reportRun);
 //        ruleTest.setLatch(reportGenTask.getLatch());
         log.debug("Post-processing of RuleTest's dynamicTestFactory complete.");
     }
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.tasks.reports;
+
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * What running a single {@link RuleTestJob} cost, measured by {@link RuleJobScheduler}. Jobs answered from the
+ * {@link RuleResultStore} did not run and have no metrics.
+ */
+@Value
+public class RuleJobMetrics {
+
+    /**
+     * The name of the job's rule, so metrics can be ranked by rule without the job (which merged reports do not have).
+     */
+    String rule;
+
+    /**
+     * The number of msgs the rule received.
+     */
+    long msgsConsumed;
+
+    /**
+     * The time from the rule's subscription until it completed or failed, including the time it waited for msgs and
+     * for a thread while other rules ran.
+     */
+    long wallTimeNanos;
+
+    /**
+     * The time spent inside the rule's own operators, handling its msgs and its completion on its worker. Work a rule
+     * moves onto other threads itself is not counted.
+     */
+    long busyTimeNanos;
+
+    /**
+     * The longest any msg waited between being replayed for the rule and the rule receiving it. The replay never
+     * buffers more than a fixed number of msgs for a rule, so a rule which falls behind shows up as a growing wait
+     * rather than a growing buffer.
+     */
+    long peakLagNanos;
+
+    public Duration getWallTime() {
+        return Duration.ofNanos(wallTimeNanos);
+    }
+
+    public Duration getBusyTime() {
+        return Duration.ofNanos(busyTimeNanos);
+    }
+
+    public Duration getPeakLag() {
+        return Duration.ofNanos(peakLagNanos);
+    }
+
+    /**
+     * @return how many msgs the rule handles per second of its busy time
+     */
+    public double getMsgsPerSecond() {
+        return busyTimeNanos <= 0 ? 0.0 : msgsConsumed / (busyTimeNanos / 1e9);
+    }
+
+}
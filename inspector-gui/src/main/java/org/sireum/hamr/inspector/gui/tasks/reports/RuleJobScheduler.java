@@ -0,0 +1,423 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.tasks.reports;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import org.reactivestreams.Subscription;
+import org.sireum.hamr.inspector.common.Filter;
+import org.sireum.hamr.inspector.common.Msg;
+import org.sireum.hamr.inspector.engine.FilterPipelineService;
+import org.sireum.hamr.inspector.engine.MsgSnapshot;
+import org.sireum.hamr.inspector.engine.SnapshotReplayService;
+import org.sireum.hamr.inspector.services.Session;
+import reactor.core.CoreSubscriber;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Operators;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+import reactor.util.context.Context;
+
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the {@link RuleTestJob}s of a report ahead of the dynamic tests which report them.
+ *
+ * Jobs are grouped by session. Each session is replayed once and its msgs are fanned out to every rule tested against
+ * it. Rules attached to a filter share one run of that filter. Up to {@link ReportSettings#getParallelism()} threads
+ * run sessions and rules, each rule consuming the shared replay on its own worker. Jobs with an outcome in the
+ * {@link RuleResultStore} are answered from it, and sessions whose jobs are all cached are not replayed at all.
+ *
+ * Jupiter runs the dynamic tests of a single factory one after another, so the tests themselves stay sequential and
+ * only wait for their job's outcome. This keeps the allure results (and {@link CustomResultsWriter}'s job lookup) in
+ * job order.
+ */
+@Slf4j
+final class RuleJobScheduler implements Disposable {
+
+    @FunctionalInterface
+    interface JobRunner {
+        Mono<Void> run(RuleTestJob job, Flux<Msg> input);
+    }
+
+    /**
+     * The most msgs replayed for a rule which it has not received yet.
+     */
+    private static final int RULE_PREFETCH = Queues.SMALL_BUFFER_SIZE;
+
+    private final List<RuleTestJob> jobs;
+
+    private final SnapshotReplayService replays;
+
+    private final JobRunner runner;
+
+    private final RuleResultStore resultStore;
+
+    private final ReportProgressListener progress;
+
+    @Nullable
+    private final MscSnapshotRenderer snapshots;
+
+    private final Map<String, RuleJobMetrics> metrics;
+
+    private final Map<String, VerdictHistoryStore.Verdict> verdicts;
+
+    private final Scheduler scheduler;
+
+    private final List<CompletableFuture<Void>> outcomes;
+
+    private final AtomicInteger remaining;
+
+    private final Disposable subscription;
+
+    RuleJobScheduler(ReportRun run, JobRunner runner) {
+        final ReportSettings settings = run.getSettings();
+        this.jobs = run.getJobs();
+        this.replays = new SnapshotReplayService(run.getMsgService());
+        this.resultStore = run.getResultStore();
+        this.progress = run.getProgress();
+        this.snapshots = run.getSnapshots();
+        this.metrics = run.getMetrics();
+        this.verdicts = run.getVerdicts();
+        this.runner = runner;
+        this.scheduler = Schedulers.newBoundedElastic(settings.getParallelism(), Integer.MAX_VALUE, "rule-test");
+        this.outcomes = new ArrayList<>(jobs.size());
+        for (RuleTestJob job : jobs) {
+            final CompletableFuture<Void> outcome = new CompletableFuture<>();
+            outcome.whenComplete((ignored, failure) -> {
+                if (!(failure instanceof CancellationException)) { // cancelled jobs have no verdict
+                    verdicts.put(job.getName(), new VerdictHistoryStore.Verdict(
+                            job.getRule().name(), job.getSession().getName(), failure == null));
+                }
+            });
+            outcomes.add(outcome);
+        }
+        this.remaining = new AtomicInteger(jobs.size());
+
+        final Map<Session, List<Integer>> jobIndexesBySession = new LinkedHashMap<>();
+        for (int i = 0; i < jobs.size(); i++) {
+            jobIndexesBySession.computeIfAbsent(jobs.get(i).getSession(), session -> new ArrayList<>()).add(i);
+        }
+
+        // every session is counted before any is replayed, so the progress knows how many msgs are left from the start,
+        // and each high-water mark both bounds its replay and identifies the session's content in the result store. A
+        // session which cannot be counted or replayed only fails its own jobs.
+        this.subscription = Flux.fromIterable(jobIndexesBySession.keySet())
+                .flatMapSequential(session -> replays.snapshot(session)
+                        .subscribeOn(scheduler)
+                        .onErrorResume(throwable -> failSession(session, jobIndexesBySession.get(session), throwable)),
+                        settings.getParallelism())
+                .collectList()
+                .flatMapMany(sessionSnapshots -> {
+                    progress.msgsCounted(sessionSnapshots.stream().mapToLong(MsgSnapshot::getHighWaterMark).sum());
+                    return Flux.fromIterable(sessionSnapshots);
+                })
+                .flatMap(snapshot -> {
+                    final List<Integer> jobIndexes = jobIndexesBySession.get(snapshot.getSession());
+                    return Mono.defer(() -> runSession(snapshot, jobIndexes))
+                            .subscribeOn(scheduler)
+                            .onErrorResume(throwable -> failSession(snapshot.getSession(), jobIndexes, throwable));
+                }, settings.getParallelism())
+                .subscribe(ignored -> {
+                }, throwable -> {
+                    log.error("Rule test jobs stopped unexpectedly", throwable);
+                    failPending(allJobIndexes(), throwable);
+                }, () -> failPending(allJobIndexes(),
+                        new IllegalStateException("a Rule should not end without indicating error or success")));
+    }
+
+    /**
+     * @return the outcome of the job at jobIndex, which completes exceptionally with the job's failure (if any)
+     */
+    CompletableFuture<Void> outcome(int jobIndex) {
+        return outcomes.get(jobIndex);
+    }
+
+    /**
+     * Blocks until the job at jobIndex has run, rethrowing its failure (if any).
+     */
+    void await(int jobIndex) throws Throwable {
+        try {
+            outcomes.get(jobIndex).get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        } finally {
+            if (remaining.decrementAndGet() == 0) {
+                dispose();
+            }
+        }
+    }
+
+    /**
+     * Cancels every replay and rule which is still running. Disposing the scheduler shuts its workers down
+     * immediately, interrupting rules which are blocked.
+     */
+    @Override
+    public void dispose() {
+        subscription.dispose();
+        scheduler.dispose();
+
+        // jobs which never ran (or were cut short) must not leave their dynamic test waiting forever
+        for (CompletableFuture<Void> outcome : outcomes) {
+            outcome.completeExceptionally(new CancellationException("rule test job was cancelled"));
+        }
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return subscription.isDisposed();
+    }
+
+    private <T> Mono<T> failSession(Session session, List<Integer> jobIndexes, Throwable throwable) {
+        log.error("Unable to test session {}", session, throwable);
+        failPending(jobIndexes, throwable);
+        return Mono.empty();
+    }
+
+    /**
+     * Fails the outcomes of the jobs which do not have one yet, so no dynamic test waits for them forever.
+     */
+    private void failPending(List<Integer> jobIndexes, Throwable throwable) {
+        for (int jobIndex : jobIndexes) {
+            outcomes.get(jobIndex).completeExceptionally(throwable);
+        }
+    }
+
+    private List<Integer> allJobIndexes() {
+        final List<Integer> jobIndexes = new ArrayList<>(jobs.size());
+        for (int i = 0; i < jobs.size(); i++) {
+            jobIndexes.add(i);
+        }
+        return jobIndexes;
+    }
+
+    private Mono<Void> runSession(MsgSnapshot snapshot, List<Integer> jobIndexes) {
+        final Session session = snapshot.getSession();
+        final long count = snapshot.getHighWaterMark();
+        final Map<Integer, String> keys = new HashMap<>();
+        final List<Integer> unfilteredJobIndexes = new ArrayList<>();
+        final Map<Filter, List<Integer>> jobIndexesByFilter = new LinkedHashMap<>();
+        for (int jobIndex : jobIndexes) {
+            final RuleTestJob job = jobs.get(jobIndex);
+            final String key = resultStore.keyOf(job, count);
+
+            final Optional<RuleResultStore.CachedOutcome> cached = resultStore.lookup(job, key);
+            if (cached.isPresent()) {
+                log.debug("Reusing cached outcome of {}", job.getName());
+                if (cached.get().isPassed()) {
+                    outcomes.get(jobIndex).complete(null);
+                } else {
+                    outcomes.get(jobIndex).completeExceptionally(cached.get().toFailure());
+                }
+                continue;
+            }
+
+            keys.put(jobIndex, key);
+            final Filter filter = job.getFilter();
+            if (filter == null) {
+                unfilteredJobIndexes.add(jobIndex);
+            } else {
+                jobIndexesByFilter.computeIfAbsent(filter, f -> new ArrayList<>()).add(jobIndex);
+            }
+        }
+
+        if (keys.isEmpty()) {
+            log.debug("Skipping replay of session {}, all of its rule tests are cached", session);
+            progress.sessionSkipped(count);
+            return Mono.empty();
+        }
+
+        return replays.replay(snapshot)
+                .doOnNext(msg -> progress.msgRead())
+                .publish(msgs -> {
+                    final List<Mono<Void>> consumers = new ArrayList<>();
+                    for (int jobIndex : unfilteredJobIndexes) {
+                        consumers.add(runJob(jobIndex, keys.get(jobIndex), msgs));
+                    }
+                    jobIndexesByFilter.forEach((filter, filteredJobIndexes) -> consumers.add(
+                            FilterPipelineService.applyFilter(msgs, filter)
+                                    .publish(filteredMsgs -> Flux.fromIterable(filteredJobIndexes)
+                                            .flatMap(jobIndex -> runJob(jobIndex, keys.get(jobIndex), filteredMsgs)))
+                                    .then()));
+                    return Flux.merge(consumers);
+                })
+                .then()
+                .doOnSubscribe(s -> log.debug("Replaying session {} for {} rule tests", session, keys.size()))
+                .doOnTerminate(() -> log.debug("Finished replaying session {}", session));
+    }
+
+    private Mono<Void> runJob(int jobIndex, @Nullable String key, Flux<Msg> input) {
+        final RuleTestJob job = jobs.get(jobIndex);
+        final CompletableFuture<Void> outcome = outcomes.get(jobIndex);
+
+        final Meter meter = new Meter();
+        final Flux<Msg> meteredInput = input
+                .doOnNext(msg -> meter.delivered())
+                .publishOn(scheduler, RULE_PREFETCH)
+                .doOnNext(msg -> meter.consumed());
+
+        // the last msgs the rule saw, only touched from the rule's own worker
+        final Deque<Msg> window = snapshots == null ? null : new ArrayDeque<>(snapshots.getWindowSize());
+        final Flux<Msg> ruleInput = window == null ? meteredInput : meteredInput
+                .doOnNext(msg -> {
+                    if (window.size() == snapshots.getWindowSize()) {
+                        window.removeFirst();
+                    }
+                    window.addLast(msg);
+                });
+
+        // set if the rule's input errored (the replay, filter or scheduler failed), in which case the rule's error is
+        // not a verdict on the session and must not be cached
+        final AtomicReference<Throwable> inputError = new AtomicReference<>();
+
+        // a rule which ends early cancels only its own branch, the shared replay continues for the other rules. The
+        // runner is deferred, so a rule which throws while building its pipeline only fails its own job.
+        final Flux<Msg> timedInput = ruleInput
+                .doOnError(inputError::set)
+                .transform(Operators.<Msg, Msg>lift((scannable, rule) -> meter.timing(rule)));
+        return Mono.defer(() -> runner.run(job, timedInput))
+                .doOnSubscribe(subscription -> meter.started())
+                .doOnTerminate(() -> metrics.put(job.getName(), meter.toMetrics(job.getRule().name())))
+                .doOnSuccess(ignored -> {
+                    resultStore.store(key, null);
+                    outcome.complete(null);
+                })
+                .doOnError(throwable -> {
+                    if (inputError.get() != null) {
+                        log.warn("Rule test {} failed because its input failed, not caching it", job.getName());
+                    } else if (!isDisposed()) { // a rule interrupted by dispose() did not fail, so don't cache it
+                        resultStore.store(key, throwable);
+                        if (window != null) {
+                            snapshots.capture(job.getName(), List.copyOf(window));
+                        }
+                    }
+                    outcome.completeExceptionally(throwable);
+                })
+                .onErrorResume(throwable -> Mono.empty());
+    }
+
+    /**
+     * Measures a single job. Msgs are delivered on the replay's thread and consumed on the rule's worker, which is also
+     * where the rule's operators run.
+     */
+    private static final class Meter {
+
+        private final AtomicLong startNanos = new AtomicLong();
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong consumed = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+        // when the rule started handling its current signal, or 0 while it is not handling one
+        private final AtomicLong signalStartNanos = new AtomicLong();
+        private final AtomicLong peakLagNanos = new AtomicLong();
+
+        // when each msg was delivered, by its index modulo the prefetch. At most RULE_PREFETCH msgs are delivered ahead
+        // of the rule, so a slot is only reused once its msg was consumed, and the queue between them publishes it.
+        private final long[] deliveredNanos = new long[RULE_PREFETCH];
+
+        void started() {
+            startNanos.set(System.nanoTime());
+        }
+
+        void delivered() {
+            final long index = delivered.get();
+            deliveredNanos[(int) (index % RULE_PREFETCH)] = System.nanoTime();
+            delivered.set(index + 1);
+        }
+
+        void consumed() {
+            final long index = consumed.getAndIncrement();
+            final long lag = System.nanoTime() - deliveredNanos[(int) (index % RULE_PREFETCH)];
+            peakLagNanos.accumulateAndGet(lag, Math::max);
+        }
+
+        /**
+         * @return a subscriber which passes every signal on to the rule, adding the time the rule spends on it
+         */
+        CoreSubscriber<Msg> timing(CoreSubscriber<? super Msg> rule) {
+            return new CoreSubscriber<>() {
+                @Override
+                public Context currentContext() {
+                    return rule.currentContext();
+                }
+
+                @Override
+                public void onSubscribe(Subscription subscription) {
+                    rule.onSubscribe(subscription);
+                }
+
+                @Override
+                public void onNext(Msg msg) {
+                    signalStarted();
+                    rule.onNext(msg);
+                    signalFinished();
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    signalStarted();
+                    rule.onError(throwable);
+                    signalFinished();
+                }
+
+                @Override
+                public void onComplete() {
+                    signalStarted();
+                    rule.onComplete();
+                    signalFinished();
+                }
+            };
+        }
+
+        private void signalStarted() {
+            signalStartNanos.set(System.nanoTime());
+        }
+
+        private void signalFinished() {
+            busyNanos.addAndGet(System.nanoTime() - signalStartNanos.getAndSet(0));
+        }
+
+        /**
+         * Called as the rule terminates, which is usually still inside the signal that ended it, so the time that
+         * signal took so far is counted as well.
+         */
+        RuleJobMetrics toMetrics(String rule) {
+            final long now = System.nanoTime();
+            final long signalStart = signalStartNanos.get();
+            final long busy = busyNanos.get() + (signalStart == 0 ? 0 : now - signalStart);
+            return new RuleJobMetrics(rule, consumed.get(), now - startNanos.get(), busy, peakLagNanos.get());
+        }
+    }
+
+}
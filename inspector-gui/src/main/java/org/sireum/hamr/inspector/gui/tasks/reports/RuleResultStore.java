@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.tasks.reports;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.sireum.hamr.inspector.common.Filter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A content-addressed store of rule test outcomes, used to skip (rule, session) jobs whose outcome cannot have changed
+ * since an earlier report.
+ *
+ * A job's key hashes the rule's name and class bytecode, the bytecode of the filter it is attached to (if any), the
+ * session's name and the session's msg count. Changing a rule or filter, or appending msgs to a session, therefore
+ * invalidates the job. Rules whose class file cannot be found (such as lambdas) are never cached.
+ */
+@Slf4j
+public final class RuleResultStore {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Nullable
+    private final Path directory;
+
+    // names of the jobs of the current report which were answered from the store
+    private final Set<String> cachedJobNames = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param directory the directory to store outcomes in, or null to disable the store
+     */
+    public RuleResultStore(@Nullable Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return the key of the job's outcome when its session has msgCount msgs, or null if the job cannot be cached
+     */
+    @Nullable
+    String keyOf(@NotNull RuleTestJob job, long msgCount) {
+        if (directory == null) {
+            return null;
+        }
+
+        final String ruleHash = classHash(job.getRule().getClass());
+        if (ruleHash == null) {
+            return null;
+        }
+
+        final Filter filter = job.getFilter();
+        final String filterHash = filter != null ? classHash(filter.getClass()) : "";
+        if (filterHash == null) {
+            return null;
+        }
+
+        return sha256(String.join("\0",
+                job.getRule().name(), ruleHash, filterHash, job.getSession().getName(), Long.toString(msgCount)));
+    }
+
+    @NotNull
+    Optional<CachedOutcome> lookup(@NotNull RuleTestJob job, @Nullable String key) {
+        if (directory == null || key == null) {
+            return Optional.empty();
+        }
+
+        final Path file = directory.resolve(key + ".json");
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+
+        try {
+            final CachedOutcome outcome = MAPPER.readValue(file.toFile(), CachedOutcome.class);
+            cachedJobNames.add(job.getName());
+            return Optional.of(outcome);
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable cached outcome {}", file, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores a job's outcome. Only outcomes which the rule itself produced may be stored, never a failure of the replay
+     * or filter feeding it, since those say nothing about the (rule, session) pair the key names.
+     *
+     * @param failure the rule's failure, or null if it passed
+     */
+    void store(@Nullable String key, @Nullable Throwable failure) {
+        if (directory == null || key == null) {
+            return;
+        }
+
+        final CachedOutcome outcome = failure == null
+                ? new CachedOutcome(true, null, null)
+                : new CachedOutcome(false, failure.toString(), ExceptionUtils.getStackTrace(failure));
+
+        try {
+            Files.createDirectories(directory);
+            final Path tmp = Files.createTempFile(directory, key, ".tmp");
+            MAPPER.writeValue(tmp.toFile(), outcome);
+            Files.move(tmp, directory.resolve(key + ".json"), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to cache outcome under key {}", key, e);
+        }
+    }
+
+    /**
+     * @return true if the named job's outcome was answered from this store during the current report
+     */
+    boolean isCached(@NotNull String jobName) {
+        return cachedJobNames.contains(jobName);
+    }
+
+    @Nullable
+    private static String classHash(@NotNull Class<?> clazz) {
+        final String resource = '/' + clazz.getName().replace('.', '/') + ".class";
+        try (InputStream in = clazz.getResourceAsStream(resource)) {
+            if (in == null) {
+                return null;
+            }
+            return sha256(in.readAllBytes());
+        } catch (IOException e) {
+            log.warn("Unable to read bytecode of {}", clazz, e);
+            return null;
+        }
+    }
+
+    @NotNull
+    private static String sha256(@NotNull String text) {
+        return sha256(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @NotNull
+    private static String sha256(byte[] bytes) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            final StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required to be supported by every jvm", e);
+        }
+    }
+
+    @Value
+    static class CachedOutcome {
+        boolean passed;
+        @Nullable String message;
+        @Nullable String trace;
+
+        @JsonCreator
+        CachedOutcome(@JsonProperty("passed") boolean passed,
+                      @JsonProperty("message") @Nullable String message,
+                      @JsonProperty("trace") @Nullable String trace) {
+            this.passed = passed;
+            this.message = message;
+            this.trace = trace;
+        }
+
+        @NotNull
+        Throwable toFailure() {
+            return new CachedRuleFailure(message != null ? message : "rule failed", trace);
+        }
+    }
+
+}
@@ -29,15 +29,17 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
 import org.junit.jupiter.api.DynamicTest;
 import org.junit.jupiter.api.TestFactory;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.platform.runner.JUnitPlatform;
 import org.junit.runner.RunWith;
+import org.opentest4j.TestAbortedException;
 import org.sireum.hamr.inspector.common.ArtUtils;
 import org.sireum.hamr.inspector.common.Msg;
+import org.sireum.hamr.inspector.common.Rule;
 import org.sireum.hamr.inspector.services.MsgService;
-import org.springframework.data.domain.Range;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -45,6 +47,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -54,7 +57,7 @@ import java.util.concurrent.atomic.AtomicReference;
 @NoArgsConstructor @SuppressWarnings({"SpringJavaAutowiredFieldsWarningInspection", "RedundantSuppression"}) // <-- protection for generated classes
 class RuleTest {
 
-    // all four values are set by RuleExtensionPostProcessor
+    // all of these values are set by RuleExtensionPostProcessor
 
     @Getter @Setter
     private MsgService msgService = null;
@@ -65,6 +68,9 @@ class RuleTest {
     @Getter @Setter
     private List<RuleTestJob> jobs = null;
 
+    @Getter @Setter
+    private ReportRun run = null;
+
 //    @Getter @Setter
 //    private CountDownLatch latch = null;
 
@@ -79,67 +85,74 @@ class RuleTest {
     @ExtendWith(RuleExtensionPostProcessor.class)
     public Collection<DynamicTest> dynamicTestFactory() { // DO NOT RENAME (see doc above method)
         log.debug("Preparing dynamic rule tests for testing engine.");
+
+        // jobs start running now, each dynamic test only waits for (and reports) its job's outcome
+        final RuleJobScheduler jobScheduler = run.schedule();
+
         final List<DynamicTest> ruleTests = new ArrayList<>(jobs.size());
-        for (RuleTestJob job : jobs) {
-            ruleTests.add(DynamicTest.dynamicTest(job.getName(), () -> {
-//                try {
-                    log.debug("Running test {}", job.getName());
-                    runTest(job, msgService, artUtils);
-//                } finally {
-                    log.debug("Finished test {}", job.getName());
-//                    latch.countDown();
-//                }
-            }));
+        for (int i = 0; i < jobs.size(); i++) {
+            final int jobIndex = i;
+            ruleTests.add(DynamicTest.dynamicTest(jobs.get(i).getName(), () -> awaitOutcome(jobScheduler, jobIndex)));
         }
         return Collections.unmodifiableList(ruleTests);
     }
 
-    private static void runTest(RuleTestJob job, MsgService msgService, ArtUtils artUtils) throws Throwable {
-        final var error = new AtomicBoolean();
-        final var errorCause = new AtomicReference<Throwable>();
-        final var success = new AtomicBoolean();
-
-        final var key = job.getSession();
-        final var rule = job.rule;
-
-        // todo replace count and live-subscribe with replaySnapshop() method
-        final Mono<Long> msgCount = msgService.count(key);
-        final org.sireum.hamr.inspector.stream.Flux<Msg> input = org.sireum.hamr.inspector.stream.Flux.from(
-//                msgCount.flatMapMany(count -> msgService.replay(key).take(count)));
-                // todo why take count?
-                msgCount.flatMapMany(count -> msgService.replay(key, Range.unbounded()).take(count)));
-
-        // rule update 1
-        final Flux<?> output = Flux.from(rule.rule(input));
-
-        output
-                .onErrorStop()
-                .doOnError(throwable -> {
-                    error.set(true);
-                    errorCause.set(throwable);
-                })
-                .doOnComplete(() -> success.set(true))
-                .then()
-                .block();
-
-        final boolean e = error.get();
-        final boolean s = success.get();
-
-        if (!e && s) {
+    /**
+     * Waits for a job's outcome. Jobs of a cancelled report are reported as aborted instead of failed, and end right
+     * away so the launcher returns soon after the report is cancelled.
+     */
+    private static void awaitOutcome(RuleJobScheduler jobScheduler, int jobIndex) throws Throwable {
+        try {
+            jobScheduler.await(jobIndex);
+        } catch (CancellationException e) {
+            throw new TestAbortedException("report was cancelled", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TestAbortedException("report was interrupted", e);
+        }
+    }
+
+    /**
+     * @param job the job whose rule should be run
+     * @param input the msgs of the job's session, already filtered if the job's rule is attached to a filter
+     * @return a {@link Mono} which completes if the rule completes, or errors with the rule's error (including one
+     * thrown while the rule builds its pipeline)
+     */
+    static Mono<Void> runTest(RuleTestJob job, Flux<Msg> input) {
+        final Rule rule = job.rule;
+
+        return Mono.defer(() -> {
+            final var errorCause = new AtomicReference<Throwable>();
+            final var success = new AtomicBoolean();
+
+            // rule update 1
+            return Flux.from(rule.rule(org.sireum.hamr.inspector.stream.Flux.from(input)))
+                    .onErrorStop()
+                    .doOnError(errorCause::set)
+                    .doOnComplete(() -> success.set(true))
+                    .then()
+                    .onErrorResume(throwable -> Mono.empty())
+                    .then(Mono.defer(() -> outcomeOf(rule, errorCause.get(), success.get())));
+        }).doOnSubscribe(subscription -> log.debug("Running test {}", job.getName()));
+    }
+
+    private static Mono<Void> outcomeOf(Rule rule, @Nullable Throwable errorCause, boolean success) {
+        final boolean e = errorCause != null;
+
+        if (!e && success) {
             log.info("Test of Rule {} has completed successfully.", rule.name());
-        } else if (e && !s) {
-            final Throwable ec = errorCause.get();
-            log.info("Test of Rule {} has ended in an error: {}", rule.name(), ec);
-            throw ec;
-        } else if (e && s) {
+            return Mono.empty();
+        } else if (e && !success) {
+            log.info("Test of Rule {} has ended in an error: {}", rule.name(), errorCause);
+            return Mono.error(errorCause);
+        } else if (e) {
             final String cause = "a Rule should not be capable of both completing and erroring out";
-            final Throwable ec = errorCause.get();
-            log.error(cause, ec);
-            throw new IllegalStateException(cause, ec);
+            log.error(cause, errorCause);
+            return Mono.error(new IllegalStateException(cause, errorCause));
         } else {
             final String cause = "a Rule should not end without indicating error or success";
             log.error(cause);
-            throw new IllegalStateException(cause);
+            return Mono.error(new IllegalStateException(cause));
         }
     }
 }
@@ -25,16 +25,69 @@
 
 package org.sireum.hamr.inspector.gui.tasks.reports;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import org.jetbrains.annotations.Nullable;
+import org.sireum.hamr.inspector.common.Filter;
 import org.sireum.hamr.inspector.common.Rule;
 import org.sireum.hamr.inspector.services.Session;
+import scala.collection.JavaConverters;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 @Data
+@AllArgsConstructor
 public class RuleTestJob {
     final Rule rule;
     final Session session;
 
+    /**
+     * The filter this rule is attached to, or null if the rule reads the session's unfiltered msgs.
+     */
+    @Nullable
+    final Filter filter;
+
+    public RuleTestJob(Rule rule, Session session) {
+        this(rule, session, null);
+    }
+
+    /**
+     * The job's name, which identifies it within a report (and across the shards of one). Verdicts, metrics, cached
+     * outcomes and msc snapshots are all keyed by it, so a rule attached to a filter is named after the filter too,
+     * by its class since that is the same in every jvm which builds the report.
+     */
     final String getName() {
-        return rule.name() + " @ " + session;
+        if (filter == null) {
+            return rule.name() + " @ " + session;
+        }
+        final String filterName = filter.getClass().getSimpleName().isEmpty() // an anonymous class
+                ? filter.getClass().getName()
+                : filter.getClass().getSimpleName();
+        return rule.name() + " @ " + session + " via " + filterName;
+    }
+
+    /**
+     * @return a job for every lone rule and every session, followed by a job for every rule attached to a filter and
+     * every session
+     */
+    public static List<RuleTestJob> matrix(Collection<Rule> rules, Collection<Filter> filters, Collection<Session> sessions) {
+        final List<RuleTestJob> jobs = new ArrayList<>();
+        for (Rule rule : rules) {
+            for (Session session : sessions) {
+                jobs.add(new RuleTestJob(rule, session));
+            }
+        }
+
+        // rules attached to a filter read the filter's output rather than the raw session
+        for (Filter filter : filters) {
+            for (Rule rule : JavaConverters.asJavaCollection(filter.rules())) {
+                for (Session session : sessions) {
+                    jobs.add(new RuleTestJob(rule, session, filter));
+                }
+            }
+        }
+        return jobs;
     }
 }
@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.tasks.reports;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Runs a report's jobs in local worker jvms, one per {@link ShardSpec}, and collects the workers' output directories
+ * for the report's backend to {@link ReportBackend#adopt}.
+ *
+ * A worker is the report's own program started with inspector.report.shard and inspector.report.output set, which
+ * makes both InspectorGUILauncher and InspectorReportLauncher run a headless {@link ReportCli} worker. Unless
+ * inspector.report.worker-command is set, workers are started with this jvm's java binary and exact arguments (its
+ * jvm options, class path, main class and program arguments). Shards can just as well be run on other machines by starting the program there with a shard spec, and
+ * merged afterwards with ReportCli's --merge.
+ */
+@Slf4j
+final class ShardCoordinator {
+
+    /**
+     * Written by every worker next to its results, holding the number of jobs it ran, how many failed, and the verdict
+     * and metrics of each job by name.
+     */
+    static final String SUMMARY_FILE = "shard.json";
+
+    private static final String SHARDS_PREFIX = "inspector-shards";
+
+    private static final long POLL_INTERVAL_MILLIS = 250;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Arguments of this jvm which must not be passed on to its workers, because the coordinator sets them per worker.
+     */
+    private static final List<String> COORDINATOR_ARGUMENTS = List.of(
+            "--shards=", "--shard=", "--output=", "--merge=", "--parallelism=", "--backend=",
+            "--inspector.report.shards=", "--inspector.report.shard=", "--inspector.report.output=",
+            "--inspector.report.parallelism=", "--inspector.report.backend=");
+
+    private ShardCoordinator() {
+    }
+
+    /**
+     * Starts a worker per shard and blocks until all have finished, counting each worker's jobs in the run's progress
+     * as it finishes. Workers are killed if the run is cancelled or a worker fails.
+     *
+     * @return the output directories of the workers, or an empty list if the run was cancelled
+     * @throws IOException if a worker could not be started or could not write its results
+     */
+    @NotNull
+    static List<Path> execute(@NotNull ReportRun run) throws IOException, InterruptedException {
+        final ReportSettings settings = run.getSettings();
+        final int count = settings.getShards();
+        final Path directory = ReportPaths.createOutputPath(SHARDS_PREFIX);
+        final List<String> command = workerCommand(settings);
+
+        final long sessions = run.getJobs().stream().map(RuleTestJob::getSession).distinct().count();
+        if (sessions < count) {
+            log.warn("only {} of {} shards will run jobs, shards are partitioned by session (see ShardSpec)",
+                    sessions, count);
+        }
+
+        run.getProgress().started();
+        final List<Process> workers = new ArrayList<>(count);
+        final List<Path> outputs = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                final ShardSpec shard = new ShardSpec(i, count);
+                final Path output = directory.resolve("shard-" + i).toAbsolutePath();
+
+                final List<String> workerCommand = new ArrayList<>(command);
+                workerCommand.add("--inspector.report.shard=" + shard);
+                workerCommand.add("--inspector.report.output=" + output);
+                workerCommand.add("--inspector.report.parallelism=" + Math.max(1, settings.getParallelism() / count));
+                workerCommand.add("--inspector.report.backend=" + settings.getBackend());
+
+                log.info("starting worker for shard {}: {}", shard, workerCommand);
+                workers.add(new ProcessBuilder(workerCommand)
+                        .redirectErrorStream(true)
+                        .redirectOutput(directory.resolve("shard-" + i + ".log").toFile())
+                        .start());
+                outputs.add(output);
+            }
+
+            final boolean[] finished = new boolean[count];
+            int remaining = count;
+            while (remaining > 0) {
+                if (run.isCancelled()) {
+                    return List.of();
+                }
+                for (int i = 0; i < count; i++) {
+                    if (!finished[i] && !workers.get(i).isAlive()) {
+                        finished[i] = true;
+                        remaining--;
+                        checkExitValue(workers.get(i).exitValue(), new ShardSpec(i, count), directory);
+                        countJobs(outputs.get(i), run);
+                    }
+                }
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            }
+            return outputs;
+        } finally {
+            for (Process worker : workers) {
+                if (worker.isAlive()) {
+                    worker.destroy();
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the jobs of shard outputs in a run's progress and verdicts, for outputs which were produced elsewhere.
+     */
+    static void countJobs(@NotNull List<Path> shardOutputs, @NotNull ReportRun run) throws IOException {
+        for (Path shardOutput : shardOutputs) {
+            countJobs(shardOutput, run);
+        }
+    }
+
+    /**
+     * Called by workers once their results are written.
+     */
+    static void writeSummary(@NotNull Path output, @NotNull ReportRun run) throws IOException {
+        final ObjectNode summary = MAPPER.createObjectNode()
+                .put("jobs", run.getProgress().finishedJobs())
+                .put("failed", run.getProgress().failedJobs());
+        final ObjectNode verdicts = summary.putObject("verdicts");
+        run.getVerdicts().forEach((jobName, verdict) -> verdicts.putObject(jobName)
+                .put("rule", verdict.getRule())
+                .put("session", verdict.getSession())
+                .put("passed", verdict.isPassed()));
+        final ObjectNode metrics = summary.putObject("metrics");
+        run.getMetrics().forEach((jobName, jobMetrics) -> metrics.putObject(jobName)
+                .put("rule", jobMetrics.getRule())
+                .put("msgs_consumed", jobMetrics.getMsgsConsumed())
+                .put("wall_time_nanos", jobMetrics.getWallTimeNanos())
+                .put("busy_time_nanos", jobMetrics.getBusyTimeNanos())
+                .put("peak_lag_nanos", jobMetrics.getPeakLagNanos()));
+        MAPPER.writeValue(output.resolve(SUMMARY_FILE).toFile(), summary);
+    }
+
+    private static void countJobs(Path shardOutput, ReportRun run) throws IOException {
+        final JsonNode summary = MAPPER.readTree(shardOutput.resolve(SUMMARY_FILE).toFile());
+        final long jobs = summary.path("jobs").asLong();
+        final long failed = summary.path("failed").asLong();
+        for (long i = 0; i < jobs; i++) {
+            run.getProgress().jobFinished(i < failed);
+        }
+        summary.path("verdicts").fields().forEachRemaining(verdict -> run.getVerdicts().put(verdict.getKey(),
+                new VerdictHistoryStore.Verdict(verdict.getValue().path("rule").asText(),
+                        verdict.getValue().path("session").asText(),
+                        verdict.getValue().path("passed").asBoolean())));
+        // so the coordinator ranks the cost of every shard's rules, not only of the jobs it ran itself
+        summary.path("metrics").fields().forEachRemaining(metrics -> run.getMetrics().put(metrics.getKey(),
+                new RuleJobMetrics(metrics.getValue().path("rule").asText(),
+                        metrics.getValue().path("msgs_consumed").asLong(),
+                        metrics.getValue().path("wall_time_nanos").asLong(),
+                        metrics.getValue().path("busy_time_nanos").asLong(),
+                        metrics.getValue().path("peak_lag_nanos").asLong())));
+    }
+
+    private static void checkExitValue(int exitValue, ShardSpec shard, Path directory) throws IOException {
+        if (exitValue != ReportCli.EXIT_PASSED && exitValue != ReportCli.EXIT_FAILED) {
+            throw new IOException("worker of shard " + shard + " exited with " + exitValue + ", see "
+                    + directory.resolve("shard-" + shard.getIndex() + ".log"));
+        }
+    }
+
+    @NotNull
+    private static List<String> workerCommand(@NotNull ReportSettings settings) {
+        final String configured = settings.getWorkerCommand();
+        if (configured != null && !configured.isBlank()) {
+            return List.of(configured.trim().split("\\s+"));
+        }
+
+        final ProcessHandle.Info jvm = ProcessHandle.current().info();
+        final List<String> command = new ArrayList<>();
+        command.add(jvm.command().orElse(Path.of(System.getProperty("java.home"), "bin", "java").toString()));
+
+        // this jvm's arguments as the os passed them, so arguments holding whitespace are kept whole
+        final Optional<String[]> arguments = jvm.arguments();
+        if (arguments.isPresent()) {
+            Arrays.stream(arguments.get()).filter(ShardCoordinator::isInherited).forEach(command::add);
+            return command;
+        }
+
+        // otherwise (such as on windows) rebuild them. The main class (or jar) and program arguments are only known from
+        // sun.java.command, which joins them with spaces, so program arguments holding whitespace need worker-command.
+        final String javaCommand = System.getProperty("sun.java.command", "").trim();
+        if (javaCommand.isEmpty()) {
+            throw new IllegalStateException("unable to determine how this jvm was started, "
+                    + "set inspector.report.worker-command to start shard workers");
+        }
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+
+        // a jar started with -jar is the whole class path, and may have whitespace in its path
+        final String classPath = System.getProperty("java.class.path");
+        final String main;
+        if (javaCommand.startsWith(classPath) && classPath.endsWith(".jar")) {
+            main = classPath;
+            command.add("-jar");
+        } else {
+            main = javaCommand.split("\\s+")[0];
+            command.add("-cp");
+            command.add(classPath);
+        }
+        command.add(main);
+
+        final String programArguments = javaCommand.substring(main.length()).trim();
+        if (!programArguments.isEmpty()) {
+            Arrays.stream(programArguments.split("\\s+")).filter(ShardCoordinator::isInherited).forEach(command::add);
+        }
+        return command;
+    }
+
+    /**
+     * @return false for the arguments which the coordinator sets per worker
+     */
+    private static boolean isInherited(@NotNull String argument) {
+        return COORDINATOR_ARGUMENTS.stream().noneMatch(argument::startsWith);
+    }
+
+}
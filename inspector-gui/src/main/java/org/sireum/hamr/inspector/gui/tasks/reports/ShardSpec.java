@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.tasks.reports;
+
+import lombok.Value;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Selects one of count shards of a report's jobs, written as "index/count" (e.g. 0/4).
+ *
+ * Jobs are partitioned by the hash of their session's name only, so every process which builds the same job matrix
+ * agrees on the partition no matter the order of its jobs, and each session is still replayed by a single shard. The
+ * rules of a session are never split across shards: a report spreads over at most as many shards as it has sessions,
+ * and one long session bounds the whole report no matter how many shards it is given.
+ */
+@Value
+public class ShardSpec {
+
+    int index;
+
+    int count;
+
+    public ShardSpec(int index, int count) {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("invalid shard " + index + "/" + count);
+        }
+        this.index = index;
+        this.count = count;
+    }
+
+    @NotNull
+    public static ShardSpec parse(@NotNull String spec) {
+        final int separator = spec.indexOf('/');
+        if (separator < 0) {
+            throw new IllegalArgumentException("shard must be written as index/count, but was " + spec);
+        }
+        return new ShardSpec(Integer.parseInt(spec.substring(0, separator).trim()),
+                Integer.parseInt(spec.substring(separator + 1).trim()));
+    }
+
+    /**
+     * @return true if the job's session belongs to this shard, regardless of the job's rule
+     */
+    public boolean contains(@NotNull RuleTestJob job) {
+        return Math.floorMod(job.getSession().getName().hashCode(), count) == index;
+    }
+
+    /**
+     * @return the jobs of this shard, in their original order
+     */
+    @NotNull
+    public List<RuleTestJob> select(@NotNull List<RuleTestJob> jobs) {
+        return jobs.stream().filter(this::contains).collect(Collectors.toUnmodifiableList());
+    }
+
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+
+}
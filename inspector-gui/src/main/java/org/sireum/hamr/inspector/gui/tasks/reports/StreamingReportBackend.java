@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.tasks.reports;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.sireum.hamr.inspector.common.Filter;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs the report's jobs directly (without the junit platform) and streams each verdict to disk as soon as its job
+ * finishes. Writes a junit xml report (junit.xml), one json object per verdict (verdicts.jsonl) and, once every job has
+ * finished, the totals and the most expensive rules (summary.json) and every rule's cost (rule-costs.csv).
+ *
+ * Because the totals are not known while streaming, junit.xml's testsuite element carries no counts. CI tools derive
+ * them from the testcases.
+ */
+@Slf4j
+final class StreamingReportBackend implements ReportBackend {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String OUTPUT_PREFIX = "inspector-report";
+    private static final int MOST_EXPENSIVE_RULES = 10;
+
+    private Path outputPath = null;
+
+    private XMLStreamWriter junitXml = null;
+    private Writer junitXmlFile = null;
+    private Writer verdicts = null;
+
+    private int passed = 0;
+    private int failed = 0;
+    private int cached = 0;
+
+    @Override
+    public void prepare(@NotNull ReportRun run) throws IOException, XMLStreamException {
+        final Path outputDirectory = run.getSettings().getOutputDirectory();
+        outputPath = run.getSettings().getShard() != null && outputDirectory != null
+                ? Files.createDirectories(outputDirectory)
+                : ReportPaths.createOutputPath(OUTPUT_PREFIX);
+
+        junitXmlFile = Files.newBufferedWriter(outputPath.resolve("junit.xml"), StandardCharsets.UTF_8);
+        junitXml = XMLOutputFactory.newFactory().createXMLStreamWriter(junitXmlFile);
+        junitXml.writeStartDocument("UTF-8", "1.0");
+        junitXml.writeCharacters("\n");
+        junitXml.writeStartElement("testsuite");
+        junitXml.writeAttribute("name", "inspector");
+        junitXml.writeCharacters("\n");
+
+        verdicts = Files.newBufferedWriter(outputPath.resolve("verdicts.jsonl"), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void execute(@NotNull ReportRun run) {
+        Objects.requireNonNull(outputPath, "prepare() must be called before execute()");
+        log.debug("executing jobs and streaming verdicts to {}", outputPath);
+
+        final List<RuleTestJob> jobs = run.getJobs();
+        final CompletableFuture<?>[] recorded = new CompletableFuture<?>[jobs.size()];
+
+        run.getProgress().started();
+        final RuleJobScheduler scheduler = run.schedule();
+        try {
+            for (int i = 0; i < jobs.size(); i++) {
+                final RuleTestJob job = jobs.get(i);
+                recorded[i] = scheduler.outcome(i).handle((ignored, failure) -> {
+                    if (!run.isCancelled()) {
+                        record(job, failure, run.getResultStore().isCached(job.getName()),
+                                run.getMetrics().get(job.getName()));
+                        run.getProgress().jobFinished(failure != null);
+                    }
+                    return null;
+                });
+            }
+            CompletableFuture.allOf(recorded).join();
+        } finally {
+            scheduler.dispose();
+            if (run.isCancelled()) {
+                abandon();
+            }
+        }
+    }
+
+    /**
+     * Appends each shard's testcases, verdicts and totals to this report.
+     */
+    @Override
+    public synchronized void adopt(@NotNull ReportRun run, @NotNull List<Path> shardOutputs)
+            throws IOException, XMLStreamException {
+        Objects.requireNonNull(outputPath, "prepare() must be called before adopt()");
+        for (Path shardOutput : shardOutputs) {
+            log.debug("merging shard results from {}", shardOutput);
+
+            try (Reader shardJunitXml = Files.newBufferedReader(shardOutput.resolve("junit.xml"), StandardCharsets.UTF_8)) {
+                copyTestCases(XMLInputFactory.newFactory().createXMLStreamReader(shardJunitXml));
+            }
+            junitXml.flush();
+
+            try (BufferedReader shardVerdicts =
+                         Files.newBufferedReader(shardOutput.resolve("verdicts.jsonl"), StandardCharsets.UTF_8)) {
+                shardVerdicts.transferTo(verdicts);
+            }
+            verdicts.flush();
+
+            final JsonNode shardSummary = MAPPER.readTree(shardOutput.resolve("summary.json").toFile());
+            passed += shardSummary.path("passed").asInt();
+            failed += shardSummary.path("failed").asInt();
+            cached += shardSummary.path("cached").asInt();
+        }
+    }
+
+    /**
+     * Copies every element below the root testsuite element of a junit xml report into this report's testsuite.
+     */
+    private void copyTestCases(XMLStreamReader reader) throws XMLStreamException {
+        try {
+            int depth = 0;
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamReader.START_ELEMENT:
+                        depth++;
+                        if (depth > 1) {
+                            if (depth == 2) {
+                                junitXml.writeCharacters("  ");
+                            }
+                            junitXml.writeStartElement(reader.getLocalName());
+                            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                                junitXml.writeAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+                            }
+                        }
+                        break;
+                    case XMLStreamReader.END_ELEMENT:
+                        if (depth > 1) {
+                            junitXml.writeEndElement();
+                            if (depth == 2) {
+                                junitXml.writeCharacters("\n");
+                            }
+                        }
+                        depth--;
+                        break;
+                    case XMLStreamReader.CDATA:
+                        if (depth > 1) {
+                            writeCData(reader.getText());
+                        }
+                        break;
+                    case XMLStreamReader.CHARACTERS:
+                        if (depth > 1 && !reader.isWhiteSpace()) {
+                            junitXml.writeCharacters(reader.getText());
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Closes the partially written report of a cancelled run, generate() is not called for it.
+     */
+    private synchronized void abandon() {
+        try {
+            junitXml.close();
+            junitXmlFile.close();
+            verdicts.close();
+        } catch (IOException | XMLStreamException e) {
+            log.warn("unable to close cancelled report {}", outputPath, e);
+        }
+    }
+
+    @NotNull
+    @Override
+    public Path generate(@NotNull ReportRun run) throws IOException, XMLStreamException {
+        Objects.requireNonNull(outputPath, "prepare() must be called before generate()");
+
+        junitXml.writeEndElement();
+        junitXml.writeEndDocument();
+        junitXml.close();
+        junitXmlFile.close();
+        verdicts.close();
+
+        final ObjectNode summary = MAPPER.createObjectNode()
+                .put("tests", passed + failed)
+                .put("passed", passed)
+                .put("failed", failed)
+                .put("cached", cached);
+
+        // the rules which cost the most to test, the full ranking is in rule-costs.csv
+        final List<RuleCostSummary.RuleCost> costs = RuleCostSummary.rank(run);
+        final ArrayNode mostExpensive = summary.putArray("most_expensive_rules");
+        for (RuleCostSummary.RuleCost cost : costs.subList(0, Math.min(MOST_EXPENSIVE_RULES, costs.size()))) {
+            mostExpensive.addObject()
+                    .put("rule", cost.getRule())
+                    .put("sessions", cost.getJobs())
+                    .put("busy_time_ms", cost.getBusyTime().toMillis())
+                    .put("wall_time_ms", cost.getWallTime().toMillis())
+                    .put("msgs_consumed", cost.getMsgsConsumed())
+                    .put("peak_lag_ms", cost.getPeakLag().toMillis());
+        }
+        MAPPER.writerWithDefaultPrettyPrinter().writeValue(outputPath.resolve("summary.json").toFile(), summary);
+        RuleCostSummary.writeCsv(outputPath.resolve("rule-costs.csv"), costs);
+
+        log.info("Report written to {}: {} passed, {} failed ({} cached)", outputPath, passed, failed, cached);
+        if (run.getSettings().getShard() == null) {
+            ReportPaths.retain(OUTPUT_PREFIX, run.getSettings().getRetainedRuns());
+        }
+        return outputPath;
+    }
+
+    // outcomes complete on the scheduler's threads, so writes are serialized here
+    private synchronized void record(@NotNull RuleTestJob job, @Nullable Throwable failure, boolean isCached,
+                                     @Nullable RuleJobMetrics metrics) {
+        if (failure == null) {
+            passed++;
+        } else {
+            failed++;
+        }
+        if (isCached) {
+            cached++;
+        }
+
+        try {
+            writeTestCase(job, failure);
+            writeVerdict(job, failure, isCached, metrics);
+        } catch (IOException | XMLStreamException e) {
+            log.error("Failed to record the verdict of {}", job.getName(), e);
+        }
+    }
+
+    /**
+     * Writes text as CDATA, which cannot hold "]]>" itself, so that is split across two sections.
+     */
+    private void writeCData(@NotNull String text) throws XMLStreamException {
+        junitXml.writeCData(text.replace("]]>", "]]]]><![CDATA[>"));
+    }
+
+    private void writeTestCase(@NotNull RuleTestJob job, @Nullable Throwable failure)
+            throws XMLStreamException, IOException {
+        junitXml.writeCharacters("  ");
+        if (failure == null) {
+            junitXml.writeEmptyElement("testcase");
+            writeTestCaseAttributes(job);
+        } else {
+            junitXml.writeStartElement("testcase");
+            writeTestCaseAttributes(job);
+            junitXml.writeStartElement("failure");
+            junitXml.writeAttribute("message", String.valueOf(failure.getMessage()));
+            junitXml.writeAttribute("type", failure.getClass().getName());
+            writeCData(ExceptionUtils.getStackTrace(failure));
+            junitXml.writeEndElement();
+            junitXml.writeEndElement();
+        }
+        junitXml.writeCharacters("\n");
+        junitXml.flush();
+        junitXmlFile.flush();
+    }
+
+    private void writeTestCaseAttributes(@NotNull RuleTestJob job) throws XMLStreamException {
+        junitXml.writeAttribute("classname", job.getRule().name());
+        junitXml.writeAttribute("name", job.getName());
+    }
+
+    private void writeVerdict(@NotNull RuleTestJob job, @Nullable Throwable failure, boolean isCached,
+                              @Nullable RuleJobMetrics metrics)
+            throws IOException {
+        final ObjectNode verdict = MAPPER.createObjectNode()
+                .put("rule", job.getRule().name())
+                .put("session", job.getSession().getName())
+                .put("status", failure == null ? "passed" : "failed")
+                .put("cached", isCached);
+
+        final Filter filter = job.getFilter();
+        if (filter != null) {
+            verdict.put("filter", filter.toString());
+        }
+        if (metrics != null) {
+            verdict.put("msgs_consumed", metrics.getMsgsConsumed())
+                    .put("busy_time_ms", metrics.getBusyTime().toMillis())
+                    .put("wall_time_ms", metrics.getWallTime().toMillis())
+                    .put("peak_lag_ms", metrics.getPeakLag().toMillis())
+                    .put("msgs_per_second", metrics.getMsgsPerSecond());
+        }
+        if (failure != null) {
+            verdict.put("message", failure.toString());
+            verdict.put("trace", ExceptionUtils.getStackTrace(failure));
+        }
+
+        verdicts.write(MAPPER.writeValueAsString(verdict));
+        verdicts.write('\n');
+        verdicts.flush();
+    }
+
+}
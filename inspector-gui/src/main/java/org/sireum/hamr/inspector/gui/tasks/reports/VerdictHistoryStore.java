@@ -0,0 +1,521 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.tasks.reports;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * An embedded, append-only store of every verdict recorded by earlier reports, indexed by rule, (rule, session) and
+ * run. Trend queries such as {@link #failingSince} only walk the in-memory index of the rule they ask about, so they
+ * stay fast no matter how many runs are stored.
+ *
+ * The store is a directory of three files, each only ever appended to:
+ * <ul>
+ *     <li>{@value #NAMES_FILE}, one json string per line. A name's id is its line number, so verdicts refer to rules
+ *     and sessions by id.</li>
+ *     <li>{@value #VERDICTS_FILE}, fixed-size binary records of (run, rule, session, passed, cached, wall time).</li>
+ *     <li>{@value #RUNS_FILE}, one json object per run, appended after the run's verdicts. Verdicts of a run missing
+ *     from it (a report which crashed while recording) are ignored.</li>
+ * </ul>
+ *
+ * A report which crashed while recording may also leave a partially written line or record at the end of any file.
+ * Loads ignore it, and the next run cuts it off before appending its own, so every later line and record stays
+ * aligned. A store with any other unreadable content is still read as far as possible, but is never appended to.
+ *
+ * The index is read the first time the store is used, so constructing a store is cheap. A store is only written by
+ * the jvm generating a report, never by shard workers, so the files need no locking.
+ */
+@Slf4j
+public final class VerdictHistoryStore {
+
+    static final String NAMES_FILE = "names.jsonl";
+    static final String VERDICTS_FILE = "verdicts.bin";
+    static final String RUNS_FILE = "runs.jsonl";
+
+    // run, rule and session ids, passed and cached flags, two bytes of padding and the wall time in nanos
+    static final int RECORD_SIZE = 4 + 4 + 4 + 1 + 1 + 2 + 8;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @NotNull
+    private final Path directory;
+
+    // null until load()
+    private List<String> names = null;
+    private Map<String, Integer> idsByName = null;
+    private List<StoredRun> runs = null;
+    private Map<Integer, Timeline> timelinesByRule = null;
+    private Map<Long, Timeline> timelinesByRuleSession = null;
+    // above every run id in the verdicts file, including runs which crashed before they were recorded in the runs file
+    private int nextRunId = 1;
+    // the length of each file without its partially written tail, until record() cuts the tails off
+    private final Map<String, Long> completeLengths = new HashMap<>();
+    // why the store could not be read, if it could not
+    @Nullable
+    private IOException loadFailure = null;
+
+    public VerdictHistoryStore(@NotNull Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * A report run recorded in the store. Ids count up from 1 in the order runs were recorded.
+     */
+    @Value
+    public static class StoredRun {
+        int id;
+        Instant start;
+        Instant stop;
+        int passed;
+        int failed;
+    }
+
+    /**
+     * The verdict of a single (rule, session) job.
+     */
+    @Value
+    public static class Verdict {
+        String rule;
+        String session;
+        boolean passed;
+    }
+
+    /**
+     * Appends the verdicts of a finished run to the store.
+     *
+     * @return the stored run
+     * @throws IOException if the store cannot be written, or could not be read (appending to it would misnumber the
+     * new run's names and verdicts)
+     */
+    @NotNull
+    public synchronized StoredRun record(@NotNull ReportRun run, @NotNull Instant start, @NotNull Instant stop)
+            throws IOException {
+        load();
+        if (loadFailure != null) {
+            throw new IOException("refusing to append to the unreadable verdict history in " + directory, loadFailure);
+        }
+        Files.createDirectories(directory);
+        truncateTails();
+
+        final int runId = nextRunId++;
+        final List<String> newNames = new ArrayList<>();
+        final ByteArrayRecords records = new ByteArrayRecords(run.getVerdicts().size());
+        int passed = 0;
+        int failed = 0;
+        for (Map.Entry<String, Verdict> entry : run.getVerdicts().entrySet()) {
+            final Verdict verdict = entry.getValue();
+            final int rule = idOf(verdict.getRule(), newNames);
+            final int session = idOf(verdict.getSession(), newNames);
+            // cached jobs have no metrics, merged shard jobs were never answered from this jvm's result store
+            final RuleJobMetrics metrics = run.getMetrics().get(entry.getKey());
+            final boolean cached = run.getResultStore().isCached(entry.getKey());
+            records.add(runId, rule, session, verdict.isPassed(), cached,
+                    metrics == null ? 0 : metrics.getWallTimeNanos());
+            index(runId, rule, session, verdict.isPassed());
+            if (verdict.isPassed()) {
+                passed++;
+            } else {
+                failed++;
+            }
+        }
+
+        try (BufferedWriter writer = append(NAMES_FILE)) {
+            for (String name : newNames) {
+                writer.write(MAPPER.writeValueAsString(name));
+                writer.write('\n');
+            }
+        }
+        Files.write(directory.resolve(VERDICTS_FILE), records.toByteArray(),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
+        // written last, this line is what makes the run's verdicts visible to later loads
+        final StoredRun storedRun = new StoredRun(runId, start, stop, passed, failed);
+        try (BufferedWriter writer = append(RUNS_FILE)) {
+            writer.write(MAPPER.writeValueAsString(MAPPER.createObjectNode()
+                    .put("id", runId)
+                    .put("start", start.toEpochMilli())
+                    .put("stop", stop.toEpochMilli())
+                    .put("passed", passed)
+                    .put("failed", failed)));
+            writer.write('\n');
+        }
+        runs.add(storedRun);
+
+        log.debug("recorded {} verdicts of run {} in {}", passed + failed, runId, directory);
+        return storedRun;
+    }
+
+    /**
+     * @return the first run of the rule's current streak of failures (in any session), or empty if the rule passed
+     * in the newest run which tested it, or was never tested
+     */
+    @NotNull
+    public synchronized Optional<StoredRun> failingSince(@NotNull String rule) {
+        load();
+        final Integer ruleId = idsByName.get(rule);
+        return ruleId == null ? Optional.empty() : failingSince(timelinesByRule.get(ruleId));
+    }
+
+    /**
+     * @return the first run of the rule's current streak of failures in the session, or empty if it passed in the
+     * newest run which tested it against the session, or was never tested against it
+     */
+    @NotNull
+    public synchronized Optional<StoredRun> failingSince(@NotNull String rule, @NotNull String session) {
+        load();
+        final Integer ruleId = idsByName.get(rule);
+        final Integer sessionId = idsByName.get(session);
+        if (ruleId == null || sessionId == null) {
+            return Optional.empty();
+        }
+        return failingSince(timelinesByRuleSession.get(key(ruleId, sessionId)));
+    }
+
+    /**
+     * @return every stored run, oldest first
+     */
+    @NotNull
+    public synchronized List<StoredRun> runs() {
+        load();
+        return List.copyOf(runs);
+    }
+
+    /**
+     * Writes allure's history.json and history-trend.json from the stored runs, in the format allure's history and
+     * trend plugins read from a results directory. Tests are identified by their rule name, the history id
+     * {@link CustomResultsWriter} gives them.
+     *
+     * @param historyDirectory the history directory of an allure results directory
+     * @param depth how many of the newest runs are written
+     */
+    public synchronized void writeAllureHistory(@NotNull Path historyDirectory, int depth) throws IOException {
+        load();
+        Files.createDirectories(historyDirectory);
+
+        final ObjectNode history = MAPPER.createObjectNode();
+        timelinesByRule.forEach((ruleId, timeline) -> {
+            final ArrayNode items = MAPPER.createArrayNode();
+            final int[] statistic = new int[2];
+            for (int i = timeline.size - 1; i >= Math.max(0, timeline.size - depth); i--) {
+                final StoredRun run = runById(timeline.runs[i]);
+                if (run == null) {
+                    continue;
+                }
+                final boolean passed = timeline.failed[i] == 0;
+                statistic[passed ? 0 : 1]++;
+                items.add(MAPPER.createObjectNode()
+                        .put("uid", "run-" + run.getId())
+                        .put("status", passed ? "passed" : "failed")
+                        .set("time", time(run)));
+            }
+            history.set(names.get(ruleId), MAPPER.createObjectNode()
+                    .<ObjectNode>set("statistic", statistic(statistic[0], statistic[1]))
+                    .set("items", items));
+        });
+
+        final ArrayNode trend = MAPPER.createArrayNode();
+        for (int i = runs.size() - 1; i >= Math.max(0, runs.size() - depth); i--) {
+            final StoredRun run = runs.get(i);
+            trend.add(MAPPER.createObjectNode()
+                    .put("buildOrder", run.getId())
+                    .put("reportName", "run " + run.getId())
+                    .set("data", statistic(run.getPassed(), run.getFailed())));
+        }
+
+        MAPPER.writeValue(historyDirectory.resolve("history.json").toFile(), history);
+        MAPPER.writeValue(historyDirectory.resolve("history-trend.json").toFile(), trend);
+    }
+
+    private static ObjectNode statistic(int passed, int failed) {
+        return MAPPER.createObjectNode()
+                .put("failed", failed)
+                .put("broken", 0)
+                .put("skipped", 0)
+                .put("passed", passed)
+                .put("unknown", 0)
+                .put("total", passed + failed);
+    }
+
+    private static ObjectNode time(StoredRun run) {
+        return MAPPER.createObjectNode()
+                .put("start", run.getStart().toEpochMilli())
+                .put("stop", run.getStop().toEpochMilli())
+                .put("duration", run.getStop().toEpochMilli() - run.getStart().toEpochMilli());
+    }
+
+    private Optional<StoredRun> failingSince(@Nullable Timeline timeline) {
+        if (timeline == null || timeline.size == 0 || timeline.failed[timeline.size - 1] == 0) {
+            return Optional.empty();
+        }
+        int first = timeline.size - 1;
+        while (first > 0 && timeline.failed[first - 1] > 0) {
+            first--;
+        }
+        return Optional.ofNullable(runById(timeline.runs[first]));
+    }
+
+    @Nullable
+    private StoredRun runById(int id) {
+        // ids are ascending but runs which crashed while recording leave gaps, so search instead of indexing
+        int low = 0;
+        int high = runs.size() - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int midId = runs.get(mid).getId();
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return runs.get(mid);
+            }
+        }
+        return null;
+    }
+
+    private int idOf(String name, List<String> newNames) {
+        final Integer existing = idsByName.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        final int id = names.size();
+        names.add(name);
+        idsByName.put(name, id);
+        newNames.add(name);
+        return id;
+    }
+
+    private void index(int run, int rule, int session, boolean passed) {
+        timelinesByRule.computeIfAbsent(rule, r -> new Timeline()).add(run, passed);
+        timelinesByRuleSession.computeIfAbsent(key(rule, session), k -> new Timeline()).add(run, passed);
+    }
+
+    private static long key(int rule, int session) {
+        return ((long) rule << 32) | (session & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Cuts off what a crashed report left partially written at the end of each file.
+     */
+    private void truncateTails() throws IOException {
+        for (Map.Entry<String, Long> entry : completeLengths.entrySet()) {
+            try (FileChannel channel = FileChannel.open(directory.resolve(entry.getKey()), StandardOpenOption.WRITE)) {
+                if (channel.size() > entry.getValue()) {
+                    log.warn("Truncating the partially written tail of {} in {}", entry.getKey(), directory);
+                    channel.truncate(entry.getValue());
+                }
+            }
+        }
+        completeLengths.clear();
+    }
+
+    private BufferedWriter append(String file) throws IOException {
+        return Files.newBufferedWriter(directory.resolve(file), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Reads the store's files into the index, once.
+     */
+    private void load() {
+        if (names != null) {
+            return;
+        }
+        names = new ArrayList<>();
+        idsByName = new HashMap<>();
+        runs = new ArrayList<>();
+        timelinesByRule = new HashMap<>();
+        timelinesByRuleSession = new HashMap<>();
+
+        try {
+            readLines(NAMES_FILE, line -> {
+                final String name = MAPPER.readValue(line, String.class);
+                idsByName.put(name, names.size());
+                names.add(name);
+            });
+            readLines(RUNS_FILE, line -> {
+                final JsonNode run = MAPPER.readTree(line);
+                nextRunId = Math.max(nextRunId, run.path("id").asInt() + 1);
+                runs.add(new StoredRun(run.path("id").asInt(),
+                        Instant.ofEpochMilli(run.path("start").asLong()),
+                        Instant.ofEpochMilli(run.path("stop").asLong()),
+                        run.path("passed").asInt(),
+                        run.path("failed").asInt()));
+            });
+            readVerdicts();
+        } catch (IOException e) {
+            // whatever was read is still queried, but record() must not number new names and runs after it
+            log.warn("Unable to read verdict history in {}, no runs will be recorded in it", directory, e);
+            loadFailure = e;
+        }
+        log.debug("loaded {} runs of verdict history from {}", runs.size(), directory);
+    }
+
+    private void readVerdicts() throws IOException {
+        final Path file = directory.resolve(VERDICTS_FILE);
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        final long records = Files.size(file) / RECORD_SIZE; // ignores a partially written trailing record
+        completeLengths.put(VERDICTS_FILE, records * RECORD_SIZE);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            for (long i = 0; i < records; i++) {
+                final int run = in.readInt();
+                final int rule = in.readInt();
+                final int session = in.readInt();
+                final boolean passed = in.readBoolean();
+                // the cached flag, padding and wall time are not indexed
+                in.readBoolean();
+                in.readShort();
+                in.readLong();
+                nextRunId = Math.max(nextRunId, run + 1);
+                if (runById(run) != null && rule < names.size() && session < names.size()) {
+                    index(run, rule, session, passed);
+                }
+            }
+        } catch (EOFException e) {
+            log.warn("Verdict history {} ended early", file);
+        }
+    }
+
+    @FunctionalInterface
+    private interface LineReader {
+        void read(String line) throws IOException;
+    }
+
+    /**
+     * Reads every complete line of the file, ignoring a trailing line which was never ended.
+     */
+    private void readLines(String fileName, LineReader reader) throws IOException {
+        final Path file = directory.resolve(fileName);
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        final byte[] bytes = Files.readAllBytes(file);
+        int completeLength = bytes.length;
+        while (completeLength > 0 && bytes[completeLength - 1] != '\n') {
+            completeLength--;
+        }
+        completeLengths.put(fileName, (long) completeLength);
+
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(bytes, 0, completeLength), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (!line.isBlank()) {
+                    reader.read(line);
+                }
+            }
+        }
+    }
+
+    /**
+     * The runs which tested a rule (or a rule against one session), oldest first, with how many of the run's
+     * verdicts passed and failed. Kept as growable primitive arrays, one entry per run.
+     */
+    private static final class Timeline {
+
+        private int[] runs = new int[8];
+        private int[] passed = new int[8];
+        private int[] failed = new int[8];
+        private int size = 0;
+
+        void add(int run, boolean verdict) {
+            if (size == 0 || runs[size - 1] != run) {
+                if (size == runs.length) {
+                    runs = Arrays.copyOf(runs, size * 2);
+                    passed = Arrays.copyOf(passed, size * 2);
+                    failed = Arrays.copyOf(failed, size * 2);
+                }
+                runs[size] = run;
+                passed[size] = 0;
+                failed[size] = 0;
+                size++;
+            }
+            if (verdict) {
+                passed[size - 1]++;
+            } else {
+                failed[size - 1]++;
+            }
+        }
+    }
+
+    /**
+     * Encodes verdict records in memory, so a run's records are appended with a single write.
+     */
+    private static final class ByteArrayRecords {
+
+        private final ByteArrayOutputStream bytes;
+        private final DataOutputStream out;
+
+        ByteArrayRecords(int expected) {
+            bytes = new ByteArrayOutputStream(Math.max(1, expected) * RECORD_SIZE);
+            out = new DataOutputStream(new BufferedOutputStream(bytes));
+        }
+
+        void add(int run, int rule, int session, boolean passed, boolean cached, long wallTimeNanos) throws IOException {
+            out.writeInt(run);
+            out.writeInt(rule);
+            out.writeInt(session);
+            out.writeBoolean(passed);
+            out.writeBoolean(cached);
+            out.writeShort(0);
+            out.writeLong(wallTimeNanos);
+        }
+
+        byte[] toByteArray() throws IOException {
+            out.flush();
+            return bytes.toByteArray();
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RowTreeTest {
+
+    // checks every prefix sum and every row's index against a plain list of the same values
+    private static void assertMatches(List<Long> values, RowTree tree) {
+        assertEquals(values.size(), tree.size());
+        long sum = 0;
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(sum, tree.prefixSum(i), "prefix sum of " + i);
+            for (long row = sum; row < sum + values.get(i); row++) {
+                assertEquals(i, tree.indexOf(row), "index of row " + row);
+            }
+            sum += values.get(i);
+        }
+        assertEquals(sum, tree.total());
+    }
+
+    @Test
+    void appendsGrowPastTheInitialCapacity() {
+        final RowTree tree = new RowTree(1);
+        final List<Long> values = new ArrayList<>();
+        for (long value = 1; value <= 100; value++) {
+            tree.append(value % 3 + 1);
+            values.add(value % 3 + 1);
+            assertMatches(values, tree);
+        }
+    }
+
+    @Test
+    void addsMatchAPlainList() {
+        final Random random = new Random(49);
+        final RowTree tree = new RowTree(2);
+        final List<Long> values = new ArrayList<>();
+
+        for (int step = 0; step < 5000; step++) {
+            if (values.isEmpty() || random.nextInt(3) == 0) {
+                final long value = 1 + random.nextInt(5);
+                tree.append(value);
+                values.add(value);
+            } else {
+                // like expanding or collapsing a run, which never leaves it without a row
+                final int i = random.nextInt(values.size());
+                final long delta = Math.max(1 - values.get(i), random.nextInt(5) - 2);
+                tree.add(i, delta);
+                values.set(i, values.get(i) + delta);
+            }
+
+            if (step % 97 == 0) {
+                assertMatches(values, tree);
+            }
+        }
+        assertMatches(values, tree);
+    }
+
+    @Test
+    void chunkedRunGrowthMatchesAppendingAtOnce() {
+        // the last run of a list grows a chunk at a time while it is expanded
+        final RowTree chunked = new RowTree(1);
+        chunked.append(1);
+        chunked.append(1);
+        for (int chunk = 0; chunk < 10; chunk++) {
+            chunked.add(1, 1);
+        }
+        chunked.append(1);
+
+        assertMatches(List.of(1L, 11L, 1L), chunked);
+    }
+
+}
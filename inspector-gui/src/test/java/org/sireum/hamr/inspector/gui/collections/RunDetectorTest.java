@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RunDetectorTest {
+
+    /**
+     * A msg as far as run detection is concerned.
+     */
+    private static final class Sent {
+        final String src;
+        final String dst;
+        final long timestamp;
+
+        Sent(String src, String dst, long timestamp) {
+            this.src = src;
+            this.dst = dst;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private static List<Sent> connections(String... srcDsts) {
+        final List<Sent> sent = new ArrayList<>();
+        for (String srcDst : srcDsts) {
+            sent.add(new Sent(srcDst.substring(0, 1), srcDst.substring(1), 10L * sent.size()));
+        }
+        return sent;
+    }
+
+    // appends the msgs in chunks of the given sizes, the way the backing list reports them
+    private static RunDetector feed(List<Sent> sent, int... chunkSizes) {
+        final RunDetector runs = new RunDetector(1);
+        int from = 0;
+        for (int chunkSize : chunkSizes) {
+            for (int i = from; i < from + chunkSize; i++) {
+                final Sent msg = sent.get(i);
+                runs.append(msg.src, msg.dst, msg.timestamp);
+            }
+            from += chunkSize;
+            assertEquals(from, runs.msgCount());
+        }
+        assertEquals(sent.size(), from);
+        return runs;
+    }
+
+    private static List<String> describe(RunDetector runs) {
+        final List<String> described = new ArrayList<>();
+        for (int run = 0; run < runs.runCount(); run++) {
+            described.add(runs.startOf(run) + "x" + runs.countOf(run)
+                    + "@" + runs.firstTimestampOf(run) + "-" + runs.lastTimestampOf(run));
+        }
+        return described;
+    }
+
+    @Test
+    void runsContinueAcrossChunkBoundaries() {
+        final List<Sent> sent = connections("ab", "ab", "ab", "ab", "ba", "ba", "ba", "ab", "ab");
+        final RunDetector runs = feed(sent, 3, 2, 1, 2, 1);
+
+        assertEquals(List.of("0x4@0-30", "4x3@40-60", "7x2@70-80"), describe(runs));
+    }
+
+    @Test
+    void singleMsgChunksStillStartRuns() {
+        final List<Sent> sent = connections("ab", "ac", "ac", "bc");
+        final RunDetector runs = feed(sent, 1, 1, 1, 1);
+
+        assertEquals(List.of("0x1@0-0", "1x2@10-20", "3x1@30-30"), describe(runs));
+    }
+
+    @Test
+    void chunkingNeverChangesTheRuns() {
+        final Random random = new Random(49);
+        final String[] srcDsts = {"ab", "ba", "ac"};
+        final String[] sequence = new String[5000];
+        for (int i = 0; i < sequence.length; i++) {
+            // mostly repeats, so there are long runs to split
+            sequence[i] = i > 0 && random.nextInt(4) > 0 ? sequence[i - 1] : srcDsts[random.nextInt(srcDsts.length)];
+        }
+        final List<Sent> sent = connections(sequence);
+
+        final List<String> expected = describe(feed(sent, sent.size()));
+
+        final int[] singles = new int[sent.size()];
+        Arrays.fill(singles, 1);
+        assertEquals(expected, describe(feed(sent, singles)));
+
+        final List<Integer> randomSizes = new ArrayList<>();
+        for (int remaining = sent.size(); remaining > 0; ) {
+            final int chunkSize = Math.min(remaining, 1 + random.nextInt(300));
+            randomSizes.add(chunkSize);
+            remaining -= chunkSize;
+        }
+        assertEquals(expected, describe(feed(sent, randomSizes.stream().mapToInt(Integer::intValue).toArray())));
+    }
+
+    @Test
+    void mergedChunksMatchSingleMsgs() {
+        final List<Sent> sent = connections("ab", "ab", "ab", "ba", "ab", "ab", "ab", "ab", "ac");
+
+        // chunks of 4, each already merged into its segments of same-port msgs
+        final RunDetector runs = new RunDetector(1);
+        for (int from = 0; from < sent.size(); from += 4) {
+            int start = from;
+            for (int i = from + 1; i <= Math.min(from + 4, sent.size()); i++) {
+                if (i == Math.min(from + 4, sent.size()) || !sent.get(i).src.equals(sent.get(start).src)
+                        || !sent.get(i).dst.equals(sent.get(start).dst)) {
+                    runs.append(sent.get(start).src, sent.get(start).dst, i - start,
+                            sent.get(start).timestamp, sent.get(i - 1).timestamp);
+                    start = i;
+                }
+            }
+        }
+
+        assertEquals(sent.size(), runs.msgCount());
+        assertEquals(describe(feed(sent, sent.size())), describe(runs));
+        assertEquals(List.of("0x3@0-20", "3x1@30-30", "4x4@40-70", "8x1@80-80"), describe(runs));
+    }
+
+    @Test
+    void runOfFindsTheRunHoldingAnIndex() {
+        final RunDetector runs = feed(connections("ab", "ab", "ba", "ab", "ab", "ab"), 6);
+
+        assertEquals(List.of(0, 0, 1, 2, 2, 2), List.of(runs.runOf(0), runs.runOf(1), runs.runOf(2),
+                runs.runOf(3), runs.runOf(4), runs.runOf(5)));
+        assertEquals(-1, new RunDetector(1).runOf(0));
+    }
+
+}
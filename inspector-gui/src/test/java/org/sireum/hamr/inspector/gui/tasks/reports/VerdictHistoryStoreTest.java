@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.sireum.hamr.inspector.gui.tasks.reports;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerdictHistoryStoreTest {
+
+    @TempDir
+    Path directory;
+
+    // a finished run whose only results are its verdicts, each given as "rule@session" and whether it passed
+    private static ReportRun run(Object... rulesAtSessionsAndVerdicts) {
+        final ReportRun run = new ReportRun(List.of(), null, null, null, new RuleResultStore(null),
+                new ReportProgressListener(0), null, null);
+        for (int i = 0; i < rulesAtSessionsAndVerdicts.length; i += 2) {
+            final String[] ruleAtSession = ((String) rulesAtSessionsAndVerdicts[i]).split("@");
+            run.getVerdicts().put(ruleAtSession[0] + " @ " + ruleAtSession[1], new VerdictHistoryStore.Verdict(
+                    ruleAtSession[0], ruleAtSession[1], (Boolean) rulesAtSessionsAndVerdicts[i + 1]));
+        }
+        return run;
+    }
+
+    private static VerdictHistoryStore.StoredRun record(VerdictHistoryStore store, ReportRun run) throws IOException {
+        return store.record(run, Instant.ofEpochMilli(1000), Instant.ofEpochMilli(2000));
+    }
+
+    private static List<Integer> runIds(VerdictHistoryStore store) {
+        return store.runs().stream().map(VerdictHistoryStore.StoredRun::getId).collect(Collectors.toList());
+    }
+
+    private static Optional<Integer> failingSince(VerdictHistoryStore store, String rule, String session) {
+        return store.failingSince(rule, session).map(VerdictHistoryStore.StoredRun::getId);
+    }
+
+    private void append(String file, String text) throws IOException {
+        Files.write(directory.resolve(file), text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+
+    @Test
+    void failingStreaksSurviveReopening() throws IOException {
+        final VerdictHistoryStore store = new VerdictHistoryStore(directory);
+        record(store, run("a@s1", true, "b@s1", true));
+        record(store, run("a@s1", false, "b@s1", true));
+        record(store, run("a@s1", false, "a@s2", true, "b@s1", false));
+
+        final VerdictHistoryStore reopened = new VerdictHistoryStore(directory);
+        for (VerdictHistoryStore s : List.of(store, reopened)) {
+            assertEquals(List.of(1, 2, 3), runIds(s));
+            assertEquals(Optional.of(2), failingSince(s, "a", "s1"));
+            assertEquals(Optional.empty(), failingSince(s, "a", "s2"));
+            assertEquals(Optional.of(3), failingSince(s, "b", "s1"));
+            assertEquals(Optional.of(2), s.failingSince("a").map(VerdictHistoryStore.StoredRun::getId));
+            assertEquals(Optional.empty(), s.failingSince("c"));
+        }
+    }
+
+    @Test
+    void partiallyWrittenTailsAreCutOffBeforeAppending() throws IOException {
+        record(new VerdictHistoryStore(directory), run("a@s1", false));
+
+        // a report which crashed part way through each of its writes
+        append(VerdictHistoryStore.NAMES_FILE, "\"torn");
+        append(VerdictHistoryStore.VERDICTS_FILE, "12345");
+        append(VerdictHistoryStore.RUNS_FILE, "{\"id\":");
+
+        final VerdictHistoryStore store = new VerdictHistoryStore(directory);
+        assertEquals(List.of(1), runIds(store));
+        assertEquals(2, record(store, run("a@s1", false, "new@s1", false)).getId());
+
+        final VerdictHistoryStore reopened = new VerdictHistoryStore(directory);
+        assertEquals(List.of(1, 2), runIds(reopened));
+        assertEquals(Optional.of(1), failingSince(reopened, "a", "s1"));
+        assertEquals(Optional.of(2), failingSince(reopened, "new", "s1"));
+        assertEquals(3 * VerdictHistoryStore.RECORD_SIZE, Files.size(directory.resolve(VerdictHistoryStore.VERDICTS_FILE)));
+    }
+
+    @Test
+    void unreadableHistoryIsNeverAppendedTo() throws IOException {
+        record(new VerdictHistoryStore(directory), run("a@s1", true));
+        append(VerdictHistoryStore.NAMES_FILE, "not json\n");
+        final byte[] names = Files.readAllBytes(directory.resolve(VerdictHistoryStore.NAMES_FILE));
+
+        final VerdictHistoryStore store = new VerdictHistoryStore(directory);
+        assertThrows(IOException.class, () -> record(store, run("b@s1", false)));
+        assertArrayEquals(names, Files.readAllBytes(directory.resolve(VerdictHistoryStore.NAMES_FILE)));
+    }
+
+}
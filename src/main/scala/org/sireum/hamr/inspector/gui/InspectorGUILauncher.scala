@@ -27,6 +27,7 @@ package org.sireum.hamr.inspector.gui
 
 import javafx.application.Application
 import org.sireum.hamr.inspector.common.{Filter, Injection, InspectionBlueprint, Rule}
+import org.sireum.hamr.inspector.gui.tasks.reports.ReportCli
 
 import scala.collection.JavaConverters
 
@@ -37,6 +38,12 @@ object InspectorGUILauncher {
           rules: Set[Rule],
           injections: Set[Injection],
           args: Array[String]): Unit = {
+    // shard workers of a report are started with the same program as the gui, see ShardCoordinator
+    if (ReportCli.isShardWorker(args)) {
+      InspectorReportLauncher.run(inspectionBlueprint, filters, rules, injections, args)
+      return
+    }
+
     App.inspectionBlueprint = inspectionBlueprint
     App.filters = JavaConverters.setAsJavaSet(filters)
     App.rules = JavaConverters.setAsJavaSet(rules)
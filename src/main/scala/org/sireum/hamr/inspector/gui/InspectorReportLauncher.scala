@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.gui
+
+import org.sireum.hamr.inspector.common.{Filter, Injection, InspectionBlueprint, Rule}
+import org.sireum.hamr.inspector.gui.tasks.reports.ReportCli
+
+import scala.collection.JavaConverters
+
+/**
+ * Headless counterpart of InspectorGUILauncher's "Generate Test Report" action for ci. Tests every rule against every
+ * (or every --session=NAME) session, writes the report, then exits with 0 if all rules passed, 1 if any failed, or 2 if
+ * the report could not be generated.
+ *
+ * Also runs the shard workers of a sharded report (--shards=N), which are started with the same program.
+ */
+object InspectorReportLauncher {
+
+  def run(inspectionBlueprint: InspectionBlueprint,
+          filters: Set[Filter],
+          rules: Set[Rule],
+          injections: Set[Injection],
+          args: Array[String]): Unit = {
+    ReportCli.configure(
+      inspectionBlueprint,
+      JavaConverters.setAsJavaSet(filters),
+      JavaConverters.setAsJavaSet(rules),
+      JavaConverters.setAsJavaSet(injections),
+      args)
+    System.exit(ReportCli.run())
+  }
+
+}
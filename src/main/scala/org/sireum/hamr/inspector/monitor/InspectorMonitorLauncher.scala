@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2020, Matthew Weis, Kansas State University
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sireum.hamr.inspector.monitor
+
+import org.sireum.hamr.inspector.common.{Filter, Injection, InspectionBlueprint, Rule}
+
+import scala.collection.JavaConverters
+
+/**
+ * Headless counterpart of InspectorGUILauncher. Evaluates every rule against every live session without a JavaFX
+ * toolkit and appends the verdicts to a rotating JSON-lines file. Blocks until the jvm is shut down.
+ */
+object InspectorMonitorLauncher {
+
+  def run(inspectionBlueprint: InspectionBlueprint,
+          filters: Set[Filter],
+          rules: Set[Rule],
+          injections: Set[Injection],
+          args: Array[String]): Unit = {
+    MonitorApp.configure(
+      inspectionBlueprint,
+      JavaConverters.setAsJavaSet(filters),
+      JavaConverters.setAsJavaSet(rules),
+      JavaConverters.setAsJavaSet(injections),
+      args)
+    MonitorApp.run()
+  }
+
+  /**
+   * Serves the rule engine to guis started with inspector.engine.remote=host:port instead of monitoring. Blocks until
+   * the jvm is shut down.
+   */
+  def serve(inspectionBlueprint: InspectionBlueprint,
+            filters: Set[Filter],
+            rules: Set[Rule],
+            injections: Set[Injection],
+            args: Array[String]): Unit = {
+    MonitorApp.configure(
+      inspectionBlueprint,
+      JavaConverters.setAsJavaSet(filters),
+      JavaConverters.setAsJavaSet(rules),
+      JavaConverters.setAsJavaSet(injections),
+      args)
+    MonitorApp.serve()
+  }
+
+}